@@ -0,0 +1,87 @@
+package scikit.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scikit.numerics.fft.FFT3DManaged;
+import scikit.numerics.fft.FFT3DManagedReal;
+import scikit.numerics.fft.KernelSpectrum;
+import scikit.numerics.fn.Function3D;
+
+/**
+ * Convolution of a real 3D field with a Gaussian kernel, comparing the complex
+ * transform (convolve and convolve2), the real transform, and a precomputed
+ * kernel spectrum.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class Convolve3DBenchmark {
+	@Param({"64", "128", "256"})
+	public int dim;
+	
+	FFT3DManaged complex;
+	FFT3DManagedReal real;
+	KernelSpectrum spectrum;
+	double[] src, dst;
+	
+	static final Function3D gaussian = new Function3D() {
+		public double eval(double k1, double k2, double k3) {
+			return Math.exp(-(k1*k1 + k2*k2 + k3*k3)/2);
+		}
+	};
+	
+	@Setup
+	public void setup() {
+		double L = dim;
+		complex = new FFT3DManaged(dim, dim, dim);
+		complex.setLengths(L, L, L);
+		real = new FFT3DManagedReal(dim, dim, dim);
+		real.setLengths(L, L, L);
+		spectrum = KernelSpectrum.sample(gaussian, dim, dim, dim, L, L, L);
+		Random r = new Random(0);
+		src = new double[dim*dim*dim];
+		dst = new double[dim*dim*dim];
+		for (int i = 0; i < src.length; i++)
+			src[i] = r.nextGaussian();
+	}
+	
+	@Benchmark
+	public double[] complexConvolve() {
+		complex.convolve(src, dst, gaussian);
+		return dst;
+	}
+	
+	@Benchmark
+	public double[] complexConvolve2() {
+		complex.convolve2(src, dst, gaussian);
+		return dst;
+	}
+	
+	@Benchmark
+	public double[] realConvolve() {
+		real.convolve(src, dst, gaussian);
+		return dst;
+	}
+	
+	@Benchmark
+	public double[] realConvolveSpectrum() {
+		real.convolve(src, dst, spectrum);
+		return dst;
+	}
+}
@@ -0,0 +1,85 @@
+package scikit.bench;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scikit.numerics.fft.FFT3DManagedReal;
+import scikit.numerics.fft.KernelSpectrum;
+import scikit.numerics.fn.Function3D;
+
+/**
+ * Convolution of a batch of real 3D fields on a pool with one thread per core,
+ * comparing a loop over the fields, where every axis sweep is split across the pool,
+ * with the batch convolution, which runs whole fields concurrently.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConvolveBatchBenchmark {
+	@Param({"32", "64", "128"})
+	public int dim;
+	
+	@Param({"8"})
+	public int fields;
+	
+	ForkJoinPool pool;
+	FFT3DManagedReal fft;
+	KernelSpectrum spectrum;
+	double[][] src, dst;
+	
+	static final Function3D gaussian = new Function3D() {
+		public double eval(double k1, double k2, double k3) {
+			return Math.exp(-(k1*k1 + k2*k2 + k3*k3)/2);
+		}
+	};
+	
+	@Setup
+	public void setup() {
+		double L = dim;
+		pool = new ForkJoinPool();
+		fft = new FFT3DManagedReal(dim, dim, dim, pool);
+		fft.setLengths(L, L, L);
+		spectrum = fft.kernel(gaussian);
+		Random r = new Random(0);
+		src = new double[fields][dim*dim*dim];
+		dst = new double[fields][dim*dim*dim];
+		for (double[] f : src)
+			for (int i = 0; i < f.length; i++)
+				f[i] = r.nextGaussian();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Benchmark
+	public double[][] loop() {
+		for (int i = 0; i < fields; i++)
+			fft.convolve(src[i], dst[i], spectrum);
+		return dst;
+	}
+	
+	@Benchmark
+	public double[][] batch() {
+		fft.convolve(src, dst, spectrum);
+		return dst;
+	}
+}
@@ -0,0 +1,102 @@
+package scikit.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scikit.numerics.fft.managed.ComplexDoubleFFT;
+import scikit.numerics.fft.managed.ComplexDoubleFFT_Batch;
+import scikit.numerics.fft.managed.ComplexDoubleFFT_Mixed;
+import scikit.numerics.fft.managed.ComplexDoubleFFT_Radix2;
+
+/**
+ * One dimensional complex transforms at powers of two, 3*2^k, and primes, which
+ * exercise the radix-4/2, radix-3 and general butterflies respectively. Each
+ * invocation is a forward and a backward transform, so the data stays bounded. The
+ * radix-2 transform only exists for powers of two, so it has its own sizes, in
+ * {@link Radix2}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FFTBenchmark {
+	static final int BATCH = 16;
+	
+	@State(Scope.Thread)
+	public static class Mixed {
+		@Param({"256", "4096", "65536", "768", "12288", "97", "1021", "4099"})
+		public int n;
+		
+		ComplexDoubleFFT mixed;
+		ComplexDoubleFFT_Batch batch;
+		double[] data, re, im;
+		
+		@Setup
+		public void setup() {
+			mixed = new ComplexDoubleFFT_Mixed(n);
+			batch = new ComplexDoubleFFT_Batch(n, BATCH);
+			Random r = new Random(0);
+			data = random(r, 2*n);
+			re = random(r, n*BATCH);
+			im = random(r, n*BATCH);
+		}
+	}
+	
+	/** The powers of two among the sizes of {@link Mixed}. */
+	@State(Scope.Thread)
+	public static class Radix2 {
+		@Param({"256", "4096", "65536"})
+		public int n;
+		
+		ComplexDoubleFFT radix2;
+		double[] data;
+		
+		@Setup
+		public void setup() {
+			radix2 = new ComplexDoubleFFT_Radix2(n);
+			data = random(new Random(0), 2*n);
+		}
+	}
+	
+	static double[] random(Random r, int n) {
+		double[] ret = new double[n];
+		for (int i = 0; i < n; i++)
+			ret[i] = r.nextGaussian();
+		return ret;
+	}
+	
+	@Benchmark
+	public double[] mixed(Mixed s) {
+		s.mixed.transform(s.data);
+		s.mixed.backtransform(s.data);
+		return s.data;
+	}
+	
+	@Benchmark
+	public double[] radix2(Radix2 s) {
+		s.radix2.transform(s.data);
+		s.radix2.backtransform(s.data);
+		return s.data;
+	}
+	
+	/** Sixteen sequences per call; divide by 16 to compare with {@link #mixed}. */
+	@Benchmark
+	public double[] batch16(Mixed s) {
+		s.batch.transform(s.re, s.im, BATCH);
+		s.batch.backtransform(s.re, s.im, BATCH);
+		return s.re;
+	}
+}
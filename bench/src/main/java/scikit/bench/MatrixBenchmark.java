@@ -0,0 +1,50 @@
+package scikit.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scikit.numerics.Jama.LUDecomposition;
+import scikit.numerics.Jama.Matrix;
+
+/**
+ * Dense matrix product and LU decomposition of random n x n matrices.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MatrixBenchmark {
+	@Param({"100", "500", "1000", "2000"})
+	public int n;
+	
+	Matrix a, b;
+	
+	@Setup
+	public void setup() {
+		a = Matrix.random(n, n);
+		b = Matrix.random(n, n);
+	}
+	
+	@Benchmark
+	public Matrix times() {
+		return a.times(b);
+	}
+	
+	@Benchmark
+	public LUDecomposition lu() {
+		return new LUDecomposition(a);
+	}
+}
@@ -0,0 +1,70 @@
+package scikit.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scikit.numerics.ode.ODE;
+import scikit.numerics.ode.RK4;
+
+/**
+ * RK4 steps of a periodic chain of n coupled harmonic oscillators, so that the
+ * solver's own loops, not the rate function, dominate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RK4Benchmark {
+	@Param({"10", "1000", "100000"})
+	public int n;
+	
+	RK4 solver;
+	
+	static class Chain implements ODE {
+		final int n;
+		final double[] state;
+		
+		// state = {x_0..x_(n-1), v_0..v_(n-1)}
+		Chain(int n) {
+			this.n = n;
+			state = new double[2*n];
+			for (int i = 0; i < n; i++)
+				state[i] = Math.sin(2*Math.PI*i/n);
+		}
+		
+		public double[] getState() {
+			return state;
+		}
+		
+		public void getRate(double[] s, double[] rate) {
+			for (int i = 0; i < n; i++) {
+				rate[i] = s[n+i];
+				rate[n+i] = s[(i+1)%n] + s[(i+n-1)%n] - 2*s[i];
+			}
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		solver = new RK4(new Chain(n));
+		solver.initialize(0.01);
+	}
+	
+	@Benchmark
+	public double step() {
+		return solver.step();
+	}
+}
@@ -0,0 +1,382 @@
+/*
+ * FFTW 3 implementation of the jfftw natives used by scikit (jfftw.real.nd.Plan
+ * and jfftw.Wisdom). jfftw.jar is unchanged; only the native library differs.
+ *
+ * The jfftw flag constants are those of FFTW 2 and are translated here:
+ *   ESTIMATE (0), MEASURE (1), PATIENT (1024, not in FFTW 2), IN_PLACE (8),
+ *   USE_WISDOM (16, always on in FFTW 3), READONLY (128, always true in FFTW 3).
+ *
+ * Plans are created with FFTW_UNALIGNED and executed with the new-array interface,
+ * so they may be used on any Java array and from several threads at once. In-place
+ * plans take, as in FFTW 2, real rows padded to 2*(n/2+1) values along the last
+ * dimension. Plans for strided or batched layouts are made on first use and kept with
+ * the jfftw plan, up to JFFTW_LAYOUTS of them, until it is destroyed.
+ */
+#include <stdlib.h>
+#include <string.h>
+#include <fftw3.h>
+#include "jfftw_real_nd_Plan.h"
+#include "jfftw_Wisdom.h"
+
+#define JFFTW_REAL_TO_COMPLEX (-1)
+#define JFFTW_MEASURE         1
+#define JFFTW_IN_PLACE        8
+#define JFFTW_PATIENT         1024
+
+/* number of strided layouts whose plans are kept per jfftw plan */
+#define JFFTW_LAYOUTS 8
+
+typedef struct {
+	int howmany, istride, idist, ostride, odist;
+	fftw_plan plan;
+} jfftw_layout;
+
+typedef struct {
+	fftw_plan plan;
+	int dir;
+	int rank;
+	int *n;
+	unsigned flags;
+	int length;   /* number of real values */
+	int clength;  /* number of doubles in the half complex array */
+	int in_place;
+	/* plans for other layouts, guarded by the jfftw/Plan class monitor */
+	int nlayouts;
+	jfftw_layout layouts[JFFTW_LAYOUTS];
+} jfftw_plan;
+
+static unsigned translate_flags( jint flags )
+{
+	unsigned ret = FFTW_UNALIGNED;
+	if( flags & JFFTW_PATIENT )
+		ret |= FFTW_PATIENT;
+	else if( flags & JFFTW_MEASURE )
+		ret |= FFTW_MEASURE;
+	else
+		ret |= FFTW_ESTIMATE;
+	return ret;
+}
+
+/* number of doubles in one transform's input or output */
+static int in_size( jfftw_plan *p )
+{
+	return (p->dir == JFFTW_REAL_TO_COMPLEX && !p->in_place) ? p->length : p->clength;
+}
+
+static int out_size( jfftw_plan *p )
+{
+	return (p->dir == JFFTW_REAL_TO_COMPLEX || p->in_place) ? p->clength : p->length;
+}
+
+/*
+ * Plans howmany transforms with the given strides and distances, in doubles. In-place
+ * plans read and write one array, in which, as with FFTW 2, each row of real values
+ * along the last dimension is padded to the length of a complex row.
+ */
+static fftw_plan make_plan( JNIEnv *env, jfftw_plan *p, int howmany, int istride, int idist, int ostride, int odist )
+{
+	/* planning may overwrite the arrays, so plan on scratch memory */
+	double *in = fftw_malloc( sizeof(double) * ((howmany-1)*idist + in_size( p )) * istride );
+	double *out = p->in_place ? in : fftw_malloc( sizeof(double) * ((howmany-1)*odist + out_size( p )) * ostride );
+	int *rembed = NULL, *cembed = NULL;
+	fftw_plan plan;
+
+	if( p->in_place )
+	{
+		int last = p->rank-1;
+		rembed = malloc( sizeof(int) * p->rank );
+		cembed = malloc( sizeof(int) * p->rank );
+		memcpy( rembed, p->n, sizeof(int) * p->rank );
+		memcpy( cembed, p->n, sizeof(int) * p->rank );
+		cembed[last] = p->n[last]/2+1;
+		rembed[last] = 2*cembed[last];
+	}
+
+	/* the FFTW 3 planner is not thread safe */
+	(*env)->MonitorEnter( env, (*env)->FindClass( env, "jfftw/Plan" ) );
+	if( p->dir == JFFTW_REAL_TO_COMPLEX )
+	{
+		int cdist = odist / 2;
+		plan = fftw_plan_many_dft_r2c( p->rank, p->n, howmany, in, rembed, istride, idist,
+				(fftw_complex*)out, cembed, ostride, cdist, p->flags );
+	}
+	else
+	{
+		int cdist = idist / 2;
+		plan = fftw_plan_many_dft_c2r( p->rank, p->n, howmany, (fftw_complex*)in, cembed, istride, cdist,
+				out, rembed, ostride, odist, p->flags );
+	}
+	(*env)->MonitorExit( env, (*env)->FindClass( env, "jfftw/Plan" ) );
+
+	free( rembed );
+	free( cembed );
+	fftw_free( in );
+	if( out != in )
+		fftw_free( out );
+	return plan;
+}
+
+/*
+ * Returns the plan for the given layout, making it on first use. Plans are kept until
+ * the jfftw plan is destroyed and never evicted, since other threads may be executing
+ * them; once JFFTW_LAYOUTS layouts are kept, *owned is set and the caller must destroy
+ * the returned plan after use.
+ */
+static fftw_plan layout_plan( JNIEnv *env, jfftw_plan *p, int howmany, int istride, int idist, int ostride, int odist, int *owned )
+{
+	jclass lock = (*env)->FindClass( env, "jfftw/Plan" );
+	fftw_plan plan = NULL;
+	int i;
+
+	*owned = 0;
+	/* the distances do not matter for a single transform */
+	if( howmany == 1 )
+		idist = odist = 0;
+	(*env)->MonitorEnter( env, lock );
+	for( i = 0; i < p->nlayouts && plan == NULL; ++i )
+	{
+		jfftw_layout *l = &p->layouts[i];
+		if( l->howmany == howmany && l->istride == istride && l->idist == idist
+				&& l->ostride == ostride && l->odist == odist )
+			plan = l->plan;
+	}
+	if( plan == NULL )
+	{
+		plan = make_plan( env, p, howmany, istride, idist, ostride, odist );
+		if( plan != NULL && p->nlayouts < JFFTW_LAYOUTS )
+		{
+			jfftw_layout *l = &p->layouts[p->nlayouts++];
+			l->howmany = howmany;
+			l->istride = istride;
+			l->idist = idist;
+			l->ostride = ostride;
+			l->odist = odist;
+			l->plan = plan;
+		}
+		else
+			*owned = (plan != NULL);
+	}
+	(*env)->MonitorExit( env, lock );
+	return plan;
+}
+
+static jfftw_plan *get_plan( JNIEnv *env, jobject obj, jbyteArray *arr, jbyte **carr )
+{
+	jclass clazz = (*env)->GetObjectClass( env, obj );
+	jfieldID id = (*env)->GetFieldID( env, clazz, "plan", "[B" );
+	*arr = (jbyteArray)(*env)->GetObjectField( env, obj, id );
+	*carr = (*env)->GetByteArrayElements( env, *arr, 0 );
+	return *(jfftw_plan**)*carr;
+}
+
+static void execute( jfftw_plan *p, fftw_plan plan, jdouble *cin, jdouble *cout )
+{
+	if( p->dir == JFFTW_REAL_TO_COMPLEX )
+		fftw_execute_dft_r2c( plan, cin, (fftw_complex*)cout );
+	else
+		fftw_execute_dft_c2r( plan, (fftw_complex*)cin, cout );
+}
+
+/*
+ * Class:     jfftw_real_nd_Plan
+ * Method:    createPlan
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_jfftw_real_nd_Plan_createPlan( JNIEnv *env, jobject obj, jintArray dim, jint dir, jint flags )
+{
+	jclass clazz = (*env)->GetObjectClass( env, obj );
+	jfieldID id = (*env)->GetFieldID( env, clazz, "plan", "[B" );
+	jbyteArray arr = (*env)->NewByteArray( env, sizeof( jfftw_plan* ) );
+	jbyte *carr = (*env)->GetByteArrayElements( env, arr, 0 );
+	jint *cdim = (*env)->GetIntArrayElements( env, dim, 0 );
+	jfftw_plan *p = malloc( sizeof( jfftw_plan ) );
+	int i;
+
+	p->dir = dir;
+	p->rank = (*env)->GetArrayLength( env, dim );
+	p->n = malloc( sizeof(int) * p->rank );
+	p->flags = translate_flags( flags );
+	p->in_place = (flags & JFFTW_IN_PLACE) != 0;
+	p->nlayouts = 0;
+	p->length = 1;
+	p->clength = 2;
+	for( i = 0; i < p->rank; ++i )
+	{
+		p->n[i] = cdim[i];
+		p->length *= cdim[i];
+		p->clength *= (i == p->rank-1 ? cdim[i]/2+1 : cdim[i]);
+	}
+	(*env)->ReleaseIntArrayElements( env, dim, cdim, 0 );
+
+	p->plan = make_plan( env, p, 1, 1, 0, 1, 0 );
+	if( p->plan == NULL )
+	{
+		free( p->n );
+		free( p );
+		(*env)->ReleaseByteArrayElements( env, arr, carr, 0 );
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/RuntimeException" ), "FFTW could not create plan" );
+		return;
+	}
+
+	*(jfftw_plan**)carr = p;
+	(*env)->ReleaseByteArrayElements( env, arr, carr, 0 );
+	(*env)->SetObjectField( env, obj, id, arr );
+}
+
+/*
+ * Class:     jfftw_real_nd_Plan
+ * Method:    destroyPlan
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_jfftw_real_nd_Plan_destroyPlan( JNIEnv *env, jobject obj )
+{
+	jclass clazz = (*env)->GetObjectClass( env, obj );
+	jfieldID id = (*env)->GetFieldID( env, clazz, "plan", "[B" );
+	jbyteArray arr;
+	jbyte *carr;
+	jfftw_plan *p;
+	int i;
+
+	if( (*env)->GetObjectField( env, obj, id ) == NULL )
+		return;
+	p = get_plan( env, obj, &arr, &carr );
+	(*env)->MonitorEnter( env, (*env)->FindClass( env, "jfftw/Plan" ) );
+	fftw_destroy_plan( p->plan );
+	for( i = 0; i < p->nlayouts; ++i )
+		fftw_destroy_plan( p->layouts[i].plan );
+	(*env)->MonitorExit( env, (*env)->FindClass( env, "jfftw/Plan" ) );
+	free( p->n );
+	free( p );
+	(*env)->ReleaseByteArrayElements( env, arr, carr, JNI_ABORT );
+	(*env)->SetObjectField( env, obj, id, NULL );
+}
+
+/*
+ * Class:     jfftw_real_nd_Plan
+ * Method:    transform
+ * Signature: ([D)[D
+ */
+JNIEXPORT jdoubleArray JNICALL Java_jfftw_real_nd_Plan_transform___3D( JNIEnv *env, jobject obj, jdoubleArray in )
+{
+	jbyteArray arr;
+	jbyte *carr;
+	jfftw_plan *p = get_plan( env, obj, &arr, &carr );
+	int inLength = in_size( p );
+	int outLength = out_size( p );
+	jdoubleArray out;
+	jdouble *cin, *cout;
+
+	(*env)->ReleaseByteArrayElements( env, arr, carr, JNI_ABORT );
+	if( inLength != (*env)->GetArrayLength( env, in ) )
+	{
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/IndexOutOfBoundsException" ), "the Plan was created for a different length" );
+		return NULL;
+	}
+
+	out = p->in_place ? in : (*env)->NewDoubleArray( env, outLength );
+	cin = (*env)->GetDoubleArrayElements( env, in, 0 );
+	cout = p->in_place ? cin : (*env)->GetDoubleArrayElements( env, out, 0 );
+	execute( p, p->plan, cin, cout );
+	(*env)->ReleaseDoubleArrayElements( env, in, cin, 0 );
+	if( !p->in_place )
+		(*env)->ReleaseDoubleArrayElements( env, out, cout, 0 );
+	return out;
+}
+
+/*
+ * Class:     jfftw_real_nd_Plan
+ * Method:    transform
+ * Signature: (I[DII[DII)V
+ */
+JNIEXPORT void JNICALL Java_jfftw_real_nd_Plan_transform__I_3DII_3DII( JNIEnv *env, jobject obj, jint howmany, jdoubleArray in, jint istride, jint idist, jdoubleArray out, jint ostride, jint odist )
+{
+	jbyteArray arr;
+	jbyte *carr;
+	jfftw_plan *p = get_plan( env, obj, &arr, &carr );
+	int inLength = in_size( p );
+	int outLength = out_size( p );
+	jdouble *cin, *cout;
+	fftw_plan plan;
+	int owned = 0;
+
+	(*env)->ReleaseByteArrayElements( env, arr, carr, JNI_ABORT );
+	if( p->in_place && !(*env)->IsSameObject( env, in, out ) )
+	{
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/IllegalArgumentException" ), "in-place plans need the same in and out array" );
+		return;
+	}
+	if( (howmany-1)*idist + inLength > (*env)->GetArrayLength( env, in ) )
+	{
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/IndexOutOfBoundsException" ), "the Plan was created for a different length (in)" );
+		return;
+	}
+	if( (howmany-1)*odist + outLength > (*env)->GetArrayLength( env, out ) )
+	{
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/IndexOutOfBoundsException" ), "the Plan was created for a different length (out)" );
+		return;
+	}
+
+	/* the stored plan covers the common single, unit stride case */
+	if( howmany == 1 && istride == 1 && ostride == 1 )
+		plan = p->plan;
+	else
+		plan = layout_plan( env, p, howmany, istride, idist, ostride, odist, &owned );
+	if( plan == NULL )
+	{
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/RuntimeException" ), "FFTW could not create plan" );
+		return;
+	}
+
+	cin = (*env)->GetDoubleArrayElements( env, in, 0 );
+	cout = p->in_place ? cin : (*env)->GetDoubleArrayElements( env, out, 0 );
+	execute( p, plan, cin, cout );
+	(*env)->ReleaseDoubleArrayElements( env, in, cin, 0 );
+	if( !p->in_place )
+		(*env)->ReleaseDoubleArrayElements( env, out, cout, 0 );
+
+	if( owned )
+	{
+		(*env)->MonitorEnter( env, (*env)->FindClass( env, "jfftw/Plan" ) );
+		fftw_destroy_plan( plan );
+		(*env)->MonitorExit( env, (*env)->FindClass( env, "jfftw/Plan" ) );
+	}
+}
+
+/*
+ * Class:     jfftw_Wisdom
+ * Method:    get
+ * Signature: ()Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_jfftw_Wisdom_get( JNIEnv *env, jclass clazz )
+{
+	char *cwisdom = fftw_export_wisdom_to_string();
+	jstring wisdom = (*env)->NewStringUTF( env, cwisdom );
+	free( cwisdom );
+	return wisdom;
+}
+
+/*
+ * Class:     jfftw_Wisdom
+ * Method:    add
+ * Signature: (Ljava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_jfftw_Wisdom_add( JNIEnv *env, jclass clazz, jstring wisdom )
+{
+	const char *cwisdom = (*env)->GetStringUTFChars( env, wisdom, NULL );
+	int ok = fftw_import_wisdom_from_string( cwisdom );
+	(*env)->ReleaseStringUTFChars( env, wisdom, cwisdom );
+	if( !ok )
+	{
+		(*env)->ThrowNew( env, (*env)->FindClass( env, "java/lang/IllegalArgumentException" ), "unable to parse wisdom" );
+	}
+}
+
+/*
+ * Class:     jfftw_Wisdom
+ * Method:    clear
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_jfftw_Wisdom_clear( JNIEnv *env, jclass clazz )
+{
+	fftw_forget_wisdom();
+}
@@ -1,19 +1,47 @@
 package scikit.dataset;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static java.lang.Math.*;
 import scikit.dataset.Bin;
+import scikit.util.Bounds;
+
+/**
+ * Accumulates values y into bins of width binWidth centred on multiples of binWidth,
+ * and reports the average (and its error) of each bin. With a binWidth of zero every
+ * distinct x has its own bin.
+ * <p>
+ * For a nonzero binWidth, bins are stored in parallel primitive arrays covering a
+ * contiguous range of bin indices, which grows on demand (see {@link BinArray}).
+ * Accumulating a value is then an index computation and a few array updates, with no
+ * boxing or allocation. Bins
+ * too far from the others to be stored densely (more than MAX_DENSE bins apart),
+ * non-finite x, and all bins of a zero width accumulator are kept in a sorted map.
+ */
+public class Accumulator extends DataSet {
+	// largest number of bins held in the dense arrays
+	static final int MAX_DENSE = 1 << 22;
+	// smallest batch that accumAll splits across a pool
+	static final int PARALLEL_THRESHOLD = 1 << 15;
 
-public class Accumulator extends DataSet {	
 	protected double _binWidth;
+	// bins that are not in the dense range
 	private SortedMap<Double, Bin> _hash;
+	// dense bins: slot i holds the bin centred at (_offset+i)*_binWidth
+	private long _offset;
+	private BinArray _dense;
+	// size of the quantile sketch kept per bin, or 0 for none
+	private int _sketchSize = 0;
+	// whether bins keep skewness, kurtosis and extrema
+	private boolean _extended = false;
     private boolean _errorBars = false;
-    
+
 	public Accumulator() {
 		this(0);
 	}
-	
+
 	public Accumulator(double binWidth) {
 		_hash = new TreeMap<Double, Bin>();
 		_binWidth = binWidth;
@@ -22,76 +50,233 @@ public class Accumulator extends DataSet {
 	public Accumulator(Accumulator that, double binWidth) {
 		this(binWidth);
 		_errorBars = that._errorBars;
-		
-		for (Double k : that.keys()) {
-			Bin v1 = _hash.get(k);
-			Bin v2 = that._hash.get(k);
-			if (v1 == null) {
-				v1 = new Bin();
-				v1.accum(v2);
-				_hash.put(key(k), v1);
-			}
-			else {
-				v1.accum(v2);
-			}
-		}
+		accum(that);
 	}
-	
+
 	public void enableErrorBars(boolean errorBars) {
 		_errorBars = true;
 	}
-	
+
+	/**
+	 * Keeps a {@link QuantileSketch} of the given size in every bin, so that
+	 * {@link Bin#quantile} is available from {@link #getBin}. This clears the
+	 * accumulator. A size of 0 turns the sketches off.
+	 */
+	public void enableQuantiles(int sketchSize) {
+		_sketchSize = sketchSize;
+		clear();
+	}
+
+	/**
+	 * Keeps the statistics for {@link Bin#skewness}, {@link Bin#kurtosis}, {@link Bin#min}
+	 * and {@link Bin#max} in every bin, available from {@link #getBin}. They make
+	 * accumulating slower, so are off by default. This clears the accumulator.
+	 */
+	public void enableExtendedStatistics(boolean extended) {
+		_extended = extended;
+		clear();
+	}
+
 	public void clear() {
 		_hash = new TreeMap<Double, Bin>();
+		_dense = null;
 	}
-	
+
 	public DatasetBuffer copyData() {
+		int size = _hash.size();
+		if (_dense != null) {
+			for (long c : _dense.count)
+				if (c > 0) size++;
+		}
 		DatasetBuffer ret = new DatasetBuffer();
-		ret._x = new double[_hash.size()];
-		ret._y = new double[_hash.size()];
+		ret._x = new double[size];
+		ret._y = new double[size];
 		if (_errorBars)
-			ret._errY = new double[_hash.size()];
+			ret._errY = new double[size];
+
+		// sparse bins lie entirely below or above the dense range, so the three parts
+		// are already in order
 		int i = 0;
-        for (Double k : _hash.keySet()) {
-			ret._x[i] = k;
-            ret._y[i] = eval(k);
-            if (_errorBars)
-            	ret._errY[i] = evalError(k);
-            i++;
+		Iterator<Double> sparse = _hash.keySet().iterator();
+		Double next = sparse.hasNext() ? sparse.next() : null;
+		while (next != null && _dense != null && next < center(0)) {
+			i = copyBin(ret, i, next);
+			next = sparse.hasNext() ? sparse.next() : null;
+		}
+		if (_dense != null) {
+			for (int j = 0; j < _dense.length(); j++)
+				if (_dense.count[j] > 0)
+					i = copyBin(ret, i, center(j));
+		}
+		while (next != null) {
+			i = copyBin(ret, i, next);
+			next = sparse.hasNext() ? sparse.next() : null;
+		}
+		return ret;
+	}
+
+	/** Returns the bounds of the bins, found without copying them. */
+	public Bounds getBounds() {
+		Bounds ret = new Bounds();
+		for (double k : _hash.keySet())
+			DatasetBuffer.include(ret, k, eval(k));
+		if (_dense != null) {
+			for (int j = 0; j < _dense.length(); j++)
+				if (_dense.count[j] > 0)
+					DatasetBuffer.include(ret, center(j), eval(center(j)));
 		}
-		return ret;	
+		return ret;
 	}
-	
+
+	private int copyBin(DatasetBuffer ret, int i, double k) {
+		ret._x[i] = k;
+		ret._y[i] = eval(k);
+		if (_errorBars)
+			ret._errY[i] = evalError(k);
+		return i+1;
+	}
+
 	public Set<Double> keys() {
-		return _hash.keySet();
+		if (_dense == null)
+			return _hash.keySet();
+		SortedSet<Double> ret = new TreeSet<Double>(_hash.keySet());
+		for (int j = 0; j < _dense.length(); j++)
+			if (_dense.count[j] > 0)
+				ret.add(center(j));
+		return ret;
 	}
-	
+
 	public double maxKey() {
 		double res = Double.MIN_VALUE;
 		for (double k : keys())
 			res = Math.max(res, k);
 		return res;
 	}
-	
+
 	public double eval(double x) {
+		int j = find(x);
+		if (j >= 0)
+			return (_dense.count[j] == 0) ? Double.NaN : _dense.mean(j);
 		Bin val = _hash.get(key(x));
 		return (val == null) ? Double.NaN : val.average();
 	}
-	
+
 	public double evalCount(double x) {
+		int j = find(x);
+		if (j >= 0)
+			return (_dense.count[j] == 0) ? Double.NaN : _dense.count[j];
 		Bin val = _hash.get(key(x));
-		return (val == null) ? Double.NaN : val.count();		
+		return (val == null) ? Double.NaN : val.longCount();
 	}
-	
+
 	public double evalError(double x) {
+		int j = find(x);
+		if (j >= 0)
+			return (_dense.count[j] == 0) ? Double.NaN : sqrt(_dense.m2(j)) / _dense.count[j];
 		Bin val = _hash.get(key(x));
-		return (val == null) ? Double.NaN : val.error();		
+		return (val == null) ? Double.NaN : val.error();
 	}
-	
+
 	public void accum(double x, double y) {
+		add(x, y);
+	}
+
+	/**
+	 * Accumulates ys[i] at xs[i] for every i. Equivalent to calling accum(xs[i], ys[i])
+	 * in turn, but the bin range is sized once for the whole batch and the bins are
+	 * then updated in a single tight loop.
+	 */
+	public void accumAll(double[] xs, double[] ys) {
+		accumAll(xs, ys, null);
+	}
+
+	/**
+	 * As {@link #accumAll(double[], double[])}, splitting batches of more than
+	 * PARALLEL_THRESHOLD samples across the given pool. Each task accumulates into
+	 * private arrays which are summed at the end, so the result may differ from the
+	 * serial one by floating point rounding. The call returns once the batch is
+	 * complete; this accumulator must not be used concurrently by other threads.
+	 */
+	public void accumAll(double[] xs, double[] ys, ForkJoinPool pool) {
+		if (ys.length != xs.length)
+			throw new IllegalArgumentException("Arrays differ in length: "+xs.length+" and "+ys.length);
+		accumBatch(xs, ys, pool);
+	}
+
+	// accumulates a batch; a null ys gives every sample the value 1
+	void accumBatch(final double[] xs, final double[] ys, ForkJoinPool pool) {
+		long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+		if (_binWidth != 0) {
+			for (double x : xs) {
+				long k = index(x);
+				if (k != Long.MIN_VALUE) {
+					lo = min(lo, k);
+					hi = max(hi, k);
+				}
+			}
+		}
+		// size the dense range once; if the batch does not fit, fall back to accum
+		if (lo > hi || slotIndex(lo) < 0 || slotIndex(hi) < 0) {
+			for (int i = 0; i < xs.length; i++)
+				add(xs[i], ys == null ? 1 : ys[i]);
+			return;
+		}
+
+		final int span = (int)(hi - lo + 1);
+		final int base = (int)(lo - _offset);
+		final int nchunks = (pool == null) ? 1 : pool.getParallelism();
+		if (nchunks == 1 || xs.length < PARALLEL_THRESHOLD || (long)span*nchunks > xs.length) {
+			accumRange(xs, ys, 0, xs.length, _dense, _offset);
+		}
+		else {
+			final long offset = lo;
+			pool.invoke(new RecursiveAction() {
+				protected void compute() {
+					RecursiveAction[] chunks = new RecursiveAction[nchunks];
+					for (int c = 0; c < nchunks; c++) {
+						final int start = (int)((long)xs.length*c/nchunks);
+						final int end = (int)((long)xs.length*(c+1)/nchunks);
+						chunks[c] = new RecursiveAction() {
+							protected void compute() {
+								BinArray bins = new BinArray(span, _sketchSize, _extended);
+								accumRange(xs, ys, start, end, bins, offset);
+								synchronized (Accumulator.this) {
+									for (int j = 0; j < span; j++)
+										_dense.accum(base+j, bins, j);
+								}
+							}
+						};
+					}
+					invokeAll(chunks);
+				}
+			});
+		}
+		// the samples that can not be stored densely
+		for (int i = 0; i < xs.length; i++)
+			if (index(xs[i]) == Long.MIN_VALUE)
+				add(xs[i], ys == null ? 1 : ys[i]);
+	}
+
+	// accumulates samples [start, end) with dense bin indices into bins whose slot 0
+	// is bin index offset
+	private void accumRange(double[] xs, double[] ys, int start, int end, BinArray bins, long offset) {
+		for (int i = start; i < end; i++) {
+			long k = index(xs[i]);
+			if (k == Long.MIN_VALUE)
+				continue;
+			bins.accum((int)(k - offset), (ys == null) ? 1 : ys[i]);
+		}
+	}
+
+	private void add(double x, double y) {
+		int j = slot(x);
+		if (j >= 0) {
+			_dense.accum(j, y);
+			return;
+		}
 		Bin val = _hash.get(key(x));
 		if (val == null) {
-			val = new Bin();
+			val = new Bin(_sketchSize, _extended);
 			val.accum(y);
 			_hash.put(key(x), val);
 		}
@@ -99,7 +284,47 @@ public class Accumulator extends DataSet {
 			val.accum(y);
 		}
 	}
-	
+
+	/**
+	 * Adds every bin of that accumulator to the bin of this one containing its centre,
+	 * as if the values accumulated in that had been accumulated here.
+	 */
+	public void accum(Accumulator that) {
+		for (Double k : that.keys())
+			accum(k, that.getBin(k));
+	}
+
+	// adds the contents of bin b to the bin containing x
+	private void accum(double x, Bin b) {
+		int j = slot(x);
+		if (j >= 0) {
+			_dense.accum(j, b.a, 0);
+			return;
+		}
+		Bin val = _hash.get(key(x));
+		if (val == null) {
+			val = new Bin(_sketchSize, _extended);
+			_hash.put(key(x), val);
+		}
+		val.accum(b);
+	}
+
+	/**
+	 * Returns a copy of the statistics of the bin containing x, or null if the bin is
+	 * empty.
+	 */
+	public Bin getBin(double x) {
+		int j = find(x);
+		if (j >= 0)
+			return (_dense.count[j] == 0) ? null : new Bin(_dense, j);
+		Bin val = _hash.get(key(x));
+		if (val == null)
+			return null;
+		Bin ret = new Bin(_sketchSize, _extended);
+		ret.accum(val);
+		return ret;
+	}
+
 	// key() gives the unique hash for every bin. it is the double value representing
 	// the center of the bin.
 	private double key(double x) {
@@ -107,8 +332,74 @@ public class Accumulator extends DataSet {
 			return x;
 		else {
 			double bw = _binWidth;
-			double k = bw * rint(x/bw); 
+			double k = bw * rint(x/bw);
 			return k == -0 ? +0 : k;    // +-0 have different representations.  choose +0.
 		}
 	}
+
+	private double center(int j) {
+		double k = _binWidth * (_offset + j);
+		return k == -0 ? +0 : k;
+	}
+
+	// the bin index of x, or Long.MIN_VALUE if x can not be stored densely
+	private long index(double x) {
+		if (_binWidth == 0)
+			return Long.MIN_VALUE;
+		double r = rint(x/_binWidth);
+		return (abs(r) < (double)(1L << 52)) ? (long)r : Long.MIN_VALUE;
+	}
+
+	// the dense slot holding x, or -1 if it is outside the dense range
+	private int find(double x) {
+		if (_dense == null)
+			return -1;
+		long k = index(x);
+		if (k == Long.MIN_VALUE || k < _offset || k >= _offset + _dense.length())
+			return -1;
+		return (int)(k - _offset);
+	}
+
+	// the dense slot holding x, growing the dense range if needed, or -1 if x must be
+	// kept in the sparse map
+	private int slot(double x) {
+		long k = index(x);
+		if (k == Long.MIN_VALUE)
+			return -1;
+		return slotIndex(k);
+	}
+
+	private int slotIndex(long k) {
+		if (_dense == null) {
+			_offset = k - 8;
+			_dense = new BinArray(16, _sketchSize, _extended);
+		}
+		long rel = k - _offset;
+		if (rel >= 0 && rel < _dense.length())
+			return (int)rel;
+
+		long lo = min(_offset, k);
+		long hi = max(_offset + _dense.length() - 1, k);
+		if (hi - lo + 1 > MAX_DENSE)
+			return -1;
+		// at least double the capacity, extending in the direction of growth
+		int n = (int)min(MAX_DENSE, max(hi - lo + 1, 2L*_dense.length()));
+		long offset = (k < _offset) ? hi - n + 1 : lo;
+		_dense = _dense.resized(n, (int)(_offset - offset));
+		_offset = offset;
+
+		// move sparse bins now covered by the dense range
+		if (!_hash.isEmpty()) {
+			Iterator<Map.Entry<Double, Bin>> it = _hash.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Double, Bin> e = it.next();
+				int j = find(e.getKey());
+				if (j >= 0) {
+					_dense.accum(j, e.getValue().a, 0);
+					it.remove();
+				}
+			}
+		}
+		return (int)(k - _offset);
+	}
 }
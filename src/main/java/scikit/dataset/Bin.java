@@ -2,45 +2,113 @@ package scikit.dataset;
 
 import static java.lang.Math.sqrt;
 
+/**
+ * Streaming statistics of the values accumulated into one bin: count, mean and
+ * variance, and optionally skewness, kurtosis, minimum, maximum and approximate
+ * quantiles.
+ * Memory does not grow with the number of values, and two bins can be merged, for
+ * example after accumulating on separate threads, with the same result as
+ * accumulating all values into one.
+ */
 public class Bin {
-	private double sum = 0;
-	private double sum2 = 0;
-	private int count = 0;
-	
+	// a single row of bins; see BinArray for the update formulas
+	final BinArray a;
+
+	public Bin() {
+		this(0, false);
+	}
+
+	/**
+	 * Creates a bin that also keeps a {@link QuantileSketch} of size sketchSize, or
+	 * none if sketchSize is 0.
+	 */
+	public Bin(int sketchSize) {
+		this(sketchSize, false);
+	}
+
+	/**
+	 * Creates a bin that keeps a quantile sketch of size sketchSize, if it is not 0,
+	 * and, if extended is true, the statistics for {@link #skewness}, {@link #kurtosis},
+	 * {@link #min} and {@link #max}, which make accumulating slower.
+	 */
+	public Bin(int sketchSize, boolean extended) {
+		a = new BinArray(1, sketchSize, extended);
+	}
+
+	// a copy of bin j of that array
+	Bin(BinArray that, int j) {
+		a = new BinArray(1, that.sketchSize, that.isExtended());
+		a.accum(0, that, j);
+	}
+
 	public void accum(Bin that) {
-		sum += that.sum;
-		sum2 += that.sum2;
-		count += that.count;
+		a.accum(0, that.a, 0);
 	}
-	
+
 	public void accum(double value) {
-		sum += value;
-		sum2 += value*value;
-		count += 1;
+		a.accum(0, value);
 	}
-	
+
 	public double sum() {
-		return sum;
+		return (a.count[0] == 0) ? 0 : a.mean(0) * a.count[0];
 	}
 
+	// the count, saturating at Integer.MAX_VALUE; see longCount()
 	public int count() {
-		return count;
+		return (int)Math.min(a.count[0], Integer.MAX_VALUE);
+	}
+
+	public long longCount() {
+		return a.count[0];
 	}
-	
+
 	public double average() {
-		return sum / count;
+		return (a.count[0] == 0) ? Double.NaN : a.mean(0);
 	}
-	
+
+	// the population variance, sum (x - average)^2 / count
 	public double variance() {
-		double s1 = sum / count;
-		double s2 = sum2 / count;
-		return s2 - s1*s1;
+		return a.m2(0) / a.count[0];
 	}
-	
+
 	// return the standard error correspond to the average() value.
-	// uses the central limit theorem and assumes that all accumulated variables 
+	// uses the central limit theorem and assumes that all accumulated variables
 	// are independent and identically distributed (IID).
 	public double error() {
-		return sqrt(variance() / count);
+		return sqrt(variance() / a.count[0]);
+	}
+
+	// skewness, kurtosis, min and max are NaN unless the bin keeps extended statistics
+	public double skewness() {
+		if (!a.isExtended())
+			return Double.NaN;
+		double n = a.count[0];
+		return sqrt(n) * a.m3[0] / (a.m2[0] * sqrt(a.m2[0]));
+	}
+
+	// the excess kurtosis, zero for normally distributed values
+	public double kurtosis() {
+		if (!a.isExtended())
+			return Double.NaN;
+		double n = a.count[0];
+		return n * a.m4[0] / (a.m2[0] * a.m2[0]) - 3;
+	}
+
+	public double min() {
+		return (a.count[0] == 0 || !a.isExtended()) ? Double.NaN : a.min[0];
+	}
+
+	public double max() {
+		return (a.count[0] == 0 || !a.isExtended()) ? Double.NaN : a.max[0];
+	}
+
+	/**
+	 * Returns an estimate of the q quantile of the accumulated values, or NaN if this
+	 * bin keeps no quantile sketch.
+	 */
+	public double quantile(double q) {
+		if (a.sketches == null || a.sketches[0] == null)
+			return Double.NaN;
+		return a.sketches[0].quantile(q);
 	}
 }
@@ -0,0 +1,167 @@
+package scikit.dataset;
+
+/**
+ * The statistics of a row of bins, one entry per bin in parallel primitive arrays.
+ * By default each bin keeps its count and the sums of y - K and (y - K)^2, with K
+ * the first value accumulated into it, which needs no division per value and stays
+ * accurate when the mean is large compared to the spread as long as K is
+ * representative. Extended statistics add the minimum and maximum, and keep the mean
+ * and central sums M2, M3, M4 instead, updated with Welford's method and merged with
+ * the pairwise formulas of Chan et al. A {@link Bin} is a row of length one, so both
+ * share these formulas.
+ */
+final class BinArray {
+	final long[] count;
+	// shifted sums, null for extended statistics
+	final double[] shift, sum, sum2;
+	// mean, central sums and extrema, null unless extended statistics are kept
+	final double[] mean, m2, m3, m4, min, max;
+	// per bin quantile sketches, created on first use; null if disabled
+	final QuantileSketch[] sketches;
+	final int sketchSize;
+
+	BinArray(int n, int sketchSize) {
+		this(n, sketchSize, false);
+	}
+
+	BinArray(int n, int sketchSize, boolean extended) {
+		count = new long[n];
+		shift = extended ? null : new double[n];
+		sum = extended ? null : new double[n];
+		sum2 = extended ? null : new double[n];
+		mean = extended ? new double[n] : null;
+		m2 = extended ? new double[n] : null;
+		m3 = extended ? new double[n] : null;
+		m4 = extended ? new double[n] : null;
+		min = extended ? new double[n] : null;
+		max = extended ? new double[n] : null;
+		this.sketchSize = sketchSize;
+		sketches = (sketchSize > 0) ? new QuantileSketch[n] : null;
+	}
+
+	int length() {
+		return count.length;
+	}
+
+	boolean isExtended() {
+		return mean != null;
+	}
+
+	/** The mean of bin j, undefined if it is empty. */
+	double mean(int j) {
+		return (mean != null) ? mean[j] : shift[j] + sum[j] / count[j];
+	}
+
+	/** The sum of squared deviations from the mean of bin j. */
+	double m2(int j) {
+		if (m2 != null)
+			return m2[j];
+		return (count[j] == 0) ? 0 : Math.max(0, sum2[j] - sum[j] * sum[j] / count[j]);
+	}
+
+	void accum(int j, double y) {
+		long n1 = count[j];
+		long n = n1 + 1;
+		if (mean == null) {
+			if (n1 == 0)
+				shift[j] = y;
+			double d = y - shift[j];
+			sum[j] += d;
+			sum2[j] += d * d;
+		}
+		else {
+			double delta = y - mean[j];
+			double dn = delta / n;
+			double dn2 = dn * dn;
+			double term1 = delta * dn * n1;
+			mean[j] += dn;
+			m4[j] += term1 * dn2 * ((double)n*n - 3*n + 3) + 6 * dn2 * m2[j] - 4 * dn * m3[j];
+			m3[j] += term1 * dn * (n - 2) - 3 * dn * m2[j];
+			m2[j] += term1;
+			min[j] = (n1 == 0) ? y : Math.min(min[j], y);
+			max[j] = (n1 == 0) ? y : Math.max(max[j], y);
+		}
+		count[j] = n;
+		if (sketches != null)
+			sketch(j).accum(y);
+	}
+
+	/**
+	 * Merges bin k of that into bin j of this. If this keeps extended statistics and
+	 * that does not, the third and fourth moments and the extrema of bin j become NaN.
+	 */
+	void accum(int j, BinArray that, int k) {
+		long nb = that.count[k];
+		if (nb == 0)
+			return;
+		long na = count[j];
+		double meanb = that.mean(k), m2b = that.m2(k);
+		if (mean == null) {
+			if (na == 0)
+				shift[j] = meanb;
+			double d = meanb - shift[j];
+			sum[j] += nb * d;
+			sum2[j] += m2b + nb * d * d;
+		}
+		else if (na == 0) {
+			mean[j] = meanb;
+			m2[j] = m2b;
+			boolean ext = that.isExtended();
+			m3[j] = ext ? that.m3[k] : Double.NaN;
+			m4[j] = ext ? that.m4[k] : Double.NaN;
+			min[j] = ext ? that.min[k] : Double.NaN;
+			max[j] = ext ? that.max[k] : Double.NaN;
+		}
+		else {
+			double a = na, b = nb, n = a + b;
+			double delta = meanb - mean[j];
+			double d2 = delta * delta;
+			double m2a = m2[j];
+			mean[j] += delta * b / n;
+			if (that.isExtended()) {
+				double m3a = m3[j], m3b = that.m3[k];
+				m4[j] += that.m4[k] + d2 * d2 * a * b * (a*a - a*b + b*b) / (n*n*n)
+						+ 6 * d2 * (a*a * m2b + b*b * m2a) / (n*n) + 4 * delta * (a * m3b - b * m3a) / n;
+				m3[j] += m3b + d2 * delta * a * b * (a - b) / (n*n) + 3 * delta * (a * m2b - b * m2a) / n;
+				min[j] = Math.min(min[j], that.min[k]);
+				max[j] = Math.max(max[j], that.max[k]);
+			}
+			else {
+				m3[j] = m4[j] = min[j] = max[j] = Double.NaN;
+			}
+			m2[j] += m2b + d2 * a * b / n;
+		}
+		count[j] = na + nb;
+		if (sketches != null && that.sketches != null && that.sketches[k] != null)
+			sketch(j).accum(that.sketches[k]);
+	}
+
+	/** Returns a copy with n bins, bin j of this becoming bin j+shift of the copy. */
+	BinArray resized(int n, int shift) {
+		BinArray ret = new BinArray(n, sketchSize, isExtended());
+		int len = length();
+		System.arraycopy(count, 0, ret.count, shift, len);
+		if (isExtended()) {
+			System.arraycopy(mean, 0, ret.mean, shift, len);
+			System.arraycopy(m2, 0, ret.m2, shift, len);
+			System.arraycopy(m3, 0, ret.m3, shift, len);
+			System.arraycopy(m4, 0, ret.m4, shift, len);
+			System.arraycopy(min, 0, ret.min, shift, len);
+			System.arraycopy(max, 0, ret.max, shift, len);
+		}
+		else {
+			System.arraycopy(this.shift, 0, ret.shift, shift, len);
+			System.arraycopy(sum, 0, ret.sum, shift, len);
+			System.arraycopy(sum2, 0, ret.sum2, shift, len);
+		}
+		if (sketches != null)
+			System.arraycopy(sketches, 0, ret.sketches, shift, len);
+		return ret;
+	}
+
+	QuantileSketch sketch(int j) {
+		if (sketches[j] == null)
+			sketches[j] = new QuantileSketch(sketchSize);
+		return sketches[j];
+	}
+}
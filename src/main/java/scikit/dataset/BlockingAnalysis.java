@@ -0,0 +1,184 @@
+package scikit.dataset;
+
+import static java.lang.Math.sqrt;
+
+import java.util.Arrays;
+
+import scikit.numerics.fft.FFT1D;
+
+/**
+ * Error analysis for the mean of a correlated time series, such as the output of a
+ * Markov chain Monte Carlo simulation, by the blocking method of Flyvbjerg and
+ * Petersen (J. Chem. Phys. 91, 461 (1989)).
+ * <p>
+ * Values are accumulated one at a time. Level l holds the statistics of the averages
+ * of consecutive blocks of 2^l values, and each block is formed as soon as both of
+ * its halves are complete, so memory is O(log N). The naive standard error of level l
+ * grows with l until the blocks are longer than the correlation time, then levels
+ * off at the true error of the mean. Plotted as a data set, x is the block size
+ * 2^l, y the error estimated from that level, and the error bars the statistical
+ * uncertainty of that estimate. Levels with fewer than two blocks are omitted.
+ * <p>
+ * For a series held in memory, {@link #autocorrelationTime(double[])} estimates the
+ * integrated autocorrelation time directly, using an FFT.
+ */
+public class BlockingAnalysis extends DataSet {
+	// blocks needed at a level for error() to consider it
+	static final int MIN_BLOCKS = 32;
+
+	// levels.mean(l), levels.m2(l) etc. describe the averages of blocks of 2^l values
+	private BinArray levels;
+	// the completed first half of the next block at each level, if any
+	private double[] pending;
+	private boolean[] hasPending;
+
+	public BlockingAnalysis() {
+		clear();
+	}
+
+	public void clear() {
+		levels = new BinArray(8, 0);
+		pending = new double[8];
+		hasPending = new boolean[8];
+	}
+
+	public void accum(double x) {
+		for (int l = 0; ; l++) {
+			if (l == levels.length())
+				grow();
+			levels.accum(l, x);
+			if (!hasPending[l]) {
+				pending[l] = x;
+				hasPending[l] = true;
+				return;
+			}
+			x = (pending[l] + x) / 2;
+			hasPending[l] = false;
+		}
+	}
+
+	public void accumAll(double[] xs) {
+		for (double x : xs)
+			accum(x);
+	}
+
+	/** The number of values accumulated. */
+	public long count() {
+		return levels.count[0];
+	}
+
+	public double mean() {
+		return (count() == 0) ? Double.NaN : levels.mean(0);
+	}
+
+	/** The number of levels holding at least two blocks. */
+	public int levels() {
+		int l = 0;
+		while (l < levels.length() && levels.count[l] >= 2)
+			l++;
+		return l;
+	}
+
+	/** The standard error of the mean estimated from blocks of 2^level values. */
+	public double error(int level) {
+		long n = levels.count[level];
+		return (n < 2) ? Double.NaN : sqrt(levels.m2(level) / n / (n - 1));
+	}
+
+	/** The statistical uncertainty of {@link #error(int)}. */
+	public double errorOfError(int level) {
+		long n = levels.count[level];
+		return error(level) / sqrt(2.0 * (n - 1));
+	}
+
+	/**
+	 * A conservative estimate of the standard error of the mean: the largest error(l)
+	 * over the levels with at least 32 blocks. If the series is too short for the
+	 * errors to level off this still underestimates the error; check the plot.
+	 */
+	public double error() {
+		double ret = Double.NaN;
+		for (int l = 0; l < levels.length() && levels.count[l] >= MIN_BLOCKS; l++)
+			ret = (l == 0) ? error(l) : Math.max(ret, error(l));
+		return ret;
+	}
+
+	public DatasetBuffer copyData() {
+		int n = levels();
+		DatasetBuffer ret = new DatasetBuffer();
+		ret._x = new double[n];
+		ret._y = new double[n];
+		ret._errY = new double[n];
+		for (int l = 0; l < n; l++) {
+			ret._x[l] = 1L << l;
+			ret._y[l] = error(l);
+			ret._errY[l] = errorOfError(l);
+		}
+		return ret;
+	}
+
+	private void grow() {
+		int n = 2*levels.length();
+		levels = levels.resized(n, 0);
+		pending = Arrays.copyOf(pending, n);
+		hasPending = Arrays.copyOf(hasPending, n);
+	}
+
+
+	/**
+	 * Returns the normalized autocorrelation function rho(t), 0 &lt;= t &lt; a.length, of
+	 * the series a, computed with an FFT of the zero padded series in O(N log N). A
+	 * constant series has no fluctuations to correlate, and is given rho(0) = 1 and
+	 * rho(t) = 0 otherwise, so that its autocorrelation time is 1/2.
+	 */
+	public static double[] autocorrelation(double[] a) {
+		int n = a.length;
+		if (isConstant(a)) {
+			double[] ret = new double[n];
+			if (n > 0)
+				ret[0] = 1;
+			return ret;
+		}
+		int m = 1;
+		while (m < 2*n)
+			m *= 2;
+		double mean = 0;
+		for (double x : a)
+			mean += x;
+		mean /= n;
+		double[] c = new double[m];
+		for (int i = 0; i < n; i++)
+			c[i] = a[i] - mean;
+		new FFT1D(m).autocorrelation(c, c);
+		double[] ret = new double[n];
+		for (int t = 0; t < n; t++)
+			ret[t] = c[t] / c[0];
+		return ret;
+	}
+
+	private static boolean isConstant(double[] a) {
+		for (double x : a)
+			if (x != a[0])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Estimates the integrated autocorrelation time
+	 * <pre>
+	 *    tau = 1/2 + sum_{t=1}^{W} rho(t)
+	 * </pre>
+	 * of the series a, with Sokal's automatic window: the smallest W &gt;= 5 tau. The
+	 * standard error of the mean is then sqrt(2 tau var / N).
+	 */
+	public static double autocorrelationTime(double[] a) {
+		double[] rho = autocorrelation(a);
+		double tau = 0.5;
+		for (int t = 1; t < rho.length; t++) {
+			tau += rho[t];
+			if (t >= 5*tau)
+				break;
+		}
+		return tau;
+	}
+}
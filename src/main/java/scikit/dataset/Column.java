@@ -0,0 +1,47 @@
+package scikit.dataset;
+
+import java.util.Arrays;
+
+/**
+ * A growable column of doubles stored in fixed size chunks. Appending allocates a new
+ * chunk when the last is full and never moves existing values, so a reader holding
+ * the chunk table and a length sees a stable prefix of the column.
+ */
+final class Column {
+	static final int CHUNK_SHIFT = 12;
+	static final int CHUNK = 1 << CHUNK_SHIFT;
+	static final int MASK = CHUNK - 1;
+
+	double[][] chunks = new double[4][];
+	int size;
+
+	double get(int i) {
+		return chunks[i >> CHUNK_SHIFT][i & MASK];
+	}
+
+	void set(int i, double v) {
+		chunks[i >> CHUNK_SHIFT][i & MASK] = v;
+	}
+
+	void append(double v) {
+		int c = size >> CHUNK_SHIFT;
+		if (c == chunks.length)
+			chunks = Arrays.copyOf(chunks, 2*c);
+		if (chunks[c] == null)
+			chunks[c] = new double[CHUNK];
+		chunks[c][size & MASK] = v;
+		size++;
+	}
+
+	/** Copies values [from, from+n) into dst, starting at dst[off]. */
+	void copyTo(int from, double[] dst, int off, int n) {
+		while (n > 0) {
+			int c = from >> CHUNK_SHIFT, i = from & MASK;
+			int len = Math.min(n, CHUNK - i);
+			System.arraycopy(chunks[c], i, dst, off, len);
+			from += len;
+			off += len;
+			n -= len;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package scikit.dataset;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A histogram that many threads may accumulate into at once. Each thread writes to
+ * its own shard, a private {@link Histogram}, so writers never wait for each other.
+ * Readers merge the shards into a fresh Histogram; see {@link #snapshot()}.
+ * <p>
+ * A shard is locked while it is written or merged, which is uncontended except
+ * when a reader is merging that same shard. A snapshot therefore contains whole
+ * samples only, and every sample accumulated before the snapshot began.
+ * Note that eval, evalError and evalCount each take a new snapshot. To read many
+ * values, call snapshot() once and query the result.
+ */
+public class ConcurrentHistogram extends DataSet {
+	private final double _binWidth;
+	private volatile boolean _normalizing = false;
+	private volatile boolean _errorBars = false;
+	private final List<Histogram> _shards = new CopyOnWriteArrayList<Histogram>();
+	private final ThreadLocal<Histogram> _shard = new ThreadLocal<Histogram>() {
+		protected Histogram initialValue() {
+			Histogram h = new Histogram(_binWidth);
+			_shards.add(h);
+			return h;
+		}
+	};
+	
+	public ConcurrentHistogram(double binWidth) {
+		_binWidth = binWidth;
+	}
+	
+	public void setNormalizing(boolean norm) {
+		_normalizing = norm;
+	}
+	
+	public void enableErrorBars(boolean errorBars) {
+		_errorBars = errorBars;
+	}
+	
+	public void accum(double x, double y) {
+		Histogram h = _shard.get();
+		synchronized (h) {
+			h.accum(x, y);
+		}
+	}
+	
+	public void accum(double x) {
+		accum(x, 1.0);
+	}
+	
+	/** Accumulates a batch into the calling thread's shard, taking its lock once. */
+	public void accumAll(double[] xs, double[] ys) {
+		Histogram h = _shard.get();
+		synchronized (h) {
+			h.accumAll(xs, ys);
+		}
+	}
+	
+	public void accumAll(double[] xs) {
+		Histogram h = _shard.get();
+		synchronized (h) {
+			h.accumAll(xs);
+		}
+	}
+	
+	/** Returns a Histogram holding everything accumulated so far, by all threads. */
+	public Histogram snapshot() {
+		Histogram ret = new Histogram(_binWidth);
+		ret.setNormalizing(_normalizing);
+		if (_errorBars)
+			ret.enableErrorBars(true);
+		for (Histogram h : _shards) {
+			synchronized (h) {
+				ret.accum(h);
+			}
+		}
+		return ret;
+	}
+	
+	public void clear() {
+		for (Histogram h : _shards) {
+			synchronized (h) {
+				h.clear();
+			}
+		}
+	}
+	
+	public DatasetBuffer copyData() {
+		return snapshot().copyData();
+	}
+	
+	public double eval(double x) {
+		return snapshot().eval(x);
+	}
+	
+	public double evalError(double x) {
+		return snapshot().evalError(x);
+	}
+	
+	public double evalCount(double x) {
+		return snapshot().evalCount(x);
+	}
+}
@@ -1,30 +1,35 @@
 package scikit.dataset;
 
 import scikit.util.Bounds;
-import scikit.util.DoubleArray;
 
 
 abstract public class DataSet {
-	/** Returns data width: xmin, xmax, ymin, ymax */
+	/**
+	 * Returns data width: xmin, xmax, ymin, ymax. The default copies the data; since
+	 * plots ask for the bounds of every data set on every frame, data sets that grow
+	 * should override this to keep their bounds up to date as they change.
+	 */
 	public Bounds getBounds() {
-		DatasetBuffer data = copyData();
-		if (data.size() == 0)
-			return new Bounds();
-		else {
-			return new Bounds(
-					DoubleArray.min(data._x),
-					DoubleArray.max(data._x),
-					DoubleArray.min(data._y),
-					DoubleArray.max(data._y)
-			);
-		}
+		return copyData().getBounds();
 	}
 	
 	/** Returns a copy of this dataset in the format [x1, y1, x2, y2, ...] */
 	abstract public DatasetBuffer copyData();
 	
-	/** Returns a copy of the subset of this data within range */
-	public DatasetBuffer copyPartial(int N, Bounds bds) {
+	/**
+	 * Returns read access to the points of this dataset. The default is a copy; data
+	 * sets that can share their storage safely return a view of it instead.
+	 */
+	public DataView view() {
 		return copyData();
 	}
+	
+	/**
+	 * Returns a copy of the subset of this data within the x range of bds, reduced to
+	 * about N points if it is sorted by x. Subclasses holding many points should
+	 * override this to avoid copying all of them first.
+	 */
+	public DatasetBuffer copyPartial(int N, Bounds bds) {
+		return copyData().copyPartial(N, bds);
+	}
 }
@@ -0,0 +1,12 @@
+package scikit.dataset;
+
+/**
+ * Read-only random access to the points of a data set, without copying them.
+ */
+public interface DataView {
+	public int size();
+	public double x(int i);
+	public double y(int i);
+	public boolean hasErrorY();
+	public double errorY(int i);
+}
@@ -2,10 +2,14 @@ package scikit.dataset;
 
 import java.util.ArrayList;
 
+import scikit.util.Bounds;
 import scikit.util.DoubleArray;
 
-public class DatasetBuffer extends DataSet {
+public class DatasetBuffer extends DataSet implements DataView {
 	protected double[] _x, _y, _errY;
+	// whether _x is non-decreasing, found on the first copyPartial; the columns of a
+	// buffer do not change once it has been filled
+	private Boolean _sorted;
 	protected DatasetBuffer() {}
 	
 	public double x(int i) { return _x[i]; }
@@ -34,4 +38,25 @@ public class DatasetBuffer extends DataSet {
 		ret._errY = DoubleArray.clone(_errY);
 		return ret;
 	}
+	
+	public Bounds getBounds() {
+		Bounds ret = new Bounds();
+		for (int i = 0; i < _x.length; i++)
+			include(ret, _x[i], _y[i]);
+		return ret;
+	}
+	
+	// extends bds to cover (x, y), ignoring NaN
+	static void include(Bounds bds, double x, double y) {
+		if (x < bds.xmin) bds.xmin = x;
+		if (x > bds.xmax) bds.xmax = x;
+		if (y < bds.ymin) bds.ymin = y;
+		if (y > bds.ymax) bds.ymax = y;
+	}
+	
+	public DatasetBuffer copyPartial(int N, Bounds bds) {
+		if (_sorted == null)
+			_sorted = Decimation.isSorted(this);
+		return Decimation.copyPartial(this, _sorted, null, N, bds);
+	}
 }
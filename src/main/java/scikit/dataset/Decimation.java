@@ -0,0 +1,159 @@
+package scikit.dataset;
+
+import java.util.Arrays;
+
+import scikit.util.Bounds;
+
+/**
+ * Level of detail reduction for drawing large data sets. Given points sorted by x,
+ * {@link #copyPartial} returns those within the requested x range, and if there are
+ * more than N of them, divides the range into about N/2 buckets of consecutive points
+ * and keeps only the minimum and maximum of each. A line through the result looks the
+ * same as one through every point, down to the resolution of the buckets, and no
+ * spike is lost. Buckets are formed by index rather than by x, so the result does not
+ * depend on whether the plot axis is logarithmic.
+ * <p>
+ * Data that is not sorted by x, such as a parametric curve, is copied unchanged,
+ * since dropping points from it would change the picture.
+ */
+class Decimation {
+	/**
+	 * Returns the points of s needed to draw the x range of bds with about N points,
+	 * including the first point on either side of the range so that lines reach the
+	 * edges. If pyramid is non-null, it must describe s and is used to avoid visiting
+	 * every point in the range.
+	 */
+	static DatasetBuffer copyPartial(DataView s, boolean sorted, MinMaxPyramid pyramid, int N, Bounds bds) {
+		int n = s.size();
+		if (!sorted || N < 4)
+			return range(s, 0, n);
+		// the points within the range are [lo, hi)
+		int lo = lowerBound(s, bds.xmin);
+		int hi = upperBound(s, bds.xmax);
+		if (hi - lo + 2 <= N)
+			return range(s, max(0, lo-1), min(n, hi+1));
+
+		Indices out = new Indices(N + 8);
+		if (lo > 0)
+			out.add(lo-1);
+		if (pyramid == null || !pyramid.select(lo, hi, N, out))
+			buckets(s, lo, hi, N/2, out);
+		if (hi < n)
+			out.add(hi);
+		return pick(s, out);
+	}
+
+	/** Returns true if the x values of s are non-decreasing. */
+	static boolean isSorted(DataView s) {
+		for (int i = 1; i < s.size(); i++)
+			if (!(s.x(i-1) <= s.x(i)))
+				return false;
+		return true;
+	}
+
+	// the first index with x >= v
+	static int lowerBound(DataView s, double v) {
+		int lo = 0, hi = s.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (s.x(mid) < v) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	// the first index with x > v
+	static int upperBound(DataView s, double v) {
+		int lo = 0, hi = s.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (s.x(mid) <= v) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	// adds the minimum and maximum of each of nb buckets of [lo, hi), in index order
+	static void buckets(DataView s, int lo, int hi, int nb, Indices out) {
+		for (int b = 0; b < nb; b++) {
+			int start = lo + (int)((long)(hi-lo)*b/nb);
+			int end = lo + (int)((long)(hi-lo)*(b+1)/nb);
+			minMax(s, start, end, out);
+		}
+	}
+
+	// adds the indices of the minimum and maximum y in [start, end), in index order,
+	// ignoring NaN unless every y is NaN
+	static void minMax(DataView s, int start, int end, Indices out) {
+		if (start >= end)
+			return;
+		int imin = start, imax = start;
+		double ymin = s.y(start), ymax = ymin;
+		for (int i = start+1; i < end; i++) {
+			double y = s.y(i);
+			if (y < ymin || Double.isNaN(ymin)) { ymin = y; imin = i; }
+			if (y > ymax || Double.isNaN(ymax)) { ymax = y; imax = i; }
+		}
+		out.add(min(imin, imax));
+		out.add(max(imin, imax));
+	}
+
+	static DatasetBuffer range(DataView s, int lo, int hi) {
+		DatasetBuffer ret = new DatasetBuffer();
+		int n = hi - lo;
+		ret._x = new double[n];
+		ret._y = new double[n];
+		if (s.hasErrorY())
+			ret._errY = new double[n];
+		for (int i = 0; i < n; i++) {
+			ret._x[i] = s.x(lo+i);
+			ret._y[i] = s.y(lo+i);
+			if (ret._errY != null)
+				ret._errY[i] = s.errorY(lo+i);
+		}
+		return ret;
+	}
+
+	static DatasetBuffer pick(DataView s, Indices idx) {
+		DatasetBuffer ret = new DatasetBuffer();
+		int n = idx.size;
+		ret._x = new double[n];
+		ret._y = new double[n];
+		if (s.hasErrorY())
+			ret._errY = new double[n];
+		for (int j = 0; j < n; j++) {
+			int i = idx.data[j];
+			ret._x[j] = s.x(i);
+			ret._y[j] = s.y(i);
+			if (ret._errY != null)
+				ret._errY[j] = s.errorY(i);
+		}
+		return ret;
+	}
+
+	/** A growable list of increasing indices, ignoring repeats of the last one. */
+	static class Indices {
+		int[] data;
+		int size;
+
+		Indices(int capacity) {
+			data = new int[capacity];
+		}
+
+		void add(int i) {
+			if (size > 0 && data[size-1] == i)
+				return;
+			if (size == data.length)
+				data = Arrays.copyOf(data, 2*size);
+			data[size++] = i;
+		}
+	}
+
+	private static int min(int a, int b) {
+		return a < b ? a : b;
+	}
+
+	private static int max(int a, int b) {
+		return a > b ? a : b;
+	}
+}
@@ -1,102 +1,319 @@
 package scikit.dataset;
 
+import scikit.util.Bounds;
 
+/**
+ * A growable series of points (x, y), optionally with y error bars, such as the trace
+ * of a running simulation. Each quantity is held in its own {@link Column} of fixed
+ * size chunks, so appending never copies the points already stored, and
+ * {@link #view()} gives read access to them without copying.
+ */
 public class DynamicArray extends DataSet {
-	private int _length;
-	private double[] _data;
-	
+	private Column _x, _y, _errY;
+	// the first half of a point appended with the deprecated append(double)
+	private double _pending;
+	private boolean _hasPending;
+	// for copyPartial, the live points with their block extrema, and how many of
+	// them are known to be sorted by x
+	private final DataView _points = new DataView() {
+		public int size() { return _x.size; }
+		public double x(int i) { return _x.get(i); }
+		public double y(int i) { return _y.get(i); }
+		public boolean hasErrorY() { return _errY != null; }
+		public double errorY(int i) { return _errY.get(i); }
+	};
+	private final MinMaxPyramid _pyramid = new MinMaxPyramid(_points);
+	private int _sortedLength;
+	private boolean _sorted = true;
+	// the bounds of the first _boundsLength points
+	private Bounds _bounds = new Bounds();
+	private int _boundsLength;
+
 	public DynamicArray() {
-		_data = new double[64];
-		_length = 0;
+		clear();
 	}
-	
+
 	/**
-	* Returns the number of elements in the dynamic array
+	* Returns the number of values in the dynamic array, written as x1, y1, x2, y2, ...,
+	* which is twice the number of points, plus one if a point is half appended
 	*/
 	public int size() {
-		return _length;
+		return 2*_x.size + (_hasPending ? 1 : 0);
+	}
+
+	/**
+	* Returns the number of points in the dynamic array
+	*/
+	public int pointCount() {
+		return _x.size;
 	}
-	
+
 	/**
-	* Appends a value to the end of the dynamic array
+	* Appends a point to the end of the dynamic array. If a value is pending from the
+	* deprecated append(double), x and y are appended after it as two more values,
+	* as the flat array x1, y1, x2, y2, ... would have them.
+	*/
+	public void append(double x, double y) {
+		if (_hasPending) {
+			appendPoint(_pending, x);
+			_pending = y;
+		}
+		else
+			appendPoint(x, y);
+	}
+
+	private void appendPoint(double x, double y) {
+		_x.append(x);
+		_y.append(y);
+		if (_errY != null)
+			_errY.append(0);
+	}
+
+	/**
+	* Appends a point with error bar errY to the end of the dynamic array. Points
+	* appended without an error bar have error zero.
 	*
-	* @param x
+	* @throws IllegalStateException if a value is pending from the deprecated
+	* append(double), since the point would not line up with its error bar
 	*/
-	public void append(double x) {
-		if (_length >= _data.length)
-			increaseCapacity();
-		_data[_length++] = x;
+	public void append(double x, double y, double errY) {
+		if (_hasPending)
+			throw new IllegalStateException("A value appended with append(double) is pending.");
+		if (_errY == null) {
+			_errY = new Column();
+			for (int i = 0; i < _x.size; i++)
+				_errY.append(0);
+		}
+		_x.append(x);
+		_y.append(y);
+		_errY.append(errY);
 	}
-	
+
 	/**
-	* Appends two values to the end of the dynamic array
+	* Appends the point (x1, x2)
 	*
 	* @param x1
 	* @param x2
 	*/
 	public void append2(double x1, double x2) {
-		append(x1);
-		append(x2);
+		append(x1, x2);
 	}
-	
+
+	public double x(int i) {
+		checkIndex(i);
+		return _x.get(i);
+	}
+
+	public double y(int i) {
+		checkIndex(i);
+		return _y.get(i);
+	}
+
+	public boolean hasErrorY() {
+		return _errY != null;
+	}
+
+	public double errorY(int i) {
+		checkIndex(i);
+		return _errY.get(i);
+	}
+
+	public void setX(int i, double v) {
+		checkIndex(i);
+		if (i < _boundsLength) {
+			// the bounds stay valid unless the old value may have been an extreme
+			double old = _x.get(i);
+			if (old > _bounds.xmin && old < _bounds.xmax) {
+				// comparisons ignore NaN, as in getBounds
+				if (v < _bounds.xmin) _bounds.xmin = v;
+				if (v > _bounds.xmax) _bounds.xmax = v;
+			}
+			else
+				resetBounds();
+		}
+		_x.set(i, v);
+		_sortedLength = 0;
+		_sorted = true;
+	}
+
+	public void setY(int i, double v) {
+		checkIndex(i);
+		if (i < _boundsLength) {
+			double old = _y.get(i);
+			if (old > _bounds.ymin && old < _bounds.ymax) {
+				if (v < _bounds.ymin) _bounds.ymin = v;
+				if (v > _bounds.ymax) _bounds.ymax = v;
+			}
+			else
+				resetBounds();
+		}
+		_y.set(i, v);
+		_pyramid.reset();
+	}
+
+	/**
+	 * Removes all points from the array. Views taken earlier are unaffected.
+	 */
+	public void clear() {
+		_x = new Column();
+		_y = new Column();
+		_errY = null;
+		_hasPending = false;
+		invalidate();
+		resetBounds();
+	}
+
 	/**
-	* Gets an indexed value
+	* Returns a read-only view of the points currently in the array, without copying
+	* them. Points appended later are not part of the view, but changes made through
+	* setX and setY are seen by it.
+	*/
+	public DataView view() {
+		final int n = _x.size;
+		final double[][] xs = _x.chunks, ys = _y.chunks;
+		final double[][] es = (_errY == null) ? null : _errY.chunks;
+		return new DataView() {
+			public int size() { return n; }
+			public double x(int i) { check(i); return xs[i >> Column.CHUNK_SHIFT][i & Column.MASK]; }
+			public double y(int i) { check(i); return ys[i >> Column.CHUNK_SHIFT][i & Column.MASK]; }
+			public boolean hasErrorY() { return es != null; }
+			public double errorY(int i) { check(i); return es[i >> Column.CHUNK_SHIFT][i & Column.MASK]; }
+			private void check(int i) {
+				if (i < 0 || i >= n)
+					throw new ArrayIndexOutOfBoundsException(i);
+			}
+		};
+	}
+
+	/**
+	* Returns a copy of the points
+	*/
+	public DatasetBuffer copyData() {
+		int n = _x.size;
+		DatasetBuffer ret = new DatasetBuffer();
+		ret._x = new double[n];
+		ret._y = new double[n];
+		_x.copyTo(0, ret._x, 0, n);
+		_y.copyTo(0, ret._y, 0, n);
+		if (_errY != null) {
+			ret._errY = new double[n];
+			_errY.copyTo(0, ret._errY, 0, n);
+		}
+		return ret;
+	}
+
+	/**
+	* Returns the bounds of the points. Only the points appended since the last call
+	* are examined, unless a value that may have been an extreme was overwritten.
+	*/
+	public Bounds getBounds() {
+		int n = _x.size;
+		for (; _boundsLength < n; _boundsLength++)
+			DatasetBuffer.include(_bounds, _x.get(_boundsLength), _y.get(_boundsLength));
+		return _bounds.clone();
+	}
+
+	/**
+	* Returns the points needed to draw the x range of bds with about N points.
+	* When the points are sorted by x, as for a time series, only the points appended
+	* since the last call are examined, besides O(N) block extrema.
+	*/
+	public DatasetBuffer copyPartial(int N, Bounds bds) {
+		int n = _x.size;
+		for (; _sortedLength < n; _sortedLength++)
+			if (_sortedLength > 0 && !(_x.get(_sortedLength-1) <= _x.get(_sortedLength)))
+				_sorted = false;
+		return Decimation.copyPartial(_points, _sorted, _pyramid, N, bds);
+	}
+
+
+	/**
+	* Appends a value; every two values appended form a point (x, y).
+	*
+	* @param x
+	* @deprecated Use append(x, y)
+	*/
+	@Deprecated
+	public void append(double x) {
+		if (_hasPending) {
+			_hasPending = false;
+			appendPoint(_pending, x);
+		}
+		else {
+			_pending = x;
+			_hasPending = true;
+		}
+	}
+
+	/**
+	* Gets value i, 0 <= i < size(), of the points written as x1, y1, x2, y2, ...
 	*
 	* @param i
 	* @return array[i]
-	*/   
+	* @deprecated Use x(i) or y(i), which are indexed by point
+	*/
+	@Deprecated
 	public double get(int i) {
-		if (i >= _length)
-			throw new ArrayIndexOutOfBoundsException();
-		return _data[i];
+		checkValueIndex(i);
+		if (_hasPending && i == 2*_x.size)
+			return _pending;
+		return (i % 2 == 0) ? x(i/2) : y(i/2);
 	}
-	
+
 	/**
-	* Sets value v to index i.  Grows the array by one if i=length()
+	* Sets value i, 0 <= i < size(), of the points written as x1, y1, x2, y2, ...
 	*
 	* @param i
 	* @param v
-	*/   
+	* @deprecated Use setX(i, v) or setY(i, v), which are indexed by point
+	*/
+	@Deprecated
 	public void set(int i, double v) {
-		if (i >= _length)
-			throw new ArrayIndexOutOfBoundsException();
-		_data[i] = v;
+		checkValueIndex(i);
+		if (_hasPending && i == 2*_x.size)
+			_pending = v;
+		else if (i % 2 == 0)
+			setX(i/2, v);
+		else
+			setY(i/2, v);
 	}
-	
-	/**
-	 * Removes all elements from the array.
-	 */
-	public void clear() {
-		_length = 0;
-	}
-	
+
 	/**
-	* Returns a copy of the dynamic array as a static array
+	* Returns a copy of the points in the format x1, y1, x2, y2, ...
+	*
+	* @deprecated Use copyData() or view()
 	*/
+	@Deprecated
 	public double[] copyArray() {
-		double[] ret = new double[_length];
-		System.arraycopy(_data, 0, ret, 0, _length);
-		return ret;
-	}
-	
-	/**
-	* Returns a copy of the dynamic array as a static array
-	*/
-	// TODO replace with pointset
-	public DatasetBuffer copyData() {
-		DatasetBuffer ret = new DatasetBuffer();
-		ret._x = new double[_length/2];
-		ret._y = new double[_length/2];
-		for (int i = 0; i < _length/2; i++) {
-			ret._x[i] = _data[2*i+0];
-			ret._y[i] = _data[2*i+1];
+		int n = _x.size;
+		double[] ret = new double[2*n + (_hasPending ? 1 : 0)];
+		for (int i = 0; i < n; i++) {
+			ret[2*i+0] = _x.get(i);
+			ret[2*i+1] = _y.get(i);
 		}
+		if (_hasPending)
+			ret[2*n] = _pending;
 		return ret;
 	}
 
-	private void increaseCapacity() {
-		double[] temp = new double[2 * _length];
-		System.arraycopy(_data, 0, temp, 0, _length);
-		_data = temp;
+	private void checkIndex(int i) {
+		if (i < 0 || i >= _x.size)
+			throw new ArrayIndexOutOfBoundsException(i);
+	}
+
+	private void checkValueIndex(int i) {
+		if (i < 0 || i >= size())
+			throw new ArrayIndexOutOfBoundsException(i);
+	}
+
+	private void invalidate() {
+		_sortedLength = 0;
+		_sorted = true;
+		_pyramid.reset();
+	}
+
+	private void resetBounds() {
+		_bounds = new Bounds();
+		_boundsLength = 0;
 	}
-}
\ No newline at end of file
+}
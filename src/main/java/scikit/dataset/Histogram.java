@@ -1,6 +1,6 @@
 package scikit.dataset;
 
-
+import java.util.concurrent.ForkJoinPool;
 
 
 public class Histogram extends Accumulator {
@@ -44,4 +44,31 @@ public class Histogram extends Accumulator {
 	public void accum(double x) {
 		accum(x, 1.0);
 	}
+	
+	public void accumAll(double[] xs, double[] ys, ForkJoinPool pool) {
+		super.accumAll(xs, ys, pool);
+		for (double y : ys)
+			_fullSum += y;
+	}
+	
+	/** Accumulates a count of one at each xs[i]. */
+	public void accumAll(double[] xs) {
+		accumAll(xs, (ForkJoinPool)null);
+	}
+	
+	public void accumAll(double[] xs, ForkJoinPool pool) {
+		accumBatch(xs, null, pool);
+		_fullSum += xs.length;
+	}
+	
+	public void accum(Accumulator that) {
+		super.accum(that);
+		if (that instanceof Histogram)
+			_fullSum += ((Histogram)that)._fullSum;
+	}
+	
+	public void clear() {
+		super.clear();
+		_fullSum = 0;
+	}
 }
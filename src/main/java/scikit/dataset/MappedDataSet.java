@@ -0,0 +1,147 @@
+package scikit.dataset;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import scikit.util.Bounds;
+
+/**
+ * A series of points (x, y) read from a file written by {@link MappedDataSetWriter},
+ * for series too long to hold in memory. The points are memory mapped rather than
+ * read, and the bounds and a {@link MinMaxPyramid} stored at the end of the file are
+ * loaded on opening, so opening and drawing take time independent of the length of
+ * the series: {@link #copyPartial} reads only the block extrema it needs, plus the
+ * points of at most two partial blocks.
+ * <p>
+ * The file holds the points in chunks of 2^16, each chunk being its x values
+ * followed by its y values, then the summary, then the offset of the summary. The
+ * points are stored in the byte order of the machine that wrote them, recorded in
+ * the summary, so that neither writing nor reading needs to swap bytes on the usual
+ * machines, while files stay readable on any.
+ */
+public class MappedDataSet extends DataSet implements Closeable {
+	static final int MAGIC = 0x534b4453; // "SKDS"
+	static final int CHUNK_SHIFT = 16;
+	static final int CHUNK = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK - 1;
+	static final int CHUNK_BYTES = 16 * CHUNK;
+	// chunks per mapped segment, keeping each mapping under 2GB
+	static final int SEGMENT_SHIFT = 10;
+	// the base block size of the stored pyramid is 2^INDEX_SHIFT points
+	static final int INDEX_SHIFT = 12;
+
+	private final RandomAccessFile _file;
+	private final ByteBuffer[] _segments;
+	private final int _count;
+	private final boolean _sorted;
+	private final Bounds _bounds;
+	private final MinMaxPyramid _pyramid;
+
+	private final DataView _points = new DataView() {
+		public int size() {
+			return _count;
+		}
+		public double x(int i) {
+			return get(i, 0);
+		}
+		public double y(int i) {
+			return get(i, 8*CHUNK);
+		}
+		public boolean hasErrorY() {
+			return false;
+		}
+		public double errorY(int i) {
+			return 0;
+		}
+	};
+
+	public MappedDataSet(File file) throws IOException {
+		_file = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = _file.getChannel();
+			long size = channel.size();
+			if (size < 12)
+				throw new IOException("Not a data set file: "+file);
+			ByteBuffer trailer = ByteBuffer.allocate(12);
+			channel.read(trailer, size - 12);
+			long indexOffset = trailer.getLong(0);
+			if (trailer.getInt(8) != MAGIC || indexOffset < 0 || indexOffset > size - 12)
+				throw new IOException("Not a data set file: "+file);
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Channels.newInputStream(channel.position(indexOffset))));
+			if (in.readInt() != MAGIC)
+				throw new IOException("Corrupt data set file: "+file);
+			_count = in.readInt();
+			ByteOrder order = in.readBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+			_sorted = in.readBoolean();
+			_bounds = new Bounds(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+			if (_count < 0 || indexOffset != ((_count + (long)CHUNK_MASK) >> CHUNK_SHIFT) * CHUNK_BYTES)
+				throw new IOException("Corrupt data set file: "+file);
+			_pyramid = MinMaxPyramid.read(_points, in);
+
+			long segmentBytes = (long)CHUNK_BYTES << SEGMENT_SHIFT;
+			_segments = new ByteBuffer[(int)((indexOffset + segmentBytes - 1) / segmentBytes)];
+			for (int s = 0; s < _segments.length; s++) {
+				long start = s * segmentBytes;
+				_segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, indexOffset - start));
+				_segments[s].order(order);
+			}
+		} catch (IOException e) {
+			_file.close();
+			throw e;
+		}
+	}
+
+	public int size() {
+		return _count;
+	}
+
+	/** Returns the stored bounds, without reading the points. */
+	public Bounds getBounds() {
+		return _bounds.clone();
+	}
+
+	/** Returns read access to the mapped points, without copying them. */
+	public DataView view() {
+		return _points;
+	}
+
+	/** Reads every point into memory; see {@link #copyPartial} for drawing. */
+	public DatasetBuffer copyData() {
+		DatasetBuffer ret = new DatasetBuffer();
+		ret._x = new double[_count];
+		ret._y = new double[_count];
+		for (int i = 0; i < _count; i++) {
+			ret._x[i] = _points.x(i);
+			ret._y[i] = _points.y(i);
+		}
+		return ret;
+	}
+
+	public DatasetBuffer copyPartial(int N, Bounds bds) {
+		return Decimation.copyPartial(_points, _sorted, _pyramid, N, bds);
+	}
+
+	/** Closes the file. The data set must not be used afterwards. */
+	public void close() throws IOException {
+		_file.close();
+	}
+
+	// the value at byte offset column within the chunk of point i
+	private double get(int i, int column) {
+		if (i < 0 || i >= _count)
+			throw new ArrayIndexOutOfBoundsException(i);
+		int c = i >>> CHUNK_SHIFT;
+		ByteBuffer bb = _segments[c >>> SEGMENT_SHIFT];
+		return bb.getDouble((c & ((1 << SEGMENT_SHIFT) - 1)) * CHUNK_BYTES + column + 8*(i & CHUNK_MASK));
+	}
+}
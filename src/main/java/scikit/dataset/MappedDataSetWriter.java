@@ -0,0 +1,107 @@
+package scikit.dataset;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import scikit.util.Bounds;
+
+/**
+ * Writes a series of points (x, y) to a file that {@link MappedDataSet} can open
+ * without reading it into memory. Points are buffered one chunk at a time, so memory
+ * use is a few megabytes however long the series. Closing the writer appends the
+ * bounds and a {@link MinMaxPyramid} summarizing the series.
+ */
+public class MappedDataSetWriter implements Closeable {
+	private final RandomAccessFile _file;
+	private final FileChannel _channel;
+	private final ByteBuffer _chunk = ByteBuffer.allocateDirect(MappedDataSet.CHUNK_BYTES).order(ByteOrder.nativeOrder());
+	private int _count;
+	private boolean _closed;
+	private double _lastX, _lastY;
+	private boolean _sorted = true;
+	private final Bounds _bounds = new Bounds();
+	// sees only the point most recently appended, which is all update() reads
+	private final MinMaxPyramid _pyramid = new MinMaxPyramid(new DataView() {
+		public int size() { return _count; }
+		public double x(int i) { return _lastX; }
+		public double y(int i) { return _lastY; }
+		public boolean hasErrorY() { return false; }
+		public double errorY(int i) { return 0; }
+	}, MappedDataSet.INDEX_SHIFT);
+
+	/** Creates the file, replacing any existing file of that name. */
+	public MappedDataSetWriter(File file) throws IOException {
+		_file = new RandomAccessFile(file, "rw");
+		_file.setLength(0);
+		_channel = _file.getChannel();
+	}
+
+	public int size() {
+		return _count;
+	}
+
+	public void append(double x, double y) throws IOException {
+		if (_closed)
+			throw new IllegalStateException("Writer is closed");
+		if (_count == Integer.MAX_VALUE)
+			throw new IllegalStateException("File is full");
+		int j = _count & MappedDataSet.CHUNK_MASK;
+		_chunk.putDouble(8*j, x);
+		_chunk.putDouble(8*(MappedDataSet.CHUNK + j), y);
+		if (_count > 0 && !(_lastX <= x))
+			_sorted = false;
+		_lastX = x;
+		_lastY = y;
+		_count++;
+		_pyramid.update();
+		DatasetBuffer.include(_bounds, x, y);
+		if ((_count & MappedDataSet.CHUNK_MASK) == 0)
+			writeChunk();
+	}
+
+	/**
+	 * Writes the last partial chunk and the summary, and closes the file. Closing a
+	 * closed writer does nothing.
+	 */
+	public void close() throws IOException {
+		if (_closed)
+			return;
+		_closed = true;
+		try {
+			if ((_count & MappedDataSet.CHUNK_MASK) != 0)
+				writeChunk();
+			long indexOffset = _channel.position();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(_channel)));
+			out.writeInt(MappedDataSet.MAGIC);
+			out.writeInt(_count);
+			out.writeBoolean(_chunk.order() == ByteOrder.BIG_ENDIAN);
+			out.writeBoolean(_sorted);
+			out.writeDouble(_bounds.xmin);
+			out.writeDouble(_bounds.xmax);
+			out.writeDouble(_bounds.ymin);
+			out.writeDouble(_bounds.ymax);
+			_pyramid.write(out);
+			out.writeLong(indexOffset);
+			out.writeInt(MappedDataSet.MAGIC);
+			out.close();
+		} finally {
+			_file.close();
+		}
+	}
+
+	// writes the chunk buffer whole, so that every chunk in the file has full size
+	private void writeChunk() throws IOException {
+		_chunk.clear();
+		while (_chunk.hasRemaining())
+			_channel.write(_chunk);
+		_chunk.clear();
+	}
+}
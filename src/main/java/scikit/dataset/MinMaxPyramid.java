@@ -0,0 +1,246 @@
+package scikit.dataset;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The minimum and maximum y over aligned blocks of a growing series, at several
+ * resolutions: level l divides the series into blocks of 2^baseShift * 4^l points.
+ * New points are folded in by {@link #update()}, in time O(log N) each, reading only
+ * the new points, so a series that is only appended to never needs to be rescanned.
+ * With it {@link Decimation} reduces any range of the series to between N/4 and N
+ * points by reading the extrema of O(N) whole blocks; the partial blocks at either
+ * end of the range are covered by blocks of finer levels, so at most two partial
+ * base blocks are scanned point by point.
+ * <p>
+ * A pyramid can be saved with {@link #write} and loaded with {@link #read}, so that a
+ * series stored on disk can be drawn without reading all of it.
+ */
+class MinMaxPyramid {
+	static final int BASE_SHIFT = 6, LEVEL_SHIFT = 2;
+
+	private final DataView s;
+	private final int baseShift;
+	// minIdx[l][b], maxIdx[l][b] are the indices of the extrema of block b of level l,
+	// and minVal[l][b], maxVal[l][b] their values
+	private int[][] minIdx = new int[0][], maxIdx = new int[0][];
+	private double[][] minVal = new double[0][], maxVal = new double[0][];
+	// the number of blocks started at each level
+	private int[] blocks = new int[0];
+	private int levels;
+	// the number of points of s folded in so far
+	private int length;
+
+	MinMaxPyramid(DataView s) {
+		this(s, BASE_SHIFT);
+	}
+
+	MinMaxPyramid(DataView s, int baseShift) {
+		this.s = s;
+		this.baseShift = baseShift;
+	}
+
+	/** Discards all points, for when existing points of the series change. */
+	void reset() {
+		levels = 0;
+		length = 0;
+	}
+
+	/** Folds in the points appended to the series since the last call. */
+	void update() {
+		int n = s.size();
+		if (n < length)
+			reset();
+		for (; length < n; length++) {
+			while (levels == 0 || (length >= (1L << shift(levels)) && shift(levels) < 31))
+				addLevel();
+			double y = s.y(length);
+			for (int l = 0; l < levels; l++)
+				fold(l, length >> shift(l), length, y, length, y);
+		}
+	}
+
+	/**
+	 * Adds to out the extrema needed to draw points [lo, hi) with about N points, in
+	 * index order. Returns false, adding nothing, if the range is too short for the
+	 * blocks to help.
+	 */
+	boolean select(int lo, int hi, int N, Decimation.Indices out) {
+		update();
+		// the finest level with at most N/2 blocks in the range
+		int l = 0;
+		while (l < levels && (hi - lo) >> shift(l) > N/2)
+			l++;
+		if (l == levels || (l == 0 && (hi - lo) >> shift(0) < N/4))
+			return false;
+		int b0 = (int)((lo + (1L << shift(l)) - 1) >> shift(l));
+		int b1 = hi >> shift(l);
+		if (b0 > b1) {
+			// for small N the range can fall within one block; the level below has
+			// whole blocks in it, else l would have been chosen finer
+			l--;
+			b0 = (int)((lo + (1L << shift(l)) - 1) >> shift(l));
+			b1 = hi >> shift(l);
+		}
+		extrema(l-1, lo, b0 << shift(l), out);
+		for (int b = b0; b < b1; b++)
+			add(minIdx[l][b], maxIdx[l][b], out);
+		extrema(l-1, b1 << shift(l), hi, out);
+		return true;
+	}
+
+	/** Writes the pyramid, which must be up to date with the series. */
+	void write(DataOutput out) throws IOException {
+		update();
+		out.writeInt(baseShift);
+		out.writeInt(length);
+		out.writeInt(levels);
+		for (int l = 0; l < levels; l++) {
+			out.writeInt(blocks[l]);
+			for (int b = 0; b < blocks[l]; b++) {
+				out.writeInt(minIdx[l][b]);
+				out.writeInt(maxIdx[l][b]);
+				out.writeDouble(minVal[l][b]);
+				out.writeDouble(maxVal[l][b]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a pyramid written by {@link #write} for the series s, throwing an
+	 * IOException if it is malformed or covers a different number of points.
+	 */
+	static MinMaxPyramid read(DataView s, DataInput in) throws IOException {
+		int baseShift = in.readInt();
+		if (baseShift < 0 || baseShift > 30)
+			throw new IOException("Corrupt pyramid: base shift "+baseShift);
+		MinMaxPyramid ret = new MinMaxPyramid(s, baseShift);
+		ret.length = in.readInt();
+		int levels = in.readInt();
+		if (ret.length != s.size() || levels < 0 || levels > 32)
+			throw new IOException("Corrupt pyramid: "+ret.length+" points, "+levels+" levels");
+		ret.minIdx = new int[levels][];
+		ret.maxIdx = new int[levels][];
+		ret.minVal = new double[levels][];
+		ret.maxVal = new double[levels][];
+		ret.blocks = new int[levels];
+		for (int l = 0; l < levels; l++) {
+			int n = in.readInt();
+			if (n < 0 || n > (ret.length >> Math.min(ret.shift(l), 31)) + 1)
+				throw new IOException("Corrupt pyramid: "+n+" blocks at level "+l);
+			int cap = Math.max(n, 4);
+			ret.minIdx[l] = new int[cap];
+			ret.maxIdx[l] = new int[cap];
+			ret.minVal[l] = new double[cap];
+			ret.maxVal[l] = new double[cap];
+			for (int b = 0; b < n; b++) {
+				ret.minIdx[l][b] = in.readInt();
+				ret.maxIdx[l][b] = in.readInt();
+				ret.minVal[l][b] = in.readDouble();
+				ret.maxVal[l][b] = in.readDouble();
+				if (ret.minIdx[l][b] < 0 || ret.minIdx[l][b] >= ret.length
+						|| ret.maxIdx[l][b] < 0 || ret.maxIdx[l][b] >= ret.length)
+					throw new IOException("Corrupt pyramid: index out of range");
+			}
+			ret.blocks[l] = n;
+		}
+		ret.levels = levels;
+		return ret;
+	}
+
+	private int shift(int l) {
+		return baseShift + LEVEL_SHIFT*l;
+	}
+
+	// adds the indices of the minimum and maximum y in [lo, hi), in index order, using
+	// whole blocks of level l and finer
+	private void extrema(int l, int lo, int hi, Decimation.Indices out) {
+		if (lo >= hi)
+			return;
+		int[] ext = {-1, -1};
+		double[] val = new double[2];
+		extrema(l, lo, hi, ext, val);
+		add(ext[0], ext[1], out);
+	}
+
+	private void extrema(int l, int lo, int hi, int[] ext, double[] val) {
+		if (lo >= hi)
+			return;
+		if (l < 0) {
+			for (int i = lo; i < hi; i++) {
+				double y = s.y(i);
+				combine(i, y, i, y, ext, val);
+			}
+			return;
+		}
+		int b0 = (int)((lo + (1L << shift(l)) - 1) >> shift(l));
+		int b1 = hi >> shift(l);
+		if (b0 >= b1) {
+			extrema(l-1, lo, hi, ext, val);
+			return;
+		}
+		extrema(l-1, lo, b0 << shift(l), ext, val);
+		for (int b = b0; b < b1; b++)
+			combine(minIdx[l][b], minVal[l][b], maxIdx[l][b], maxVal[l][b], ext, val);
+		extrema(l-1, b1 << shift(l), hi, ext, val);
+	}
+
+	// merges extrema (imin, vmin), (imax, vmax) into ext and val; NaN is replaced by
+	// any number
+	private static void combine(int imin, double vmin, int imax, double vmax, int[] ext, double[] val) {
+		if (ext[0] < 0 || vmin < val[0] || Double.isNaN(val[0])) { ext[0] = imin; val[0] = vmin; }
+		if (ext[1] < 0 || vmax > val[1] || Double.isNaN(val[1])) { ext[1] = imax; val[1] = vmax; }
+	}
+
+	private static void add(int i, int j, Decimation.Indices out) {
+		out.add(Math.min(i, j));
+		out.add(Math.max(i, j));
+	}
+
+	// includes extrema (imin, vmin), (imax, vmax) in block b of level l, starting the
+	// block if it is new. A block seeded with NaN takes the first number folded in, so
+	// that NaN is the extremum only of blocks without numbers.
+	private void fold(int l, int b, int imin, double vmin, int imax, double vmax) {
+		if (b == blocks[l]) {
+			if (b == minIdx[l].length) {
+				minIdx[l] = Arrays.copyOf(minIdx[l], 2*b);
+				maxIdx[l] = Arrays.copyOf(maxIdx[l], 2*b);
+				minVal[l] = Arrays.copyOf(minVal[l], 2*b);
+				maxVal[l] = Arrays.copyOf(maxVal[l], 2*b);
+			}
+			minIdx[l][b] = imin;
+			minVal[l][b] = vmin;
+			maxIdx[l][b] = imax;
+			maxVal[l][b] = vmax;
+			blocks[l]++;
+		}
+		else {
+			if (vmin < minVal[l][b] || Double.isNaN(minVal[l][b])) { minIdx[l][b] = imin; minVal[l][b] = vmin; }
+			if (vmax > maxVal[l][b] || Double.isNaN(maxVal[l][b])) { maxIdx[l][b] = imax; maxVal[l][b] = vmax; }
+		}
+	}
+
+	// adds a level of blocks covering the points folded in so far, built from the
+	// level below
+	private void addLevel() {
+		if (levels == minIdx.length) {
+			minIdx = Arrays.copyOf(minIdx, levels+4);
+			maxIdx = Arrays.copyOf(maxIdx, levels+4);
+			minVal = Arrays.copyOf(minVal, levels+4);
+			maxVal = Arrays.copyOf(maxVal, levels+4);
+			blocks = Arrays.copyOf(blocks, levels+4);
+		}
+		int l = levels++;
+		minIdx[l] = new int[4];
+		maxIdx[l] = new int[4];
+		minVal[l] = new double[4];
+		maxVal[l] = new double[4];
+		blocks[l] = 0;
+		if (l == 0)
+			return;
+		for (int c = 0; c < blocks[l-1]; c++)
+			fold(l, c >> LEVEL_SHIFT, minIdx[l-1][c], minVal[l-1][c], maxIdx[l-1][c], maxVal[l-1][c]);
+	}
+}
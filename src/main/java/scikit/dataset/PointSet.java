@@ -1,19 +1,30 @@
 package scikit.dataset;
 
+import scikit.util.Bounds;
 import scikit.util.DoubleArray;
 
 
 public class PointSet extends DataSet {
 	// TODO dynamicarray
 	private double[] _x, _y;
+	// whether _x is non-decreasing, found when the arrays are set
+	private boolean _sorted;
+	
+	private final DataView _view = new DataView() {
+		public int size() { return _x.length; }
+		public double x(int i) { return _x[i]; }
+		public double y(int i) { return _y[i]; }
+		public boolean hasErrorY() { return false; }
+		public double errorY(int i) { return 0; }
+	};
 	
 	
 	public PointSet(double x0, double dx, double[] y) {
-		_x = new double[y.length];
+		double[] x = new double[y.length];
 		for (int i = 0; i < y.length; i++) {
-			_x[i] = x0 + i*dx;
+			x[i] = x0 + i*dx;
 		}
-		_y = y;
+		setXY(x, y);
 	}
 	
 	
@@ -27,14 +38,21 @@ public class PointSet extends DataSet {
 	}
 	
 	public void setY(double[] y) {
-		setXY(_x, y);
+		if (_x.length != y.length)
+			throw new IllegalArgumentException("Array sizes are not equal.");
+		_y = y;
 	}
 	
+	/**
+	 * Sets the points, keeping references to the arrays. The y values may be changed in
+	 * place afterwards; if the x values are, call setX again.
+	 */
 	public void setXY(double[] x, double[] y) {
 		if (x.length != y.length)
 			throw new IllegalArgumentException("Array sizes are not equal.");
 		_x = x;
 		_y = y;
+		_sorted = Decimation.isSorted(_view);
 	}
 	
 	
@@ -44,4 +62,15 @@ public class PointSet extends DataSet {
 		ret._y = DoubleArray.clone(_y);
 		return ret;
 	}
+	
+	public Bounds getBounds() {
+		Bounds ret = new Bounds();
+		for (int i = 0; i < _x.length; i++)
+			DatasetBuffer.include(ret, _x[i], _y[i]);
+		return ret;
+	}
+	
+	public DatasetBuffer copyPartial(int N, Bounds bds) {
+		return Decimation.copyPartial(_view, _sorted, null, N, bds);
+	}
 }
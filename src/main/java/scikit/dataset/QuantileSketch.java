@@ -0,0 +1,155 @@
+package scikit.dataset;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.pow;
+
+import java.util.Arrays;
+
+/**
+ * A mergeable, bounded-memory sketch of a stream of values from which approximate
+ * quantiles can be read, after the KLL sketch of Karnin, Lang and Liberty. Values are
+ * held in levels; an item at level h stands for 2^h of the original values. When a
+ * level fills it is sorted and every other item is promoted to the next level, so the
+ * total size stays near 3k items however many values are added. The rank error of
+ * a quantile is roughly 2/k.
+ * <p>
+ * Whether the even or odd positions of a level are promoted is drawn from a
+ * pseudo-random sequence with a fixed seed, so results are reproducible. NaN values
+ * are ignored.
+ */
+public class QuantileSketch {
+	private final int k;
+	private double[][] items;
+	private int[] size;
+	private int levels;
+	private long count;
+	// xorshift state choosing which half of a level is promoted
+	private long seed = 0x9E3779B97F4A7C15L;
+
+	/** Creates a sketch whose largest level holds k items; k must be at least 2. */
+	public QuantileSketch(int k) {
+		if (k < 2)
+			throw new IllegalArgumentException("Sketch size must be >=2 : "+k);
+		this.k = k;
+		items = new double[][] {new double[k]};
+		size = new int[1];
+		levels = 1;
+	}
+
+	public QuantileSketch(QuantileSketch that) {
+		k = that.k;
+		levels = that.levels;
+		count = that.count;
+		seed = that.seed;
+		size = that.size.clone();
+		items = new double[that.items.length][];
+		for (int h = 0; h < levels; h++)
+			items[h] = that.items[h].clone();
+	}
+
+	public int k() {
+		return k;
+	}
+
+	/** The number of values added, including those added through merges. */
+	public long count() {
+		return count;
+	}
+
+	public void accum(double x) {
+		if (Double.isNaN(x))
+			return;
+		append(0, x);
+		count++;
+		if (size[0] >= capacity(0))
+			compress();
+	}
+
+	/** Adds the values summarized by that sketch, which must have the same k. */
+	public void accum(QuantileSketch that) {
+		if (that.k != k)
+			throw new IllegalArgumentException("Sketch sizes differ: "+k+" and "+that.k);
+		while (levels < that.levels)
+			addLevel();
+		for (int h = 0; h < that.levels; h++)
+			for (int i = 0; i < that.size[h]; i++)
+				append(h, that.items[h][i]);
+		count += that.count;
+		compress();
+	}
+
+	/**
+	 * Returns an estimate of the q quantile, 0 &lt;= q &lt;= 1, or NaN if the sketch is
+	 * empty.
+	 */
+	public double quantile(double q) {
+		double[][] sorted = new double[levels][];
+		long total = 0;
+		for (int h = 0; h < levels; h++) {
+			sorted[h] = Arrays.copyOf(items[h], size[h]);
+			Arrays.sort(sorted[h]);
+			total += (long)size[h] << h;
+		}
+		if (total == 0)
+			return Double.NaN;
+
+		// merge the sorted levels until the cumulative weight reaches q*total
+		double target = q * total;
+		int[] pos = new int[levels];
+		long cum = 0;
+		double last = Double.NaN;
+		while (true) {
+			int best = -1;
+			for (int h = 0; h < levels; h++)
+				if (pos[h] < sorted[h].length && (best < 0 || sorted[h][pos[h]] < sorted[best][pos[best]]))
+					best = h;
+			if (best < 0)
+				return last;
+			last = sorted[best][pos[best]++];
+			cum += 1L << best;
+			if (cum >= target)
+				return last;
+		}
+	}
+
+	// the number of items level h may hold before it is compacted
+	private int capacity(int h) {
+		return Math.max(2, (int)ceil(k * pow(2.0/3.0, levels-1-h)));
+	}
+
+	private void addLevel() {
+		if (levels == items.length) {
+			items = Arrays.copyOf(items, 2*levels);
+			size = Arrays.copyOf(size, 2*levels);
+		}
+		items[levels] = new double[2];
+		size[levels] = 0;
+		levels++;
+	}
+
+	private void append(int h, double x) {
+		if (size[h] == items[h].length)
+			items[h] = Arrays.copyOf(items[h], 2*items[h].length);
+		items[h][size[h]++] = x;
+	}
+
+	private void compress() {
+		for (int h = 0; h < levels; h++) {
+			if (size[h] < capacity(h))
+				continue;
+			if (h+1 == levels)
+				addLevel();
+			// compact an even number of items, keeping the largest back if odd
+			int n = size[h] & ~1;
+			Arrays.sort(items[h], 0, size[h]);
+			seed ^= seed << 13;
+			seed ^= seed >>> 7;
+			seed ^= seed << 17;
+			for (int i = (int)(seed & 1); i < n; i += 2)
+				append(h+1, items[h][i]);
+			if (n < size[h])
+				items[h][0] = items[h][n];
+			size[h] -= n;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package scikit.dataset;
+
+import scikit.util.Bounds;
+
+/**
+ * A time series of fixed memory: the latest capacity points (x, y) are kept
+ * exactly, and older points are either discarded or, if a history capacity is
+ * given, summarized in a coarser tier.
+ * <p>
+ * The history tier holds, for each block of consecutive old points, the points with
+ * the smallest and largest y, in the order they were appended, or the one point if
+ * they are the same, as they are while blocks hold a single point. When it fills,
+ * each group of four neighbouring entries is merged into its extremes, halving the
+ * number of entries and doubling the block size. The first entry, the oldest point
+ * ever appended, is kept through every merge, so the series keeps its start. Drawn
+ * as a line, the history therefore keeps the envelope of the whole series, including
+ * every spike, at a resolution that coarsens as the run goes on, while memory stays
+ * constant. Blocks are formed from points in the order of appending, so the series
+ * should be appended in order of increasing x.
+ */
+public class RingBuffer extends DataSet {
+	private final int _capacity;
+	// the latest points, oldest at _head
+	private final double[] _x, _y;
+	private int _head, _count;
+
+	// history entries, one or two per block of _block points, or null if there is none
+	private final double[] _hx, _hy;
+	private int _hcount;
+	private int _block;
+	// the block of old points currently being summarized; _psame if its minimum and
+	// maximum are the same point
+	private int _pcount;
+	private double _pminX, _pminY, _pmaxX, _pmaxY;
+	private boolean _pminFirst, _psame;
+
+	private boolean _sorted;
+	private double _lastX;
+	// the extremes of the latest points, and the bounds of the history entries
+	private final Extremes _xmin, _xmax, _ymin, _ymax;
+	private Bounds _hbounds;
+
+	/** Creates a buffer holding the latest capacity points, discarding older ones. */
+	public RingBuffer(int capacity) {
+		this(capacity, 0);
+	}
+
+	/**
+	 * Creates a buffer holding the latest capacity points exactly, and a summary of
+	 * all older points in at most historyCapacity further points, plus at most two for
+	 * the block being summarized. A historyCapacity of 0 discards older points;
+	 * otherwise it must be at least 4.
+	 */
+	public RingBuffer(int capacity, int historyCapacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be >=1 : "+capacity);
+		if (historyCapacity != 0 && historyCapacity < 4)
+			throw new IllegalArgumentException("History capacity must be 0 or >=4 : "+historyCapacity);
+		_capacity = capacity;
+		_x = new double[capacity];
+		_y = new double[capacity];
+		_hx = (historyCapacity == 0) ? null : new double[historyCapacity];
+		_hy = (historyCapacity == 0) ? null : new double[historyCapacity];
+		_xmin = new Extremes(capacity, false);
+		_xmax = new Extremes(capacity, true);
+		_ymin = new Extremes(capacity, false);
+		_ymax = new Extremes(capacity, true);
+		clear();
+	}
+
+	public void clear() {
+		_head = _count = 0;
+		_hcount = _pcount = 0;
+		_block = 1;
+		_sorted = true;
+		_xmin.clear();
+		_xmax.clear();
+		_ymin.clear();
+		_ymax.clear();
+		_hbounds = new Bounds();
+	}
+
+	/** The number of points held, counting the history. */
+	public int size() {
+		return _hcount + pendingSize() + _count;
+	}
+
+	public void append(double x, double y) {
+		if (_count == _capacity) {
+			_xmin.evict(_head);
+			_xmax.evict(_head);
+			_ymin.evict(_head);
+			_ymax.evict(_head);
+			evict(_x[_head], _y[_head]);
+			_head = (_head + 1) % _capacity;
+			_count--;
+		}
+		int i = (_head + _count) % _capacity;
+		_x[i] = x;
+		_y[i] = y;
+		_count++;
+		_xmin.push(i, _x);
+		_xmax.push(i, _x);
+		_ymin.push(i, _y);
+		_ymax.push(i, _y);
+
+		if (size() > 1 && !(_lastX <= x))
+			_sorted = false;
+		_lastX = x;
+	}
+
+	public DatasetBuffer copyData() {
+		int n = size();
+		DatasetBuffer ret = new DatasetBuffer();
+		ret._x = new double[n];
+		ret._y = new double[n];
+		for (int i = 0; i < n; i++) {
+			ret._x[i] = _points.x(i);
+			ret._y[i] = _points.y(i);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the bounds of the points held, in constant time. The extremes of the
+	 * latest points are tracked as they are appended and discarded, and the bounds of
+	 * the history are recomputed when it is compacted, so that as old points are
+	 * dropped the bounds follow the points that remain.
+	 */
+	public Bounds getBounds() {
+		Bounds ret = _hbounds.clone();
+		if (_pcount > 0) {
+			DatasetBuffer.include(ret, _pminX, _pminY);
+			DatasetBuffer.include(ret, _pmaxX, _pmaxY);
+		}
+		ret.xmin = Math.min(ret.xmin, _xmin.get(_x, ret.xmin));
+		ret.xmax = Math.max(ret.xmax, _xmax.get(_x, ret.xmax));
+		ret.ymin = Math.min(ret.ymin, _ymin.get(_y, ret.ymin));
+		ret.ymax = Math.max(ret.ymax, _ymax.get(_y, ret.ymax));
+		return ret;
+	}
+
+	public DatasetBuffer copyPartial(int N, Bounds bds) {
+		return Decimation.copyPartial(_points, _sorted, null, N, bds);
+	}
+
+	// the history, then the block in progress, then the latest points
+	private final DataView _points = new DataView() {
+		public int size() {
+			return RingBuffer.this.size();
+		}
+		public double x(int i) {
+			if (i < _hcount)
+				return _hx[i];
+			i -= _hcount;
+			if (i < pendingSize())
+				return (i == 0) == _pminFirst ? _pminX : _pmaxX;
+			i -= pendingSize();
+			return _x[(_head + i) % _capacity];
+		}
+		public double y(int i) {
+			if (i < _hcount)
+				return _hy[i];
+			i -= _hcount;
+			if (i < pendingSize())
+				return (i == 0) == _pminFirst ? _pminY : _pmaxY;
+			i -= pendingSize();
+			return _y[(_head + i) % _capacity];
+		}
+		public boolean hasErrorY() {
+			return false;
+		}
+		public double errorY(int i) {
+			return 0;
+		}
+	};
+
+	private int pendingSize() {
+		return (_pcount == 0) ? 0 : (_psame ? 1 : 2);
+	}
+
+	// passes the oldest point out of the exact tier
+	private void evict(double x, double y) {
+		if (_hx == null)
+			return;
+		if (_pcount == 0) {
+			_pminX = _pmaxX = x;
+			_pminY = _pmaxY = y;
+			_pminFirst = true;
+			_psame = true;
+		}
+		else if (y < _pminY) {
+			_pminX = x;
+			_pminY = y;
+			_pminFirst = false;
+			_psame = false;
+		}
+		else if (y > _pmaxY) {
+			_pmaxX = x;
+			_pmaxY = y;
+			_pminFirst = true;
+			_psame = false;
+		}
+		if (++_pcount < _block)
+			return;
+
+		if (_psame)
+			store(_pminX, _pminY);
+		else if (_pminFirst) {
+			store(_pminX, _pminY);
+			store(_pmaxX, _pmaxY);
+		}
+		else {
+			store(_pmaxX, _pmaxY);
+			store(_pminX, _pminY);
+		}
+		_pcount = 0;
+	}
+
+	// appends a history entry, compacting the history first if it is full
+	private void store(double x, double y) {
+		if (_hcount == _hx.length)
+			compact();
+		_hx[_hcount] = x;
+		_hy[_hcount++] = y;
+		DatasetBuffer.include(_hbounds, x, y);
+	}
+
+	// merges each group of four entries after the first, and a last group of three,
+	// into the extremes of the group
+	private void compact() {
+		int n = 1;
+		for (int e = 1; e < _hcount; e += 4) {
+			int end = Math.min(e+4, _hcount);
+			if (end - e < 3) {
+				// one or two entries left over
+				for (int i = e; i < end; i++) {
+					_hx[n] = _hx[i]; _hy[n++] = _hy[i];
+				}
+				break;
+			}
+			int imin = e, imax = e;
+			for (int i = e+1; i < end; i++) {
+				if (_hy[i] < _hy[imin]) imin = i;
+				if (_hy[i] > _hy[imax]) imax = i;
+			}
+			if (imin == imax) {
+				imin = e;
+				imax = end-1;
+			}
+			int lo = Math.min(imin, imax), hi = Math.max(imin, imax);
+			_hx[n] = _hx[lo]; _hy[n++] = _hy[lo];
+			_hx[n] = _hx[hi]; _hy[n++] = _hy[hi];
+		}
+		_hcount = n;
+		// entries now summarize about twice the points; blocks of single points become
+		// blocks of four, stored as two entries
+		_block = (_block == 1) ? 4 : 2*_block;
+		// the entries dropped may have held the bounds
+		_hbounds = new Bounds();
+		for (int i = 0; i < _hcount; i++)
+			DatasetBuffer.include(_hbounds, _hx[i], _hy[i]);
+	}
+
+	/**
+	 * The slots of the latest points holding, oldest first, each value that is the
+	 * minimum (or maximum) of itself and all later values, so that the first is the
+	 * extreme of all of them. Appending and discarding take amortized constant time.
+	 */
+	private static class Extremes {
+		private final int[] _slots;
+		private final boolean _max;
+		private int _first, _n;
+
+		Extremes(int capacity, boolean max) {
+			_slots = new int[capacity];
+			_max = max;
+		}
+
+		void clear() {
+			_first = _n = 0;
+		}
+
+		// adds the newest point, in slot, whose value is v[slot]; NaN is ignored
+		void push(int slot, double[] v) {
+			double a = v[slot];
+			if (Double.isNaN(a))
+				return;
+			while (_n > 0) {
+				double b = v[_slots[(_first + _n - 1) % _slots.length]];
+				if (_max ? b > a : b < a)
+					break;
+				_n--;
+			}
+			_slots[(_first + _n++) % _slots.length] = slot;
+		}
+
+		// removes the oldest point, in slot, before the slot is reused
+		void evict(int slot) {
+			if (_n > 0 && _slots[_first] == slot) {
+				_first = (_first + 1) % _slots.length;
+				_n--;
+			}
+		}
+
+		// the extreme of the values v, or empty if there are none
+		double get(double[] v, double empty) {
+			return (_n == 0) ? empty : v[_slots[_first]];
+		}
+	}
+}
@@ -1,9 +1,8 @@
 package scikit.graphics;
 
 import java.awt.Color;
-import static java.lang.Math.*;
 
-public class ColorGradient implements ColorChooser {
+public class ColorGradient implements PackedColorChooser {
 	private static double _colors[][] = {
 			{1-1.0,     0, 0, 0},
 			{1-0.98,    10, 0, 50},
@@ -17,6 +16,7 @@ public class ColorGradient implements ColorChooser {
 	};
 	private static int WHEEL_SIZE = 512;
 	private static Color wheel[] = new Color[WHEEL_SIZE];
+	private static int argbWheel[] = new int[WHEEL_SIZE];
 	static {
         for (int i = 0; i < WHEEL_SIZE; i++) {
             double a = (double)i / WHEEL_SIZE;
@@ -29,12 +29,24 @@ public class ColorGradient implements ColorChooser {
             int g = (int) (_colors[j][2]*(1-v) + _colors[j+1][2]*v);
             int b = (int) (_colors[j][3]*(1-v) + _colors[j+1][3]*v);
             wheel[i] = new Color(r, g, b);
+            argbWheel[i] = wheel[i].getRGB();
         }
     }
 	
 	public Color getColor(double v, double lo, double hi) {
-		v = (v - lo) / (hi - lo);
-		int c = (int) (WHEEL_SIZE*v);
-		return wheel[min(max(c, 0), WHEEL_SIZE-1)];
+		return wheel[ColorTable.index(WHEEL_SIZE, v, lo, hi)];
+	}
+	
+	public int getARGB(double v, double lo, double hi) {
+		return argbWheel[ColorTable.index(WHEEL_SIZE, v, lo, hi)];
+	}
+	
+	public void getARGB(double[] data, int from, int to, double lo, double hi, int[] argb, int off) {
+		ColorTable.lookup(argbWheel, data, from, to, lo, hi, argb, off);
+	}
+	
+	/** Returns a copy of the packed colors for WHEEL_SIZE equal steps from low to high. */
+	public int[] getLookupTable() {
+		return argbWheel.clone();
 	}
 }
@@ -1,21 +1,90 @@
 package scikit.graphics;
 
 import java.awt.Color;
+import java.util.Arrays;
 import java.util.HashMap;
 
-public class ColorPalette implements ColorChooser {
-	HashMap<Integer,Color> colors = new HashMap<Integer,Color>();
-	
+/**
+ * Colors for integer values, such as the states of a lattice model. Values with no
+ * color set are drawn black. Colors are kept in arrays indexed by value, spanning
+ * the smallest to the largest value set; should the values set span more than 2^20,
+ * they are kept in a hash map instead, which is slower to look up.
+ */
+public class ColorPalette implements PackedColorChooser {
+	private static final int BLACK = Color.BLACK.getRGB();
+	private static final int MAX_SPAN = 1 << 20;
+	// colors[i] and argb[i] belong to the value offset+i
+	private int offset;
+	private Color[] colors = new Color[0];
+	private int[] argb = new int[0];
+	// all colors, once the values span too much for the arrays; otherwise null
+	private HashMap<Integer,Color> sparse = null;
+
 	/**
 	 * Sets the integer value to be associated with the color
 	 * @param value
 	 * @param color
 	 */
 	public void setColor(int value, Color color) {
-		colors.put(value, color);
+		if (sparse != null) {
+			sparse.put(value, color);
+			return;
+		}
+		if (colors.length == 0)
+			offset = value;
+		int lo = Math.min(offset, value);
+		int hi = Math.max(offset + colors.length - 1, value);
+		if ((long)hi - lo + 1 > MAX_SPAN) {
+			sparse = new HashMap<Integer,Color>();
+			for (int i = 0; i < colors.length; i++)
+				if (colors[i] != null)
+					sparse.put(offset + i, colors[i]);
+			sparse.put(value, color);
+			colors = new Color[0];
+			argb = new int[0];
+			return;
+		}
+		if (lo != offset || hi - lo + 1 != colors.length) {
+			Color[] c = new Color[hi - lo + 1];
+			int[] a = new int[hi - lo + 1];
+			Arrays.fill(a, BLACK);
+			System.arraycopy(colors, 0, c, offset - lo, colors.length);
+			System.arraycopy(argb, 0, a, offset - lo, argb.length);
+			colors = c;
+			argb = a;
+			offset = lo;
+		}
+		colors[value - offset] = color;
+		argb[value - offset] = (color == null) ? BLACK : color.getRGB();
 	}
-	
+
 	public Color getColor(double value, double lo, double hi) {
-		return colors.containsKey((int)value) ? colors.get((int)value) : Color.BLACK;
+		if (sparse != null) {
+			Color c = sparse.get((int)value);
+			return (c == null) ? Color.BLACK : c;
+		}
+		int i = (int)value - offset;
+		return (i >= 0 && i < colors.length && colors[i] != null) ? colors[i] : Color.BLACK;
+	}
+
+	public int getARGB(double value, double lo, double hi) {
+		if (sparse != null)
+			return getColor(value, lo, hi).getRGB();
+		int i = (int)value - offset;
+		return (i >= 0 && i < argb.length) ? argb[i] : BLACK;
+	}
+
+	public void getARGB(double[] data, int from, int to, double lo, double hi, int[] dst, int off) {
+		if (sparse != null) {
+			for (int i = from; i < to; i++)
+				dst[off++] = getARGB(data[i], lo, hi);
+			return;
+		}
+		int[] argb = this.argb;
+		int n = argb.length;
+		for (int i = from; i < to; i++) {
+			int j = (int)data[i] - offset;
+			dst[off++] = (j >= 0 && j < n) ? argb[j] : BLACK;
+		}
 	}
 }
@@ -0,0 +1,21 @@
+package scikit.graphics;
+
+/**
+ * Lookup of packed colors in a table spanning the range low to high, shared by
+ * {@link ColorGradient} and {@link GrayScale}.
+ */
+class ColorTable {
+	static int index(int size, double v, double lo, double hi) {
+		int c = (int) (size*((v - lo) / (hi - lo)));
+		return c < 0 ? 0 : (c >= size ? size-1 : c);
+	}
+	
+	static void lookup(int[] table, double[] data, int from, int to, double lo, double hi, int[] argb, int off) {
+		int size = table.length;
+		double range = hi - lo;
+		for (int i = from; i < to; i++) {
+			int c = (int) (size*((data[i] - lo) / range));
+			argb[off++] = table[c < 0 ? 0 : (c >= size ? size-1 : c)];
+		}
+	}
+}
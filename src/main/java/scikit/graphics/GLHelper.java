@@ -1,12 +1,24 @@
 package scikit.graphics;
 
+import java.util.Locale;
+
+import javax.media.opengl.GL;
 import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLContext;
+import javax.media.opengl.GLDrawableFactory;
 import javax.media.opengl.GLEventListener;
-import javax.media.opengl.awt.GLCanvas;
+import javax.media.opengl.GLException;
+import javax.media.opengl.GLOffscreenAutoDrawable;
+import javax.media.opengl.GLProfile;
 import javax.media.opengl.awt.GLJPanel;
 
 
 public class GLHelper {
+	// substrings of the GL_RENDERER strings of software rasterizers, in lower case
+	private static final String[] SOFTWARE_RENDERERS = {"llvmpipe", "softpipe", "software", "swrast", "gdi generic"};
+	private static String _renderer;
+	private static boolean _tested = false;
+	
 	public static GLJPanel createComponent(GLEventListener listener) {
 		GLCapabilities capabilities = new GLCapabilities(null);
 		// For some unknown reason, enabling GL "sample buffers" actually make anti-aliased lines
@@ -22,13 +34,68 @@ public class GLHelper {
 	}
 	
 	// if GL available:
-	//   - returns true/false if GL is accelerated/unaccelerated
+	//   - returns true/false if GL is accelerated/unaccelerated, judged by the renderer
+	//     of an offscreen context; false if no context can be made
 	// else
 	//   - throw class load exception
 	public static boolean testGL() {
-		// construction of GLCanvas will throw a class-load error if native libraries are unavailable
-		new GLCanvas();
-		return new GLCapabilities(null).getHardwareAccelerated();
+		return isHardwareRenderer(renderer());
+	}
+	
+	// like testGL(), but true for any renderer, software rasterizers included
+	public static boolean hasGL() {
+		return renderer() != null;
+	}
+	
+	// the renderer of an offscreen context, found once, since every 2D scene asks
+	private static synchronized String renderer() {
+		// GLProfile will throw a class-load error if native libraries are unavailable
+		if (!_tested) {
+			_renderer = rendererName();
+			_tested = true;
+		}
+		return _renderer;
+	}
+	
+	// returns the GL_RENDERER string of a small offscreen context, or null if none can be made
+	private static String rendererName() {
+		GLProfile profile = GLProfile.getDefault();
+		GLCapabilities capabilities = new GLCapabilities(profile);
+		capabilities.setOnscreen(false);
+		GLOffscreenAutoDrawable drawable;
+		try {
+			drawable = GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, capabilities, null, 1, 1);
+		}
+		catch (GLException e) {
+			return null;
+		}
+		try {
+			GLContext context = drawable.getContext();
+			if (context.makeCurrent() == GLContext.CONTEXT_NOT_CURRENT)
+				return null;
+			try {
+				return context.getGL().glGetString(GL.GL_RENDERER);
+			}
+			finally {
+				context.release();
+			}
+		}
+		catch (GLException e) {
+			return null;
+		}
+		finally {
+			drawable.destroy();
+		}
+	}
+	
+	// whether renderer, a GL_RENDERER string, names a hardware renderer
+	static boolean isHardwareRenderer(String renderer) {
+		if (renderer == null)
+			return false;
+		String r = renderer.toLowerCase(Locale.ROOT);
+		for (String s : SOFTWARE_RENDERERS)
+			if (r.contains(s))
+				return false;
+		return true;
 	}
-
 }
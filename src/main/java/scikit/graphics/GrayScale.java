@@ -1,23 +1,33 @@
 package scikit.graphics;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-
 import java.awt.Color;
 
-public class GrayScale implements ColorChooser {
+public class GrayScale implements PackedColorChooser {
 	private static int WHEEL_SIZE = 256;
 	private static Color wheel[] = new Color[WHEEL_SIZE];
+	private static int argbWheel[] = new int[WHEEL_SIZE];
 
 	static {
         for (int i = 0; i < WHEEL_SIZE; i++) {
             wheel[i] = new Color(i, i, i);
+            argbWheel[i] = wheel[i].getRGB();
         }
     }
 
 	public Color getColor(double v, double lo, double hi) {
-		v = (v - lo) / (hi - lo);
-		int c = (int) (WHEEL_SIZE*v);
-		return wheel[min(max(c, 0), WHEEL_SIZE-1)];
+		return wheel[ColorTable.index(WHEEL_SIZE, v, lo, hi)];
+	}
+	
+	public int getARGB(double v, double lo, double hi) {
+		return argbWheel[ColorTable.index(WHEEL_SIZE, v, lo, hi)];
+	}
+	
+	public void getARGB(double[] data, int from, int to, double lo, double hi, int[] argb, int off) {
+		ColorTable.lookup(argbWheel, data, from, to, lo, hi, argb, off);
+	}
+	
+	/** Returns a copy of the packed colors for WHEEL_SIZE equal steps from low to high. */
+	public int[] getLookupTable() {
+		return argbWheel.clone();
 	}
 }
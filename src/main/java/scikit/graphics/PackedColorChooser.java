@@ -0,0 +1,19 @@
+package scikit.graphics;
+
+/**
+ * A {@link ColorChooser} that can also give colors as packed 0xAARRGGBB ints, read
+ * from a lookup table, so that images can be colored without creating or unpacking
+ * a {@link java.awt.Color} per pixel.
+ */
+public interface PackedColorChooser extends ColorChooser {
+	/**
+	 * Returns getColor(v, low, high).getRGB().
+	 */
+	public int getARGB(double v, double low, double high);
+	
+	/**
+	 * Writes the packed colors of data[from], ..., data[to-1] into argb, starting at
+	 * argb[off].
+	 */
+	public void getARGB(double[] data, int from, int to, double low, double high, int[] argb, int off);
+}
@@ -0,0 +1,117 @@
+package scikit.graphics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the full passes over image data made on every repaint, the range reduction and
+ * the mapping of values to colors, as tiles of consecutive rows split across a
+ * ForkJoinPool. A null pool runs the tiles serially on the calling thread. Results do
+ * not depend on the pool.
+ */
+public class RasterTiles {
+	// smallest number of values worth a task of its own
+	static final int MIN_TILE = 1 << 14;
+
+	/** A task over values or rows [from, to). */
+	public interface Tile {
+		public void run(int from, int to);
+	}
+
+	/**
+	 * Runs task over [0, n) in tiles, in parallel if a pool is given. Each tile is a
+	 * multiple of unit long, except perhaps the last, so that a tile is a range of
+	 * whole rows when unit is the row length.
+	 */
+	public static void forTiles(final int n, int unit, ForkJoinPool pool, final Tile task) {
+		final int u = Math.max(unit, 1);
+		final int units = (n + u - 1) / u;
+		final int tiles = Math.min(units, tiles(n, pool));
+		invoke(tiles, pool, new Tile() {
+			public void run(int t, int unused) {
+				int from = (int)Math.min(n, (long)units*t/tiles * u);
+				int to = (int)Math.min(n, (long)units*(t+1)/tiles * u);
+				task.run(from, to);
+			}
+		});
+	}
+
+	/**
+	 * Returns {min, max} of data[0], ..., data[n-1], with the same result as
+	 * DoubleArray.min and max: NaN values are ignored unless data[0] is NaN.
+	 */
+	public static double[] range(final double[] data, final int n, ForkJoinPool pool) {
+		final int tiles = tiles(n, pool);
+		final double[] lo = new double[tiles], hi = new double[tiles];
+		invoke(tiles, pool, new Tile() {
+			public void run(int t, int unused) {
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				int end = (int)((long)n*(t+1)/tiles);
+				for (int i = (int)((long)n*t/tiles); i < end; i++) {
+					double v = data[i];
+					if (v < min) min = v;
+					if (v > max) max = v;
+				}
+				lo[t] = min;
+				hi[t] = max;
+			}
+		});
+		if (Double.isNaN(data[0]))
+			return new double[] {Double.NaN, Double.NaN};
+		double min = lo[0], max = hi[0];
+		for (int t = 1; t < tiles; t++) {
+			if (lo[t] < min) min = lo[t];
+			if (hi[t] > max) max = hi[t];
+		}
+		return new double[] {min, max};
+	}
+
+	/**
+	 * Writes the packed colors of data[0], ..., data[n-1] into argb, in tiles of whole
+	 * rows of length w.
+	 */
+	public static void colorize(final ColorChooser colors, final double[] data, int n, int w,
+			final double lo, final double hi, final int[] argb, ForkJoinPool pool) {
+		forTiles(n, w, pool, new Tile() {
+			public void run(int from, int to) {
+				if (colors instanceof PackedColorChooser) {
+					((PackedColorChooser)colors).getARGB(data, from, to, lo, hi, argb, from);
+				}
+				else {
+					for (int i = from; i < to; i++)
+						argb[i] = colors.getColor(data[i], lo, hi).getRGB();
+				}
+			}
+		});
+	}
+
+	// the number of tiles to split n values into
+	private static int tiles(int n, ForkJoinPool pool) {
+		if (pool == null)
+			return 1;
+		return Math.max(1, Math.min(n / MIN_TILE, 4 * pool.getParallelism()));
+	}
+
+	// runs tile.run(t, t+1) for each t in [0, tiles)
+	private static void invoke(final int tiles, ForkJoinPool pool, final Tile tile) {
+		if (pool == null || tiles <= 1) {
+			for (int t = 0; t < tiles; t++)
+				tile.run(t, t+1);
+			return;
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				RecursiveAction[] actions = new RecursiveAction[tiles];
+				for (int t = 0; t < tiles; t++) {
+					final int i = t;
+					actions[t] = new RecursiveAction() {
+						protected void compute() {
+							tile.run(i, i+1);
+						}
+					};
+				}
+				invokeAll(actions);
+			}
+		});
+	}
+}
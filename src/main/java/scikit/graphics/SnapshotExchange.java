@@ -0,0 +1,68 @@
+package scikit.graphics;
+
+/**
+ * Passes snapshots of a field from a simulation thread to a renderer without copying
+ * them. The simulation publishes an array it has filled, and gets back the previously
+ * published array to fill next; the renderer reads the latest snapshot between
+ * {@link #beginRead} and {@link #endRead}, whenever it next draws. Publishing waits
+ * only while the renderer is still reading the array it would hand back, that is,
+ * when the simulation laps the renderer.
+ */
+public class SnapshotExchange {
+	private double[] _front;
+	private int[] _shape;
+	private boolean _fresh;
+	private int _readers;
+
+	/**
+	 * Makes snapshot, of the given shape, the latest, and returns the previous latest
+	 * snapshot for the caller to reuse, or null if there is none. The caller must not
+	 * write to snapshot until it is handed back by a later call.
+	 */
+	public synchronized double[] publish(double[] snapshot, int... shape) {
+		if (snapshot == _front)
+			throw new IllegalArgumentException("Snapshot is already published");
+		boolean interrupted = false;
+		while (_readers > 0) {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		double[] ret = _front;
+		_front = snapshot;
+		_shape = shape.clone();
+		_fresh = true;
+		return ret;
+	}
+
+	/**
+	 * Returns the latest snapshot, or null if there is none. It stays valid, along
+	 * with {@link #getShape}, until the matching call to {@link #endRead}.
+	 */
+	public synchronized double[] beginRead() {
+		_readers++;
+		return _front;
+	}
+
+	public synchronized void endRead() {
+		if (--_readers == 0)
+			notifyAll();
+	}
+
+	/** Returns the shape of the latest snapshot. */
+	public synchronized int[] getShape() {
+		return _shape;
+	}
+
+	/** Returns whether a snapshot has been published since the last call. */
+	public synchronized boolean takeFresh() {
+		boolean ret = _fresh;
+		_fresh = false;
+		return ret;
+	}
+}
@@ -0,0 +1,127 @@
+package scikit.graphics.dim2;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.GLContext;
+
+/**
+ * The GL objects a {@link Gfx2DGL} keeps between frames of one GL context: a vertex
+ * buffer through which runs of points and lines are streamed in a single draw call,
+ * and a texture into which images are uploaded, reallocated only when the image
+ * size changes. Attached to the context on first use by {@link #of}, and disposed
+ * with it by {@link #release}.
+ */
+class GLBatch {
+	private static final String KEY = GLBatch.class.getName();
+
+	private final int _vbo, _texture;
+	private FloatBuffer _vertices = FloatBuffer.allocate(0);
+	private int _texWidth = -1, _texHeight = -1, _texFormat = -1;
+	private int[] _pixels = new int[0];
+
+	/** Returns the batch of the current context of gl, creating it on first use. */
+	static GLBatch of(GL2 gl) {
+		GLContext context = gl.getContext();
+		GLBatch ret = (GLBatch)context.getAttachedObject(KEY);
+		if (ret == null) {
+			ret = new GLBatch(gl);
+			context.attachObject(KEY, ret);
+		}
+		return ret;
+	}
+
+	/** Disposes the batch of the current context of gl, if it has one. */
+	static void release(GL2 gl) {
+		GLBatch batch = (GLBatch)gl.getContext().attachObject(KEY, null);
+		if (batch != null)
+			batch.dispose(gl);
+	}
+
+	private GLBatch(GL2 gl) {
+		int[] ids = new int[1];
+		gl.glGenBuffers(1, ids, 0);
+		_vbo = ids[0];
+		gl.glGenTextures(1, ids, 0);
+		_texture = ids[0];
+	}
+
+	private void dispose(GL2 gl) {
+		gl.glDeleteBuffers(1, new int[] {_vbo}, 0);
+		gl.glDeleteTextures(1, new int[] {_texture}, 0);
+	}
+
+	/** Returns an empty buffer for n vertices of two floats, to be passed to {@link #draw}. */
+	FloatBuffer vertices(int n) {
+		if (_vertices.capacity() < 2*n) {
+			int cap = Math.max(2*n, 2*_vertices.capacity());
+			_vertices = ByteBuffer.allocateDirect(4*cap).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+		_vertices.clear();
+		return _vertices;
+	}
+
+	/** Draws the vertices put into {@link #vertices} as primitives of the given mode. */
+	void draw(GL2 gl, int mode) {
+		int n = _vertices.position() / 2;
+		if (n == 0)
+			return;
+		_vertices.flip();
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, _vbo);
+		// a new data store each time, so the driver need not wait on the last draw
+		gl.glBufferData(GL.GL_ARRAY_BUFFER, 4L*2*n, _vertices, GL2.GL_STREAM_DRAW);
+		gl.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glVertexPointer(2, GL.GL_FLOAT, 0, 0);
+		gl.glDrawArrays(mode, 0, n);
+		gl.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+		gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+	}
+
+	/**
+	 * Binds the texture and loads the pixels of image into it, with glTexSubImage2D
+	 * when the texture already has the size and format of the image.
+	 */
+	void bindImage(GL2 gl, BufferedImage image) {
+		int w = image.getWidth(), h = image.getHeight();
+		int format;
+		IntBuffer pixels;
+		int type = image.getType();
+		if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB) {
+			// copy out the packed pixels; taking the raster's own array instead would
+			// stop Java2D from managing the image
+			if (_pixels.length < w*h)
+				_pixels = new int[w*h];
+			image.getRaster().getDataElements(0, 0, w, h, _pixels);
+			pixels = IntBuffer.wrap(_pixels, 0, w*h);
+			format = (type == BufferedImage.TYPE_INT_RGB) ? GL.GL_RGB : GL.GL_RGBA;
+		}
+		else {
+			pixels = IntBuffer.wrap(image.getRGB(0, 0, w, h, null, 0, w));
+			format = image.getColorModel().hasAlpha() ? GL.GL_RGBA : GL.GL_RGB;
+		}
+
+		gl.glBindTexture(GL.GL_TEXTURE_2D, _texture);
+		gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 4);
+		if (w != _texWidth || h != _texHeight || format != _texFormat) {
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_NEAREST);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_NEAREST);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
+			// packed 0xAARRGGBB ints; an RGB internal format ignores the unused alpha byte
+			gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, format, w, h, 0,
+					GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, pixels);
+			_texWidth = w;
+			_texHeight = h;
+			_texFormat = format;
+		}
+		else {
+			gl.glTexSubImage2D(GL.GL_TEXTURE_2D, 0, 0, 0, w, h,
+					GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, pixels);
+		}
+	}
+}
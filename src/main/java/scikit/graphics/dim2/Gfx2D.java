@@ -1,6 +1,7 @@
 package scikit.graphics.dim2;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 
 import scikit.util.Bounds;
 
@@ -12,8 +13,13 @@ public interface Gfx2D {
 	public void setLineSmoothing(boolean b);
 	public void setColor(Color color);
 	public void drawPoint(double x, double y);
+	/** Draws the points (xys[0], xys[1]), (xys[2], xys[3]), ... */
+	public void drawPoints(double[] xys);
 	public void drawLine(double x1, double y1, double x2, double y2);
+	/** Draws a line through the points (xys[0], xys[1]), (xys[2], xys[3]), ... */
 	public void drawLines(double[] xys);
+	/** Draws a line from (xys[0], xys[1]) to (xys[2], xys[3]), another from (xys[4], xys[5]), ... */
+	public void drawSegments(double[] xys);
 	public void drawRect(double x, double y, double w, double h);
 	public void fillRect(double x, double y, double w, double h);
 	public void drawCircle(double x, double y, double r);
@@ -21,4 +27,6 @@ public interface Gfx2D {
 	public double stringWidth(String str);
 	public double stringHeight(String str);
 	public void drawString(String str, double x, double y);
+	/** Draws image stretched over the rectangle from (x1, y1) to (x2, y2), with its first row at y1. */
+	public void drawImage(BufferedImage image, double x1, double y1, double x2, double y2);
 }
@@ -5,6 +5,8 @@ import static java.lang.Math.cos;
 import static java.lang.Math.sin;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.nio.FloatBuffer;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GL2;
@@ -22,6 +24,7 @@ import com.jogamp.opengl.util.gl2.GLUT;
 public class Gfx2DGL implements Gfx2D {
 	private final GL2 _gl;
 	private final GLUT _glut;
+	private final GLBatch _batch;
 	private final Bounds _pixBds, _viewBds;
 	private Bounds _proj;
 	
@@ -32,6 +35,7 @@ public class Gfx2DGL implements Gfx2D {
 	public Gfx2DGL(GLAutoDrawable glDrawable, Scene2D scene) {
 		_gl = glDrawable.getGL().getGL2();
 		_glut = new GLUT();
+		_batch = GLBatch.of(_gl);
 		_pixBds = new Bounds(0, glDrawable.getWidth(), 0, glDrawable.getHeight());
 		_proj = _viewBds = scene.viewBounds();
 	}
@@ -68,6 +72,19 @@ public class Gfx2DGL implements Gfx2D {
 		gl.glVertex2d(transX(x), transY(y));
 	}
 	
+	// draws the points (xys[0], xys[1]), ... as primitives of the given mode, in a
+	// single call through the vertex buffer; pixel coordinates are small enough that
+	// floats lose nothing
+	private void drawArray(int mode, double[] xys) {
+		int n = xys.length / 2;
+		FloatBuffer vs = _batch.vertices(n);
+		for (int i = 0; i < n; i++) {
+			vs.put((float)transX(xys[2*i+0]));
+			vs.put((float)transY(xys[2*i+1]));
+		}
+		_batch.draw(_gl, mode);
+	}
+	
 	public void setLineSmoothing(boolean b) {
 		if (b)
 			_gl.glEnable(GL.GL_LINE_SMOOTH);
@@ -85,6 +102,10 @@ public class Gfx2DGL implements Gfx2D {
 		_gl.glEnd();
 	}
 	
+	public void drawPoints(double[] xys) {
+		drawArray(GL.GL_POINTS, xys);
+	}
+	
 	public void drawLine(double x1, double y1, double x2, double y2) {
 		_gl.glBegin(GL.GL_LINES);
 		vertex2d(_gl, x1, y1);
@@ -93,11 +114,11 @@ public class Gfx2DGL implements Gfx2D {
 	}
 	
 	public void drawLines(double[] xys) {
-		_gl.glBegin(GL.GL_LINES);
-		for (int i = 0; i < xys.length; i++) {
-			vertex2d(_gl, xys[2*i+0], xys[2*i+1]);
-		}
-		_gl.glEnd();
+		drawArray(GL.GL_LINE_STRIP, xys);
+	}
+	
+	public void drawSegments(double[] xys) {
+		drawArray(GL.GL_LINES, xys);
 	}
 	
 	public void drawRect(double x, double y, double w, double h) {
@@ -159,13 +180,33 @@ public class Gfx2DGL implements Gfx2D {
 		_gl.glPopMatrix();
 	}
 	
+	public void drawImage(BufferedImage image, double x1, double y1, double x2, double y2) {
+		_batch.bindImage(_gl, image);
+		_gl.glEnable(GL.GL_TEXTURE_2D);
+		// texels replace the current color rather than being modulated by it
+		_gl.glTexEnvi(GL2.GL_TEXTURE_ENV, GL2.GL_TEXTURE_ENV_MODE, GL2.GL_REPLACE);
+		_gl.glBegin(GL2.GL_QUADS);
+		_gl.glTexCoord2d(0, 0);
+		vertex2d(_gl, x1, y1);
+		_gl.glTexCoord2d(1, 0);
+		vertex2d(_gl, x2, y1);
+		_gl.glTexCoord2d(1, 1);
+		vertex2d(_gl, x2, y2);
+		_gl.glTexCoord2d(0, 1);
+		vertex2d(_gl, x1, y2);
+		_gl.glEnd();
+		_gl.glDisable(GL.GL_TEXTURE_2D);
+		_gl.glBindTexture(GL.GL_TEXTURE_2D, 0);
+	}
+	
 	public static GLJPanel createComponent(final Scene2D scene) {
 		return GLHelper.createComponent(new GLEventListener() {
 			public void display(GLAutoDrawable glDrawable) {
 				glDrawable.getGL().glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
 				scene.drawAll(new Gfx2DGL(glDrawable, scene));
 			}
-			public void dispose(GLAutoDrawable gLDrawable) {
+			public void dispose(GLAutoDrawable glDrawable) {
+				GLBatch.release(glDrawable.getGL().getGL2());
 			}
 			public void init(GLAutoDrawable glDrawable) {
 				GL2 gl = glDrawable.getGL().getGL2();
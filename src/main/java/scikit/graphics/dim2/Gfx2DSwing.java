@@ -69,13 +69,28 @@ public class Gfx2DSwing implements Gfx2D {
 		_engine.fillRect((int)transX(x)-pix/2, (int)transY(y)-pix/2, pix, pix);
 	}
 	
+	public void drawPoints(double[] xys) {
+		for (int i = 0; i+1 < xys.length; i += 2)
+			drawPoint(xys[i], xys[i+1]);
+	}
+	
 	public void drawLine(double x1, double y1, double x2, double y2) {
 		_engine.drawLine(transX(x1), transY(y1), transX(x2), transY(y2));
 	}
 
 	public void drawLines(double[] xys) {
-		for (int i = 2; i < xys.length; i += 2)
-			drawLine(xys[i-2], xys[i-1], xys[i+0], xys[i+1]);
+		int n = xys.length / 2;
+		int[] xs = new int[n], ys = new int[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = transX(xys[2*i+0]);
+			ys[i] = transY(xys[2*i+1]);
+		}
+		_engine.drawPolyline(xs, ys, n);
+	}
+	
+	public void drawSegments(double[] xys) {
+		for (int i = 0; i+3 < xys.length; i += 4)
+			drawLine(xys[i+0], xys[i+1], xys[i+2], xys[i+3]);
 	}
 
 	public void drawRect(double x, double y, double w, double h) {
@@ -6,35 +6,50 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 import javax.swing.JCheckBoxMenuItem;
-import javax.swing.JComponent;
 import javax.swing.JMenuItem;
 
 import scikit.graphics.ColorChooser;
 import scikit.graphics.ColorGradient;
 import scikit.graphics.Drawable;
+import scikit.graphics.RasterTiles;
+import scikit.graphics.SnapshotExchange;
 import scikit.util.Bounds;
-import scikit.util.DoubleArray;
 import scikit.util.FileUtil;
 
 
 public class Grid extends Scene2D {
+	/** How the cells under a pixel are combined when the grid is downsampled. */
+	public enum Pooling {MIN, MAX, MEAN};
+	
 	private ColorChooser _colors = new ColorGradient();
 	private BufferedImage _image = null;
 	private int _w = 0, _h = 0;
-	private double[] _data = null;
-    private int[] _pixelArray = null;
+	private SnapshotExchange _snapshots = new SnapshotExchange();
+	// an array handed back by _snapshots, for registerData to fill
+	private double[] _spare = null;
     private boolean _autoScale = true;
     private boolean _drawRange = false;
     private double _lo = 0, _hi = 1;
+    private ForkJoinPool _pool = null;
+    // when not null, only the visible region is colored, at the canvas resolution
+    private Pooling _pooling = null;
+    private GridPyramid _pyramid = new GridPyramid();
+    private BufferedImage _viewImage = null;
+    private double[] _viewData = null;
+    // packed colors, copied into _image or _viewImage once filled
+    private int[] _pixels = null;
+    // set when the image or pyramid must be rebuilt though the snapshot is unchanged
+    private boolean _stale = false;
     
     
 	public Grid(String title) {
@@ -45,7 +60,11 @@ public class Grid extends Scene2D {
 		// remove data first because super.clear() will cause a drawAll() operation
 		_w = _h = 0;
 		_image = null;
-		_data = null;
+		_viewImage = null;
+		_viewData = null;
+		_pixels = null;
+		_snapshots = new SnapshotExchange();
+		_spare = null;
 		super.clear();
 	}
 
@@ -63,38 +82,85 @@ public class Grid extends Scene2D {
 		_hi = hi;
 	}
 	
+	/**
+	 * Splits the range search and coloring of each frame across the given pool, in
+	 * tiles of whole rows. A null pool, the default, colors on the calling thread.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		_pool = pool;
+	}
+	
+	/**
+	 * Colors only as many pixels as the canvas shows, for grids with many more cells
+	 * than the canvas has pixels, combining the cells under each pixel by the given
+	 * pooling. The cells are pooled from a pyramid built once per frame, so zooming
+	 * in by selection colors only the visible region, at the resolution needed. A
+	 * null pooling, the default, colors every cell and scales the image to the canvas.
+	 */
+	public void setDownsampling(Pooling pooling) {
+		_pooling = pooling;
+		_stale = true;
+	}
+	
 	public void setDrawRange(boolean b) {
 		_drawRange = b;
 	}
 	
 	public void registerData(int w, int h, double[] data) {
-		allocateBuffers(w, h, data.length);
-		System.arraycopy(data, 0, _data, 0, w*h);
-		rasterizeImage();
+		checkShape(w, h, data.length);
+		double[] buffer = spare(w*h);
+		System.arraycopy(data, 0, buffer, 0, w*h);
+		_spare = _snapshots.publish(buffer, w, h);
+		updateImage();
 		animate();
     }
 	
 	public void registerData(int w, int h, int[] data) {
-		allocateBuffers(w, h, data.length);
-		for (int i = 0; i < data.length; i++)
-			_data[i] = data[i];
-		rasterizeImage();
+		checkShape(w, h, data.length);
+		double[] buffer = spare(w*h);
+		for (int i = 0; i < w*h; i++)
+			buffer[i] = data[i];
+		_spare = _snapshots.publish(buffer, w, h);
+		updateImage();
 		animate();
 	}
 	
+	/**
+	 * Displays data without copying it, for fields too large to copy every frame. The
+	 * grid keeps data as its latest snapshot, and colors it when it is next drawn,
+	 * on the drawing thread. Returns an array of at least w*h values, the previously
+	 * published snapshot when there is one, for the caller to fill with the next
+	 * frame. The caller must not write to data after publishing it, though it may
+	 * still read it, until data is handed back; this call waits only while the grid
+	 * is coloring the array it would hand back. Do not mix with registerData(), which
+	 * may overwrite arrays handed back to it.
+	 */
+	public double[] publishData(int w, int h, double[] data) {
+		checkShape(w, h, data.length);
+		double[] ret = _snapshots.publish(data, w, h);
+		animate();
+		return (ret == null || ret.length < w*h) ? new double[w*h] : ret;
+	}
+	
 	// Override getImage() to return the "native" pixel-map image
 	public BufferedImage getImage(int width, int height) {
-		return _image;
+		return getImage();
 	}
 	
-	public BufferedImage getImage() {
+	public synchronized BufferedImage getImage() {
+		double[] data = _snapshots.beginRead();
+		try {
+			refresh(data);
+			// when downsampling, the full image is only colored on request
+			if (_pooling != null && data != null)
+				colorImage(data);
+		}
+		finally {
+			_snapshots.endRead();
+		}
 		return _image;
 	}
 	
-	protected JComponent createCanvas() {
-		return Gfx2DSwing.createComponent(this);
-	}
-	
 	protected void drawBackground(Gfx2D g) {
 		// looks better without background
 	}
@@ -118,7 +184,7 @@ public class Grid extends Scene2D {
 		});
 		ret.add(menuItem);
 		
-		if (_data != null) {
+		if (_w > 0) {
 			menuItem = new JMenuItem("Save grid data ...");
 			menuItem.addActionListener(new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
@@ -137,50 +203,110 @@ public class Grid extends Scene2D {
 		return ret;
 	}
 	
-	private void allocateBuffers(int w, int h, int expectedSize) {
+	private void checkShape(int w, int h, int expectedSize) {
 		if (w*h == 0)
 			throw new IllegalArgumentException("Illegal specified shape (" + w + "*" + h + ")");
 		if (w*h > expectedSize)
 			throw new IllegalArgumentException("Array length " + expectedSize
 					+ " does not fit specified shape (" + w + "*" + h + ")");
-		if (w != _w || h != _h) {
-    		_w = w;
-    		_h = h;
-    		_data = new double[w*h];
-    		_pixelArray = new int[w*h*3];
-    		_image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-    	}
 	}
 	
-	private void findRange() {
+	private double[] spare(int size) {
+		return (_spare == null || _spare.length < size) ? new double[size] : _spare;
+	}
+	
+	private void findRange(double[] data) {
 		if (_autoScale) {
-			_lo = DoubleArray.min(_data);
-			_hi = DoubleArray.max(_data);
+			double[] range = RasterTiles.range(data, _w*_h, _pool);
+			_lo = range[0];
+			_hi = range[1];
 		}
 	}
 	
-	private void rasterizeImage() {
-		findRange();
-		// draw pixels
-		int pixelArrayOffset = 0;
-		for (int y = 0; y < _h; y++) {
-			for (int x = 0; x < _w; x++) {
-				Color color = _colors.getColor(_data[_w*y+x], _lo, _hi);
-				_pixelArray[pixelArrayOffset++] = color.getRed();
-				_pixelArray[pixelArrayOffset++] = color.getGreen();
-				_pixelArray[pixelArrayOffset++] = color.getBlue();
+	// brings the image, or the pyramid when downsampling, up to date with the latest
+	// snapshot
+	private synchronized void updateImage() {
+		double[] data = _snapshots.beginRead();
+		try {
+			refresh(data);
+		}
+		finally {
+			_snapshots.endRead();
+		}
+	}
+	
+	// as updateImage(), for data the snapshot being read
+	private void refresh(double[] data) {
+		if (!_snapshots.takeFresh() && !_stale)
+			return;
+		_stale = false;
+		if (data == null)
+			return;
+		int[] shape = _snapshots.getShape();
+		_w = shape[0];
+		_h = shape[1];
+		findRange(data);
+		if (_pooling == null)
+			colorImage(data);
+		else
+			_pyramid.build(data, _w, _h, _pooling, _pool);
+	}
+	
+	private void colorImage(double[] data) {
+		if (_image == null || _image.getWidth() != _w || _image.getHeight() != _h)
+			_image = new BufferedImage(_w, _h, BufferedImage.TYPE_INT_RGB);
+		colorize(data, _image);
+	}
+	
+	// colors the values into image, through _pixels. Writing through the raster, rather
+	// than into the array backing it, leaves Java2D free to cache the image in video
+	// memory between frames.
+	private void colorize(double[] values, BufferedImage image) {
+		int w = image.getWidth(), h = image.getHeight();
+		if (_pixels == null || _pixels.length < w*h)
+			_pixels = new int[w*h];
+		RasterTiles.colorize(_colors, values, w*h, w, _lo, _hi, _pixels, _pool);
+		image.getRaster().setDataElements(0, 0, w, h, _pixels);
+	}
+	
+	// colors the visible region of the grid at the resolution of the canvas, and draws it
+	private synchronized void drawDownsampled(Gfx2D g) {
+		double[] data = _snapshots.beginRead();
+		try {
+			refresh(data);
+			if (data == null)
+				return;
+			Bounds view = g.viewBounds(), pix = g.pixelBounds();
+			double x0 = Math.max(0, view.xmin), x1 = Math.min(1, view.xmax);
+			double y0 = Math.max(0, view.ymin), y1 = Math.min(1, view.ymax);
+			if (x0 >= x1 || y0 >= y1)
+				return;
+			int pw = Math.max(1, (int)Math.ceil(pix.getWidth() * (x1-x0) / view.getWidth()));
+			int ph = Math.max(1, (int)Math.ceil(pix.getHeight() * (y1-y0) / view.getHeight()));
+			if (_viewImage == null || _viewImage.getWidth() != pw || _viewImage.getHeight() != ph) {
+				_viewImage = new BufferedImage(pw, ph, BufferedImage.TYPE_INT_RGB);
+				_viewData = new double[pw*ph];
 			}
+			_pyramid.render(data, x0*_w, y0*_h, x1*_w, y1*_h, pw, ph, _viewData, _pool);
+			colorize(_viewData, _viewImage);
+			g.drawImage(_viewImage, x0, y0, x1, y1);
+		}
+		finally {
+			_snapshots.endRead();
 		}
-		// copy pixels into image
-		WritableRaster raster = _image.getRaster();
-		raster.setPixels(0, 0, _w, _h, _pixelArray);
 	}
 	
 	private Drawable<Gfx2D> _gridDrawable = new Drawable<Gfx2D>() {
 		public void draw(Gfx2D g) {
-	        if (_image != null) {
-	        	((Gfx2DSwing)g).drawImage(_image, 0, 0, 1, 1);
-	        	
+			if (_pooling == null) {
+				updateImage();
+				if (_image != null)
+					g.drawImage(_image, 0, 0, 1, 1);
+			}
+			else {
+				drawDownsampled(g);
+			}
+	        if (_w > 0) {
 	        	if (_drawRange) {
 	        		g.setProjection(g.pixelBounds()); // draw strings at fixed pixels
 	        		String str1 = "lo = "+format(_lo);
@@ -207,9 +333,17 @@ public class Grid extends Scene2D {
 		try {
 			fname = FileUtil.saveDialog(_component, fname);
 			if (fname != null) {
-				PrintWriter pw = FileUtil.pwFromString(fname);
-				FileUtil.writeOctaveGrid(pw, _data, _w, 1);
-				pw.close();
+				double[] data = _snapshots.beginRead();
+				try {
+					int[] shape = _snapshots.getShape();
+					int n = shape[0]*shape[1];
+					PrintWriter pw = FileUtil.pwFromString(fname);
+					FileUtil.writeOctaveGrid(pw, data.length == n ? data : Arrays.copyOf(data, n), shape[0], 1);
+					pw.close();
+				}
+				finally {
+					_snapshots.endRead();
+				}
 			}
 		} catch (IOException e) {}
 	}
@@ -218,7 +352,7 @@ public class Grid extends Scene2D {
 		try {
 			fname = FileUtil.saveDialog(_component, fname);
 			if (fname != null) {
-				ImageIO.write(_image, "png", new File(fname));
+				ImageIO.write(getImage(), "png", new File(fname));
 			}
 		} catch (IOException e) {}
 	}
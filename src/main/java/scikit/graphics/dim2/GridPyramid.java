@@ -0,0 +1,179 @@
+package scikit.graphics.dim2;
+
+import java.util.concurrent.ForkJoinPool;
+
+import scikit.graphics.RasterTiles;
+
+/**
+ * A mip pyramid of a w*h grid, for drawing the grid at less than full resolution.
+ * Level l pools blocks of 2^l by 2^l cells into one, by minimum, maximum or mean;
+ * blocks in the last row or column may be cut short by the edge of the grid, and
+ * means count only the cells actually present. As in {@link RasterTiles#range}, the
+ * minimum and maximum ignore NaN cells, giving NaN only for a block of NaN cells.
+ * Level 0 is the grid itself, which is not copied and so is passed back in to
+ * {@link #render}. Rendering a region at a given number of pixels pools, for each
+ * pixel, the few cells of the coarsest level at least as fine as the pixel.
+ */
+class GridPyramid {
+	private Grid.Pooling _pooling;
+	// _levels[l], of _lw[l]*_lh[l] cells, for l >= 1
+	private double[][] _levels = new double[1][];
+	private int[] _lw = {0}, _lh = {0};
+
+	/** Rebuilds the levels above data, a w*h grid. */
+	void build(double[] data, int w, int h, Grid.Pooling pooling, ForkJoinPool pool) {
+		int n = 1;
+		while ((w-1) >> (n-1) > 0 || (h-1) >> (n-1) > 0)
+			n++;
+		if (n != _levels.length) {
+			_levels = new double[n][];
+			_lw = new int[n];
+			_lh = new int[n];
+		}
+		_pooling = pooling;
+		_lw[0] = w;
+		_lh[0] = h;
+		for (int l = 1; l < n; l++) {
+			_lw[l] = (_lw[l-1] + 1) / 2;
+			_lh[l] = (_lh[l-1] + 1) / 2;
+			if (_levels[l] == null || _levels[l].length != _lw[l]*_lh[l])
+				_levels[l] = new double[_lw[l]*_lh[l]];
+			final double[] src = (l == 1) ? data : _levels[l-1];
+			final double[] dst = _levels[l];
+			final int sl = l-1, sw = _lw[l-1], sh = _lh[l-1], dw = _lw[l];
+			RasterTiles.forTiles(dst.length, dw, pool, new RasterTiles.Tile() {
+				public void run(int from, int to) {
+					for (int row = from / dw; row < to / dw; row++)
+						halve(sl, src, sw, sh, dst, dw, row);
+				}
+			});
+		}
+	}
+	
+	// pools row of dst, of width dw, from the 2*2 blocks of src, level l of width sw and
+	// height sh
+	private void halve(int l, double[] src, int sw, int sh, double[] dst, int dw, int row) {
+		int y = 2*row;
+		// the last row and column of src may hold partial blocks, which weigh less in a
+		// mean, and an odd edge leaves a block of dst with fewer than 2*2 cells of src
+		boolean mean = (_pooling == Grid.Pooling.MEAN);
+		if (y+1 >= sh || (mean && y+2 >= sh)) {
+			for (int i = 0; i < dw; i++)
+				dst[row*dw+i] = pool(l, src, sw, 2*i, Math.min(2*i+2, sw), y, Math.min(y+2, sh));
+			return;
+		}
+		int full = (mean || (sw & 1) != 0) ? dw-1 : dw;
+		for (int i = full; i < dw; i++)
+			dst[row*dw+i] = pool(l, src, sw, 2*i, Math.min(2*i+2, sw), y, y+2);
+		int s0 = y*sw, s1 = s0 + sw, d = row*dw;
+		switch (_pooling) {
+		case MIN:
+			for (int i = 0; i < full; i++, s0 += 2, s1 += 2) {
+				dst[d+i] = min(min(src[s0], src[s0+1]), min(src[s1], src[s1+1]));
+			}
+			break;
+		case MAX:
+			for (int i = 0; i < full; i++, s0 += 2, s1 += 2) {
+				dst[d+i] = max(max(src[s0], src[s0+1]), max(src[s1], src[s1+1]));
+			}
+			break;
+		default:
+			for (int i = 0; i < full; i++, s0 += 2, s1 += 2)
+				dst[d+i] = 0.25 * ((src[s0] + src[s0+1]) + (src[s1] + src[s1+1]));
+		}
+	}
+
+	/**
+	 * Writes into out the pw*ph pixels covering the region [x0, x1) by [y0, y1) of the
+	 * grid, measured in cells, with data the grid the pyramid was built from.
+	 */
+	void render(double[] data, final double x0, final double y0, double x1, double y1,
+			final int pw, int ph, final double[] out, ForkJoinPool pool) {
+		// the coarsest level with cells no larger than a pixel
+		double cells = Math.min((x1-x0)/pw, (y1-y0)/ph);
+		int l = 0;
+		while (l+1 < _levels.length && (2 << l) <= cells)
+			l++;
+		final double[] src = (l == 0) ? data : _levels[l];
+		final int level = l;
+		final double scale = 1.0 / (1 << l);
+		final int w = _lw[l];
+		final int[] ix0 = new int[pw], ix1 = new int[pw];
+		final int[] iy0 = new int[ph], iy1 = new int[ph];
+		span(x0*scale, x1*scale, pw, w, ix0, ix1);
+		span(y0*scale, y1*scale, ph, _lh[l], iy0, iy1);
+		RasterTiles.forTiles(pw*ph, pw, pool, new RasterTiles.Tile() {
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					int px = i % pw, py = i / pw;
+					out[i] = pool(level, src, w, ix0[px], ix1[px], iy0[py], iy1[py]);
+				}
+			}
+		});
+	}
+
+	// the cells [i0[p], i1[p]) of a level n cells wide under each of pixels p in
+	// [0, pixels), which divide [a, b) evenly; a pixel narrower than a cell takes
+	// the cell under its center
+	private static void span(double a, double b, int pixels, int n, int[] i0, int[] i1) {
+		double d = (b - a) / pixels;
+		for (int p = 0; p < pixels; p++) {
+			double lo = a + d*p, hi = a + d*(p+1);
+			int c0, c1;
+			if (d < 1) {
+				c0 = (int)Math.floor((lo + hi) / 2);
+				c1 = c0 + 1;
+			}
+			else {
+				c0 = (int)Math.floor(lo);
+				c1 = (int)Math.ceil(hi);
+			}
+			i0[p] = Math.max(0, Math.min(c0, n-1));
+			i1[p] = Math.max(i0[p]+1, Math.min(c1, n));
+		}
+	}
+
+	// pools the cells [x0, x1) by [y0, y1) of level l, w cells wide
+	private double pool(int l, double[] src, int w, int x0, int x1, int y0, int y1) {
+		double ret = src[w*y0+x0];
+		switch (_pooling) {
+		case MIN:
+			for (int y = y0; y < y1; y++)
+				for (int x = x0; x < x1; x++)
+					ret = min(ret, src[w*y+x]);
+			return ret;
+		case MAX:
+			for (int y = y0; y < y1; y++)
+				for (int x = x0; x < x1; x++)
+					ret = max(ret, src[w*y+x]);
+			return ret;
+		default:
+			// each cell weighted by the number of grid cells it covers
+			ret = 0;
+			double weight = 0;
+			for (int y = y0; y < y1; y++) {
+				int wy = cells(l, y, _lh[0]);
+				for (int x = x0; x < x1; x++) {
+					double wxy = wy * cells(l, x, _lw[0]);
+					ret += wxy * src[w*y+x];
+					weight += wxy;
+				}
+			}
+			return ret / weight;
+		}
+	}
+
+	// the smaller and larger of a and b, ignoring NaN unless both are NaN
+	private static double min(double a, double b) {
+		return (a < b || b != b) ? a : b;
+	}
+
+	private static double max(double a, double b) {
+		return (a > b || b != b) ? a : b;
+	}
+
+	// the number of grid cells, of n in a row or column, in cell i of level l
+	private static int cells(int l, int i, int n) {
+		return Math.min(1 << l, n - (i << l));
+	}
+}
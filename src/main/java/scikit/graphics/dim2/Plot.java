@@ -20,6 +20,7 @@ import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 
 import scikit.dataset.DataSet;
+import scikit.dataset.DataView;
 import scikit.dataset.DatasetBuffer;
 import scikit.graphics.Drawable;
 import scikit.util.Bounds;
@@ -223,11 +224,21 @@ public class Plot extends Scene2D {
 			fname = FileUtil.saveDialog(_component, fname);
 			if (fname != null) {
 				PrintWriter pw = FileUtil.pwFromString(fname);
-				FileUtil.writeColumns(pw, data.copyData().columns());
+				writeColumns(pw, data.view());
 				pw.close();
 			}
 		} catch (IOException e) {}
 	}
+	
+	// the same format as FileUtil.writeColumns, without copying the points into columns
+	private static void writeColumns(PrintWriter pw, DataView data) {
+		for (int i = 0; i < data.size(); i++) {
+			pw.print(data.x(i) + " " + data.y(i) + " ");
+			if (data.hasErrorY())
+				pw.print(data.errorY(i) + " ");
+			pw.println();
+		}
+	}
 }
 
 class RegisteredData implements Drawable<Gfx2D> {
@@ -286,11 +297,15 @@ class RegisteredData implements Drawable<Gfx2D> {
 		//g.setColor(new Color(red, green, blue, alpha*2/3));
 		g.setColor(Color.RED);
 		
+		double[] segs = new double[4*pts.size()];
 		for (int i = 0; i < pts.size(); i++) {
 			double y_lo = pts.y(i) - pts.errorY(i);
 			double y_hi = pts.y(i) + pts.errorY(i);
-			g.drawLine(tx(pts,i), ty(y_lo), tx(pts,i), ty(y_hi));
+			segs[4*i+0] = segs[4*i+2] = tx(pts,i);
+			segs[4*i+1] = ty(y_lo);
+			segs[4*i+3] = ty(y_hi);
 		}
+		g.drawSegments(segs);
 	}
 	
 	
@@ -310,22 +325,29 @@ class RegisteredData implements Drawable<Gfx2D> {
 		return ty(pts.y(i));
 	}
 
+	// draws all points in one call, so that a GL engine can batch them
 	private void drawMarks(Gfx2D g, DatasetBuffer pts) {
 		g.setColor(_color);
-		for (int i = 0; i < pts.size(); i++) {
-			switch (_style) {
-			case MARKS:
-				g.drawPoint(tx(pts,i), ty(pts,i));
-				break;
-			case LINES:
-				if (i >= 1)
-					g.drawLine(tx(pts,i-1), ty(pts,i-1), tx(pts,i), ty(pts,i));
-				break;
-			case BARS:
-				g.drawLine(tx(pts,i), ty(pts,i), tx(pts,i), 0);
-				break;
+		int n = pts.size();
+		if (_style == Style.BARS) {
+			double[] segs = new double[4*n];
+			for (int i = 0; i < n; i++) {
+				segs[4*i+0] = segs[4*i+2] = tx(pts,i);
+				segs[4*i+1] = ty(pts,i);
+				segs[4*i+3] = 0;
 			}
+			g.drawSegments(segs);
+			return;
 		}
+		double[] xys = new double[2*n];
+		for (int i = 0; i < n; i++) {
+			xys[2*i+0] = tx(pts,i);
+			xys[2*i+1] = ty(pts,i);
+		}
+		if (_style == Style.MARKS)
+			g.drawPoints(xys);
+		else
+			g.drawLines(xys);
 	}
 
 	private Bounds expBounds(Bounds in) {
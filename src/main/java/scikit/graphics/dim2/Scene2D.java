@@ -19,6 +19,14 @@ import scikit.util.Point;
 
 
 public class Scene2D extends Scene<Gfx2D> {
+	/**
+	 * The system property choosing how 2D scenes draw. Unset, they draw through GL if
+	 * a hardware accelerated context can be made, and through Swing otherwise. "true"
+	 * uses GL whenever a context can be made, even on a software rasterizer, and
+	 * "false" always uses Swing.
+	 */
+	public static final String GL_PROPERTY = "scikit.graphics.gl";
+	
 	// the bounds which is currently visible to the user
 	protected Bounds _curBounds = new Bounds();
 	// is the view zoomed in?  this will disable autoscale
@@ -62,18 +70,24 @@ public class Scene2D extends Scene<Gfx2D> {
 		return _curBounds.clone();
 	}
 	
-	// returns an OpenGL hardware accelerated GLCanvas if it is available, otherwise an AWT backed Canvas.
+	// returns an OpenGL GLJPanel if GL is available, as chosen by the scikit.graphics.gl
+	// property, otherwise an AWT backed Canvas.
 	// uses reflection to avoid referring directly to the classes GLCapabilities or Gfx2DGL, otherwise
 	// an uncatchable NoClassDefFoundError may be thrown when the Scene2D class is loaded.
 	protected JComponent createCanvas() {
-//		try {
-//			Class<?> c = Class.forName("scikit.graphics.GLHelper");
-//			if ((Boolean)c.getMethod("testGL").invoke(null)) {
-//				c = Class.forName("scikit.graphics.dim2.Gfx2DGL");
-//				return (JComponent)c.getMethod("createComponent", Scene2D.class).invoke(null, this);
-//			}
-//		}
-//		catch (Exception e) {}
+		String property = System.getProperty(GL_PROPERTY);
+		if (!"false".equalsIgnoreCase(property)) {
+			try {
+				Class<?> c = Class.forName("scikit.graphics.GLHelper");
+				String test = "true".equalsIgnoreCase(property) ? "hasGL" : "testGL";
+				if ((Boolean)c.getMethod(test).invoke(null)) {
+					c = Class.forName("scikit.graphics.dim2.Gfx2DGL");
+					return (JComponent)c.getMethod("createComponent", Scene2D.class).invoke(null, this);
+				}
+			}
+			catch (Exception e) {}
+			catch (LinkageError e) {}
+		}
 		return Gfx2DSwing.createComponent(this);
 	}
 	
@@ -11,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
@@ -23,11 +24,13 @@ import javax.swing.event.ChangeListener;
 import scikit.graphics.ColorChooser;
 import scikit.graphics.ColorGradient;
 import scikit.graphics.Drawable;
+import scikit.graphics.PackedColorChooser;
+import scikit.graphics.RasterTiles;
+import scikit.graphics.SnapshotExchange;
 import scikit.numerics.vecmath.Quat4d;
 import scikit.numerics.vecmath.VecHelper;
 import scikit.util.Array3d;
 import scikit.util.Bounds;
-import scikit.util.DoubleArray;
 import scikit.util.FileUtil;
 
 
@@ -42,9 +45,14 @@ public class Grid3D extends Scene3D {
 	private JComboBox _viewCombo;
 	private ColorChooser _colors = new ColorGradient();
 	private int _w, _h, _d; // width, height, depth
+	// the snapshot being drawn, valid while drawing
 	private double[] _data;
+	private SnapshotExchange _snapshots = new SnapshotExchange();
+	// an array handed back by _snapshots, for registerData to fill
+	private double[] _spare;
 	private boolean _autoScale = true;
 	private double _lo = 0, _hi = 1;
+	private ForkJoinPool _pool = null;
 	
 	public Grid3D(String title) {
 		super(title);
@@ -55,6 +63,8 @@ public class Grid3D extends Scene3D {
 		// remove data first because super.clear() will repaint() the component
 		_w = _h = _d = 0;
 		_data = null;
+		_snapshots = new SnapshotExchange();
+		_spare = null;
 		super.clear();
 	}
 
@@ -70,6 +80,14 @@ public class Grid3D extends Scene3D {
 		_colors = colors;
 	}
 
+	/**
+	 * Splits the range search and the coloring of slice textures across the given
+	 * pool. A null pool, the default, does both on the calling thread.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		_pool = pool;
+	}
+
 	public void setAutoScale() {
 		_autoScale = true;
 	}
@@ -81,10 +99,28 @@ public class Grid3D extends Scene3D {
 	}
 
 	public void registerData(int w, int h, int d, double[] data) {
-		allocateBuffers(w, h, d, data.length);
-		System.arraycopy(data, 0, _data, 0, w*h*d);
-		findRange();
+		checkShape(w, h, d, data.length);
+		double[] buffer = (_spare == null || _spare.length != data.length) ? new double[data.length] : _spare;
+		System.arraycopy(data, 0, buffer, 0, w*h*d);
+		_spare = _snapshots.publish(buffer, w, h, d);
+		animate();
+	}
+	
+	/**
+	 * Displays data without copying it, for fields too large to copy every frame. The
+	 * grid keeps data as its latest snapshot, and reads it when it is next drawn, on
+	 * the drawing thread. Returns an array of w*h*d values, the previously published
+	 * snapshot when there is one, for the caller to fill with the next frame. The
+	 * caller must not write to data after publishing it, though it may still read it,
+	 * until data is handed back; this call waits only while the grid is drawing the
+	 * array it would hand back. Do not mix with registerData(), which may overwrite
+	 * arrays handed back to it.
+	 */
+	public double[] publishData(int w, int h, int d, double[] data) {
+		checkShape(w, h, d, data.length);
+		double[] ret = _snapshots.publish(data, w, h, d);
 		animate();
+		return (ret == null || ret.length != data.length) ? new double[data.length] : ret;
 	}
 	
 	public void registerData(Array3d a3d) {
@@ -92,14 +128,26 @@ public class Grid3D extends Scene3D {
 	}
 
 	public void extractData(double[] dst) {
-		System.arraycopy(_data, 0, dst, 0, _data.length);
+		beginRead();
+		try {
+			System.arraycopy(_data, 0, dst, 0, _data.length);
+		}
+		finally {
+			_snapshots.endRead();
+		}
 	}
 
 	public void saveData(String fname) {
 		try {
 			fname = FileUtil.saveDialog(_component, fname);
 			if (fname != null) {
-				new Array3d(_w, _h, _d, _data).writeFile(new File(fname));
+				beginRead();
+				try {
+					new Array3d(_w, _h, _d, _data).writeFile(new File(fname));
+				}
+				finally {
+					_snapshots.endRead();
+				}
 			}
 		} catch (IOException e) {
 			System.err.println(e.getMessage());
@@ -153,7 +201,7 @@ public class Grid3D extends Scene3D {
 
 	protected List<JMenuItem> getAllPopupMenuItems() {
 		List<JMenuItem> ret = new ArrayList<JMenuItem>(super.getAllPopupMenuItems());
-		if (_data != null) {
+		if (_w > 0) {
 			JMenuItem menuItem = new JMenuItem("Save grid data ...");
 			menuItem.addActionListener(new ActionListener() {
 				public void actionPerformed(ActionEvent e) {
@@ -202,33 +250,61 @@ public class Grid3D extends Scene3D {
 			return _colors.getColor(_data[_w*_h*z+_w*y+x], _lo, _hi);
 	}
 
+	// the packed color of getColor(x, y, z)
+	protected int getARGB(int x, int y, int z) {
+		if (x < 0 || x >= _w || y < 0 || y >= _h || z < 0 || z >= _d)
+			return 0;
+		double v = _data[_w*_h*z+_w*y+x];
+		if (_colors instanceof PackedColorChooser)
+			return ((PackedColorChooser)_colors).getARGB(v, _lo, _hi);
+		else
+			return _colors.getColor(v, _lo, _hi).getRGB();
+	}
+
+	protected ForkJoinPool getPool() {
+		return _pool;
+	}
+
 	protected int[] getDimensions() {
 		return new int[] {_w, _h, _d};
 	}
 	
 	private void findRange() {
 		if (_autoScale) {
-			_lo = DoubleArray.min(_data);
-			_hi = DoubleArray.max(_data);
+			double[] range = RasterTiles.range(_data, _data.length, _pool);
+			_lo = range[0];
+			_hi = range[1];
 		}
 	}
 
-	private void allocateBuffers(int w, int h, int d, int expectedSize) {
+	private void checkShape(int w, int h, int d, int expectedSize) {
 		if (w*h*d != expectedSize)
 			throw new IllegalArgumentException("Array length " + expectedSize
 					+ " does not fit specified shape (" + w + "*" + h + "*" + d + ")");
-		if (w != _w || h != _h || d != _d) {
-			_w = w;
-			_h = h;
-			_d = d;
-			_data = new double[w*h*d];
+	}
+	
+	// takes the latest snapshot for reading, finding its range if it is new; must be
+	// matched by _snapshots.endRead()
+	private synchronized void beginRead() {
+		_data = _snapshots.beginRead();
+		if (_snapshots.takeFresh()) {
+			int[] shape = _snapshots.getShape();
+			_w = shape[0];
+			_h = shape[1];
+			_d = shape[2];
+			findRange();
 		}
 	}
 	
 	private Drawable<Gfx3D> _gridDrawable = new Drawable<Gfx3D>() {
 		public void draw(Gfx3D g) {
-			if (_data != null) {
-				_views[_curView].draw(g);
+			beginRead();
+			try {
+				if (_data != null)
+					_views[_curView].draw(g);
+			}
+			finally {
+				_snapshots.endRead();
 			}
 			g.ortho2D(g.pixelBounds());
 			g.setColor(Color.BLACK);
@@ -4,12 +4,13 @@ import static java.lang.Math.rint;
 import static java.lang.Math.sqrt;
 
 import java.awt.Color;
-import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GL2;
 
+import scikit.graphics.RasterTiles;
 import scikit.numerics.vecmath.Quat4d;
 import scikit.numerics.vecmath.VecHelper;
 import scikit.numerics.vecmath.Vector3d;
@@ -25,6 +26,8 @@ public class Grid3DSliceView extends Grid3DView {
 	private Quat4d _rotation = new Quat4d(0, 0, 0, 1);
 	private Grid3D _grid;
 	private int[] _dim;
+	// the packed colors of each panel, kept between frames
+	private int[][] _pixels = new int[PANELS][];
 	
 	public Grid3DSliceView(Grid3D grid) {
 		_grid = grid;
@@ -81,57 +84,47 @@ public class Grid3DSliceView extends Grid3DView {
 		 return (getDisplayParam()*2-1)*0.96;
 	}
 	
-	private void putColor(ByteBuffer buffer, Color c) {
-		buffer.put((byte)c.getRed());
-		buffer.put((byte)c.getGreen());
-		buffer.put((byte)c.getBlue());
-		buffer.put((byte)c.getAlpha());
-	}
-	
-	private void writePixels(Gfx3D g, int side, int npix, ByteBuffer buffer) {
-		Vector3d v0, v1, v3, n;
+	// the corners v0, v1, v3 of panel side, or null if the panel faces away
+	private Vector3d[] panelCorners(Gfx3D g, int side) {
+		Vector3d v0, v1, v3;
 		if (side < CUBE_SIDES) {
 			v0 = _panel[side][0];
 			v1 = _panel[side][1];
 			v3 = _panel[side][3];
-			n = _normal[side];
 			// before rotation, the camera is looking down the negative z axis.  if the
 			// normal vector of a side of the cube dotted with the z axis is negative,
 			// then that side is not visible to the camera. however, because of perspective,
 			// the same cannot be said of an internal cube slice.
-			Vector3d normal = new Vector3d(n);
+			Vector3d normal = new Vector3d(_normal[side]);
 			VecHelper.rotate(g.rotation(), normal);
 			if (normal.dot(new Vector3d(0, 0, 1)) <= 0)
-				return;
+				return null;
 		}
 		else {
 			double r3 = sqrt(3);
 			v0 = new Vector3d(-r3, -r3, getDepth());
 			v1 = new Vector3d(+r3, -r3, getDepth());
 			v3 = new Vector3d(-r3, +r3, getDepth());
-			n = new Vector3d(0, 0, 1);
 			VecHelper.rotate(_rotation, v0);
 			VecHelper.rotate(_rotation, v1);
 			VecHelper.rotate(_rotation, v3);
-			VecHelper.rotate(_rotation, n);
 		}
-		
-		buffer.clear();
-		for (int py = 0; py < npix; py++) {
-			for (int px = 0; px < npix; px++) {
-				double gx = v0.x + ((v1.x-v0.x)*px+(v3.x-v0.x)*py)/(npix-1);
-				double gy = v0.y + ((v1.y-v0.y)*px+(v3.y-v0.y)*py)/(npix-1);
-				double gz = v0.z + ((v1.z-v0.z)*px+(v3.z-v0.z)*py)/(npix-1);
-				int ix = (int)rint(0.5*(gx+1)*(_dim[0]-1));
-				int iy = (int)rint(0.5*(gy+1)*(_dim[1]-1));
-				int iz = (int)rint(0.5*(gz+1)*(_dim[2]-1));
-				putColor(buffer, _grid.getColor(ix, iy, iz));
-			}
+		return new Vector3d[] {v0, v1, v3};
+	}
+	
+	// writes pixels [from, to) of a panel of npix*npix pixels with the given corners
+	private void writePixels(Vector3d[] corners, int npix, int[] pixels, int from, int to) {
+		Vector3d v0 = corners[0], v1 = corners[1], v3 = corners[2];
+		for (int p = from; p < to; p++) {
+			int py = p / npix, px = p % npix;
+			double gx = v0.x + ((v1.x-v0.x)*px+(v3.x-v0.x)*py)/(npix-1);
+			double gy = v0.y + ((v1.y-v0.y)*px+(v3.y-v0.y)*py)/(npix-1);
+			double gz = v0.z + ((v1.z-v0.z)*px+(v3.z-v0.z)*py)/(npix-1);
+			int ix = (int)rint(0.5*(gx+1)*(_dim[0]-1));
+			int iy = (int)rint(0.5*(gy+1)*(_dim[1]-1));
+			int iz = (int)rint(0.5*(gz+1)*(_dim[2]-1));
+			pixels[p] = _grid.getARGB(ix, iy, iz);
 		}
-		buffer.flip();
-		g.getGL().glTexImage2D(
-				GL.GL_TEXTURE_2D, 0, GL.GL_RGBA, npix, npix,
-				0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, buffer);
 	}
 	
 	private int[] buildTextures(Gfx3D g) {
@@ -143,14 +136,43 @@ public class Grid3DSliceView extends Grid3DView {
 		int wr = wallResolution;
 		int sr = sliceResolution;
 		int mr = Math.max(wr, sr);
-		int[] npix = new int[] {wr, wr, wr, wr, wr, wr, sr};
+		final int[] npix = new int[] {wr, wr, wr, wr, wr, wr, sr};
+		
+		// color the pixels of all visible panels as one parallel pass, indexing them
+		// as if the panels were laid end to end
+		final Vector3d[][] corners = new Vector3d[PANELS][];
+		final int[] start = new int[PANELS+1];
+		for (int side = 0; side < PANELS; side++) {
+			corners[side] = panelCorners(g, side);
+			int n = (corners[side] == null) ? 0 : npix[side]*npix[side];
+			start[side+1] = start[side] + n;
+			if (_pixels[side] == null || _pixels[side].length < n)
+				_pixels[side] = new int[n];
+		}
+		RasterTiles.forTiles(start[PANELS], 1, _grid.getPool(), new RasterTiles.Tile() {
+			public void run(int from, int to) {
+				for (int side = 0; side < PANELS; side++) {
+					int lo = Math.max(from, start[side]), hi = Math.min(to, start[side+1]);
+					if (lo < hi)
+						writePixels(corners[side], npix[side], _pixels[side], lo-start[side], hi-start[side]);
+				}
+			}
+		});
 		
-		ByteBuffer buffer = com.jogamp.opengl.util.GLBuffers.newDirectByteBuffer(mr*mr*4);
+		IntBuffer buffer = com.jogamp.opengl.util.GLBuffers.newDirectIntBuffer(mr*mr);
 		for (int side = 0; side < PANELS; side++) {
 			gl.glBindTexture(GL.GL_TEXTURE_2D, textures[side]);
 			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR);
 			gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
-			writePixels(g, side, npix[side], buffer);
+			if (corners[side] == null)
+				continue;
+			buffer.clear();
+			buffer.put(_pixels[side], 0, npix[side]*npix[side]);
+			buffer.flip();
+			// packed 0xAARRGGBB ints, uploaded without unpacking
+			gl.glTexImage2D(
+					GL.GL_TEXTURE_2D, 0, GL.GL_RGBA, npix[side], npix[side],
+					0, GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, buffer);
 		}
 		
 		return textures;
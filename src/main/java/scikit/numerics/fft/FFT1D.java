@@ -5,69 +5,153 @@ import scikit.numerics.fft.managed.ComplexDoubleFFT;
 import scikit.numerics.fft.managed.ComplexDoubleFFT_Mixed;
 import scikit.numerics.fn.Function1D;
 
+/**
+ * One dimensional FFT of real data. After <code>setLength</code> has been called, an
+ * instance may be shared between threads: every call runs in its own workspace taken
+ * from a pool (see {@link WorkspacePool}), so concurrent calls do not interfere.
+ */
 public class FFT1D {
 	public interface MapFn {
 		public void apply(double k, double re, double im);
 	};
 	
+	static class Workspace {
+		ComplexDoubleFFT fft;
+		double[] scratch;
+	}
+	
 	int dim1;
-	ComplexDoubleFFT fft;
-	double[] scratch;
+	WorkspacePool<Workspace> workspaces;
 	double dx1;
 	
 	public FFT1D(int dim1) {
 		this.dim1 = dim1;
-		fft = new ComplexDoubleFFT_Mixed(dim1);
-		scratch = new double[2*dim1];
+		workspaces = new WorkspacePool<Workspace>() {
+			protected Workspace create() {
+				Workspace ws = new Workspace();
+				ws.fft = new ComplexDoubleFFT_Mixed(FFT1D.this.dim1);
+				ws.scratch = new double[2*FFT1D.this.dim1];
+				return ws;
+			}
+		};
 		dx1 = 1;
 	}
 	
+	/**
+	 * Returns a transform from the best available {@link FFTProvider}, falling back to
+	 * the managed FFT1D.
+	 * @see FFTProviders#best()
+	 */
+	public static FFT1D create(int dim1) {
+		try {
+			return FFTProviders.best().create1D(dim1);
+		}
+		catch (RuntimeException e) {
+			FFTProviders.warn(e.toString());
+		}
+		return new FFT1D(dim1);
+	}
+	
 	public void setLength(double L1) {
 		dx1 = L1/dim1;
 	}
 	
 	public void transform(double[] src, MapFn fn) {
-		double L1 = dim1*dx1;
-		for (int i = dim1-1; i >= 0; i--) {
-			scratch[2*i+0] = src[i]*dx1;
-			scratch[2*i+1] = 0;
+		Workspace ws = workspaces.acquire();
+		try {
+			double L1 = dim1*dx1;
+			double[] scratch = ws.scratch;
+			for (int i = dim1-1; i >= 0; i--) {
+				scratch[2*i+0] = src[i]*dx1;
+				scratch[2*i+1] = 0;
+			}
+			
+			ws.fft.transform(scratch);
+			
+			for (int x = -dim1/2; x < dim1/2; x++) {
+				int i = (x+dim1)%dim1;
+				double k = 2*PI*x/L1;
+				fn.apply(k, scratch[2*i+0], scratch[2*i+1]);
+			}
 		}
-		
-		fft.transform(scratch);
-		scratch = fft.toWraparoundOrder(scratch);
-		
-		for (int x = -dim1/2; x < dim1/2; x++) {
-			int i = (x+dim1)%dim1;
-			double k = 2*PI*x/L1;
-			fn.apply(k, scratch[2*i+0], scratch[2*i+1]);
+		finally {
+			workspaces.release(ws);
 		}
 	}
 	
 	public void convolve(double[] src, double[] dst, Function1D fn) {
-		double L1 = dim1*dx1;
-		for (int i = dim1-1; i >= 0; i--) {
-			scratch[2*i+0] = src[i]*dx1;
-			scratch[2*i+1] = 0;
+		Workspace ws = workspaces.acquire();
+		try {
+			double L1 = dim1*dx1;
+			double[] scratch = ws.scratch;
+			for (int i = dim1-1; i >= 0; i--) {
+				scratch[2*i+0] = src[i]*dx1;
+				scratch[2*i+1] = 0;
+			}
+			
+			ws.fft.transform(scratch);
+			
+			for (int x = -dim1/2; x < dim1/2; x++) {
+				int i = (x+dim1)%dim1;
+				double k = 2*PI*x/L1;
+				double J = fn.eval(k);
+				scratch[2*i+0] *= J;
+				scratch[2*i+1] *= J;
+			}
+			
+			ws.fft.backtransform(scratch);
+			for (int i = 0; i < dim1; i++) {
+				dst[i] = scratch[2*i+0] / L1;
+			}
 		}
-		
-		fft.transform(scratch);
-		scratch = fft.toWraparoundOrder(scratch);
-
-		for (int x = -dim1/2; x < dim1/2; x++) {
-			int i = (x+dim1)%dim1;
-			double k = 2*PI*x/L1;
-			double J = fn.eval(k);
-			scratch[2*i+0] *= J;
-			scratch[2*i+1] *= J;
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	/**
+	 * Computes the circular autocorrelation of src,
+	 * <pre>
+	 *    dst[t] = sum_i src[i] src[(i+t) % dim1]
+	 * </pre>
+	 * through the power spectrum. To obtain the linear autocorrelation of a series of
+	 * length n, pad it with zeros to dim1 &gt;= 2n. It is permissible for src and dst to
+	 * be the same array.
+	 */
+	public void autocorrelation(double[] src, double[] dst) {
+		Workspace ws = workspaces.acquire();
+		try {
+			double[] scratch = ws.scratch;
+			for (int i = dim1-1; i >= 0; i--) {
+				scratch[2*i+0] = src[i];
+				scratch[2*i+1] = 0;
+			}
+			
+			ws.fft.transform(scratch);
+			
+			for (int i = 0; i < dim1; i++) {
+				double re = scratch[2*i+0];
+				double im = scratch[2*i+1];
+				scratch[2*i+0] = re*re + im*im;
+				scratch[2*i+1] = 0;
+			}
+			
+			ws.fft.backtransform(scratch);
+			for (int i = 0; i < dim1; i++) {
+				dst[i] = scratch[2*i+0] / dim1;
+			}
 		}
-		
-		fft.backtransform(scratch);
-		for (int i = 0; i < dim1; i++) {
-			dst[i] = scratch[2*i+0] / L1;
+		finally {
+			workspaces.release(ws);
 		}
 	}
 	
+	/**
+	 * Returns the scratch array of the workspace that served the calling thread's last
+	 * transform, which holds that transform's spectrum until another call reuses the
+	 * workspace.
+	 */
 	public double[] getScratch() {
-		return scratch;
+		return workspaces.lastAcquired().scratch;
 	}
 }
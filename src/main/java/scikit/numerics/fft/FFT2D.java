@@ -1,127 +1,320 @@
 package scikit.numerics.fft;
 
 import static java.lang.Math.PI;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import scikit.numerics.fft.managed.ComplexDouble2DFFT;
+import scikit.numerics.fft.managed.RealDouble3DFFT;
 import scikit.numerics.fn.Function2D;
 
 // TODO: copy interface from FFT3D
+/**
+ * Two dimensional FFT of real data. After <code>setLengths</code> has been called, an
+ * instance may be shared between threads: every call runs in its own workspace taken
+ * from a pool (see {@link WorkspacePool}), so concurrent calls do not interfere.
+ */
 public class FFT2D {
 	public interface MapFn {
 		public void apply(double k1, double k2, double re, double im);
 	};
 	
+	class Workspace {
+		RealDouble3DFFT rfft;
+		// half spectrum of a real field, as used by convolve
+		double[] rscratch;
+		// full complex transform, created on first use
+		ComplexDouble2DFFT fft;
+		double[] scratch;
+		
+		ComplexDouble2DFFT fft() {
+			if (fft == null) {
+				// dim2 rows of dim1 points, so that x1 varies fastest
+				fft = new ComplexDouble2DFFT(dim2, dim1, pool);
+				scratch = new double[2*dim1*dim2];
+			}
+			return fft;
+		}
+	}
+	
 	public int dim1, dim2;
-	ComplexDouble2DFFT fft;
-	double[] scratch;
+	ForkJoinPool pool;
+	WorkspacePool<Workspace> workspaces;
+	// workspaces with serial transforms, for fields convolved concurrently on the pool
+	private WorkspacePool<Workspace> fieldWorkspaces;
 	double dx1, dx2;
 	
 	public FFT2D(int dim1, int dim2) {
+		this(dim1, dim2, null);
+	}
+	
+	/**
+	 * Creates an FFT whose row and column sweeps are split across the given pool. A null
+	 * pool selects the serial transform.
+	 */
+	public FFT2D(int dim1, int dim2, ForkJoinPool pool) {
 		this.dim1 = dim1;
 		this.dim2 = dim2;
-		fft = new ComplexDouble2DFFT(dim1, dim2);
-		scratch = new double[2*dim1*dim2];
+		this.pool = pool;
+		workspaces = createWorkspaces(pool);
 		dx1 = dx2 = 1;
 	}
 	
+	private WorkspacePool<Workspace> createWorkspaces(final ForkJoinPool pool) {
+		return new WorkspacePool<Workspace>() {
+			protected Workspace create() {
+				Workspace ws = new Workspace();
+				ws.rfft = new RealDouble3DFFT(dim1, dim2, 1, pool);
+				ws.rscratch = new double[ws.rfft.spectrumLength()];
+				return ws;
+			}
+		};
+	}
+	
+	/**
+	 * Returns a transform from the best available {@link FFTProvider}, falling back to
+	 * the managed FFT2D.
+	 * @see FFTProviders#best()
+	 */
+	public static FFT2D create(int dim1, int dim2) {
+		try {
+			return FFTProviders.best().create2D(dim1, dim2);
+		}
+		catch (RuntimeException e) {
+			FFTProviders.warn(e.toString());
+		}
+		return new FFT2D(dim1, dim2);
+	}
+	
 	public void setLengths(double L1, double L2) {
 		dx1 = L1/dim1;
 		dx2 = L2/dim2;
 	}
 	
 	public void transform(double[] src, double[] dst) {
+		Workspace ws = workspaces.acquire();
+		try {
+			transform(ws, src, dst);
+		}
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	void transform(Workspace ws, double[] src, double[] dst) {
 		for (int i = dim1*dim2-1; i >= 0; i--) {
 			dst[2*i+0] = src[i]*dx1*dx2;
 			dst[2*i+1] = 0;
 		}
-		fft.transform(dst);
-		fft.toWraparoundOrder(dst);
+		ws.fft().transform(dst);
 	}
 	
 	public void backtransform(double[] src, double[] dst) {
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		fft.backtransform(src);
-		for (int i = 0; i < dim1*dim2; i++) {
-			dst[i] = src[2*i+0] / (L1*L2);
+		Workspace ws = workspaces.acquire();
+		try {
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			ws.fft().backtransform(src);
+			for (int i = 0; i < dim1*dim2; i++) {
+				dst[i] = src[2*i+0] / (L1*L2);
+			}
+		}
+		finally {
+			workspaces.release(ws);
 		}
 	}
 	
 	public void transform(double[] phi, MapFn fn) {
-		// TODO: replace following with
-		// transform(phi, scratch);
-		for (int i = dim1*dim2-1; i >= 0; i--) {
-			scratch[2*i+0] = phi[i]*dx1*dx2;
-			scratch[2*i+1] = 0;
-		}
-		fft.transform(scratch);
-		scratch = fft.toWraparoundOrder(scratch);
-		
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
-			for (int x1 = -dim1/2; x1 < dim1/2; x1++) {
-				int i = dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
-				double k1 = 2*PI*x1/L1;
-				double k2 = 2*PI*x2/L2;
-				fn.apply(k1, k2, scratch[2*i+0], scratch[2*i+1]);
+		Workspace ws = workspaces.acquire();
+		try {
+			ws.fft();
+			double[] scratch = ws.scratch;
+			transform(ws, phi, scratch);
+			
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
+				for (int x1 = -dim1/2; x1 < dim1/2; x1++) {
+					int i = dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
+					double k1 = 2*PI*x1/L1;
+					double k2 = 2*PI*x2/L2;
+					fn.apply(k1, k2, scratch[2*i+0], scratch[2*i+1]);
+				}
 			}
 		}
+		finally {
+			workspaces.release(ws);
+		}
 	}
 	
-	// It is OK if src and dst are the same array.
+	/**
+	 * Convolves src with fn into dst. It is OK if src and dst are the same array.
+	 * The spectrum of fn is sampled once through {@link #kernel}, and only its even part
+	 * (fn(k) + fn(-k))/2 contributes, which gives the real part of the convolution with
+	 * the full kernel. Call {@link KernelSpectrum#clearCache} if fn changes.
+	 */
 	public void convolve(double[] src, double[] dst, Function2D fn) {
-		// TODO: replace following with
-		// transform(phi, scratch);
-		for (int i = dim1*dim2-1; i >= 0; i--) {
-			scratch[2*i+0] = src[i]*dx1*dx2;
-			scratch[2*i+1] = 0;
+		convolve(src, dst, kernel(fn));
+	}
+	
+	/**
+	 * Convolves src with the Fourier array fn, as built by
+	 * <code>buildFourierArray</code>, into dst. Like the convolution with a function,
+	 * this uses the half spectrum only when fn is even.
+	 */
+	public void convolve(double[] src, double[] dst, double[] fn) {
+		Workspace ws = workspaces.acquire();
+		try {
+			convolve(ws, src, dst, fn);
 		}
-		fft.transform(scratch);
-		scratch = fft.toWraparoundOrder(scratch);
-
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
-			for (int x1 = -dim1/2; x1 < dim1/2; x1++) {
-				int i = dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
-				double k1 = 2*PI*x1/L1;
-				double k2 = 2*PI*x2/L2;
-				double J = fn.eval(k1, k2);
-				scratch[2*i+0] *= J;
-				scratch[2*i+1] *= J;
-			}
+		finally {
+			workspaces.release(ws);
 		}
+	}
+	
+	void convolve(Workspace ws, double[] src, double[] dst, double[] fn) {
+		if (!isEven(fn)) {
+			convolveFull(ws, src, dst, fn);
+			return;
+		}
+		ws.rfft.transform(src, ws.rscratch);
 		
-		// TODO: replace following with
-		// backtransform(scratch, dst);
-		fft.backtransform(scratch);
-		for (int i = 0; i < dim1*dim2; i++) {
-			dst[i] = scratch[2*i+0] / (L1*L2);
+		double scale = ws.rfft.normalization();
+		int dim1p = dim1/2+1;
+		for (int x2 = 0; x2 < dim2; x2++) {
+			for (int x1 = 0; x1 < dim1p; x1++) {
+				int i = dim1p*x2 + x1;
+				double J = scale*fn[dim1*x2 + x1];
+				ws.rscratch[2*i+0] *= J;
+				ws.rscratch[2*i+1] *= J;
+			}
 		}
+		
+		ws.rfft.backtransform(ws.rscratch, dst);
 	}
 	
-	public void convolve(double[] src, double[] dst, double[] fn) {
+	// convolution through the full complex spectrum, for kernels that are not even
+	void convolveFull(Workspace ws, double[] src, double[] dst, double[] fn) {
 		double L1 = dim1*dx1;
 		double L2 = dim2*dx2;
-		for (int i = dim1*dim2-1; i >= 0; i--) {
-			scratch[2*i+0] = src[i]*dx1*dx2;
-			scratch[2*i+1] = 0;
-		}
-		
-		fft.transform(scratch);
-		scratch = fft.toWraparoundOrder(scratch);
-		
+		ws.fft();
+		double[] scratch = ws.scratch;
+		transform(ws, src, scratch);
 		for (int i = 0; i < dim1*dim2; i++) {
 			scratch[2*i+0] *= fn[i];
 			scratch[2*i+1] *= fn[i];
 		}
-		
-		fft.backtransform(scratch);
+		ws.fft.backtransform(scratch);
 		for (int i = 0; i < dim1*dim2; i++) {
 			dst[i] = scratch[2*i+0] / (L1*L2);
 		}
 	}
 	
+	// whether the Fourier array fn, in wraparound order, satisfies fn(-k) = fn(k), so
+	// that the half spectrum determines the convolution
+	boolean isEven(double[] fn) {
+		for (int x2 = 0; x2 < dim2; x2++) {
+			int y2 = (dim2 - x2) % dim2;
+			for (int x1 = 0; x1 < dim1; x1++) {
+				int y1 = (dim1 - x1) % dim1;
+				if (!(fn[dim1*x2 + x1] == fn[dim1*y2 + y1]))
+					return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Convolves src with a precomputed kernel spectrum into dst. It is OK if src and dst
+	 * are the same array.
+	 */
+	public void convolve(double[] src, double[] dst, KernelSpectrum J) {
+		J.checkDimensions(dim1, dim2, 1);
+		Workspace ws = workspaces.acquire();
+		try {
+			convolve(ws, src, dst, J);
+		}
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	void convolve(Workspace ws, double[] src, double[] dst, KernelSpectrum J) {
+		ws.rfft.transform(src, ws.rscratch);
+		
+		double scale = ws.rfft.normalization();
+		double[] values = J.values;
+		for (int i = 0; i < values.length; i++) {
+			ws.rscratch[2*i+0] *= scale*values[i];
+			ws.rscratch[2*i+1] *= scale*values[i];
+		}
+		
+		ws.rfft.backtransform(ws.rscratch, dst);
+	}
+	
+	/**
+	 * Returns the spectrum of fn sampled for the current dimensions and lengths, shared
+	 * through the {@link KernelSpectrum#cached} cache.
+	 */
+	public KernelSpectrum kernel(Function2D fn) {
+		return KernelSpectrum.cached(fn, dim1, dim2, dim1*dx1, dim2*dx2);
+	}
+	
+	/**
+	 * Convolves each field src[i] with fn into dst[i], sharing the spectrum of fn with
+	 * {@link #kernel}.
+	 */
+	public void convolve(double[][] src, double[][] dst, Function2D fn) {
+		convolve(src, dst, new KernelSpectrum[] {kernel(fn)});
+	}
+	
+	public void convolve(double[][] src, double[][] dst, KernelSpectrum J) {
+		convolve(src, dst, new KernelSpectrum[] {J});
+	}
+	
+	/**
+	 * Convolves each field src[i] with its own kernel J[i] into dst[i]. A single kernel
+	 * J[0] is applied to every field. When there are at least as many fields as pool
+	 * threads, whole fields are convolved concurrently, each by a serial transform, as in
+	 * {@link FFT3DManagedReal#convolve(double[][], double[][], KernelSpectrum[])}.
+	 */
+	public void convolve(final double[][] src, final double[][] dst, final KernelSpectrum[] J) {
+		FFT3D.checkBatch(src, dst, J.length);
+		for (KernelSpectrum K : J)
+			K.checkDimensions(dim1, dim2, 1);
+		if (pool == null || src.length < 2 || src.length < pool.getParallelism()) {
+			for (int i = 0; i < src.length; i++)
+				convolve(src[i], dst[i], J[J.length == 1 ? 0 : i]);
+			return;
+		}
+		final WorkspacePool<Workspace> wsp;
+		synchronized (this) {
+			if (fieldWorkspaces == null)
+				fieldWorkspaces = createWorkspaces(null);
+			wsp = fieldWorkspaces;
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				RecursiveAction[] fields = new RecursiveAction[src.length];
+				for (int i = 0; i < src.length; i++) {
+					final int f = i;
+					fields[i] = new RecursiveAction() {
+						protected void compute() {
+							Workspace ws = wsp.acquire();
+							try {
+								convolve(ws, src[f], dst[f], J[J.length == 1 ? 0 : f]);
+							}
+							finally {
+								wsp.release(ws);
+							}
+						}
+					};
+				}
+				invokeAll(fields);
+			}
+		});
+	}
 	
 	public double[] buildFourierArray(Function2D fn) {
 		double[] ret = new double[dim1*dim2];
@@ -164,13 +357,27 @@ public class FFT2D {
 				ret[i] = fn.eval(dx1*x1, dx2*x2);
 			}
 		}
-		transform(ret, scratch);
-		for (int i=0; i < dim1*dim2; i++) {
-			ret[i] = scratch[2*i+0];
+		Workspace ws = workspaces.acquire();
+		try {
+			ws.fft();
+			transform(ws, ret, ws.scratch);
+			for (int i=0; i < dim1*dim2; i++) {
+				ret[i] = ws.scratch[2*i+0];
+			}
+		}
+		finally {
+			workspaces.release(ws);
 		}
 	}
 
+	/**
+	 * Returns the full complex scratch array of the workspace that served the calling
+	 * thread's last call, which holds the spectrum of a <code>transform(phi, fn)</code>
+	 * until another call reuses the workspace.
+	 */
 	public double[] getScratch() {
-		return scratch;
+		Workspace ws = workspaces.lastAcquired();
+		ws.fft();
+		return ws.scratch;
 	}
 }
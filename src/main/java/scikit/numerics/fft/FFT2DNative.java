@@ -0,0 +1,42 @@
+package scikit.numerics.fft;
+
+import java.util.concurrent.ForkJoinPool;
+
+import jfftw.real.nd.Plan;
+
+/**
+ * FFT2D whose convolutions with kernel spectra, and so with functions, run through
+ * FFTW, with the planning flags and wisdom of {@link FFT3DNative}. The other
+ * transforms are those of the managed FFT2D.
+ */
+public class FFT2DNative extends FFT2D {
+	// FFTW plans may be executed concurrently; only the scratch arrays are per call
+	Plan fftForward, fftBackward;
+	
+	public FFT2DNative(int dim1, int dim2) {
+		this(dim1, dim2, null);
+	}
+	
+	public FFT2DNative(int dim1, int dim2, ForkJoinPool pool) {
+		super(dim1, dim2, pool);
+		fftForward = new Plan(new int[]{dim2, dim1}, Plan.REAL_TO_COMPLEX, FFT3DNative.flags);
+		fftBackward = new Plan(new int[]{dim2, dim1}, Plan.COMPLEX_TO_REAL, FFT3DNative.flags);
+		FFT3DNative.saveWisdom();
+	}
+	
+	void convolve(Workspace ws, double[] src, double[] dst, KernelSpectrum J) {
+		// the half spectrum scratch of the managed transform has FFTW's layout
+		double[] scratch = ws.rscratch;
+		double scale = 1.0/(dim1*dim2);
+		
+		fftForward.transform(1, src, 1, 0, scratch, 1, 0);
+		
+		double[] values = J.values;
+		for (int i = 0; i < values.length; i++) {
+			scratch[2*i+0] *= scale*values[i];
+			scratch[2*i+1] *= scale*values[i];
+		}
+		
+		fftBackward.transform(1, scratch, 1, 0, dst, 1, 0);
+	}
+}
@@ -1,33 +1,45 @@
 package scikit.numerics.fft;
 
-import java.lang.reflect.InvocationTargetException;
-
 import scikit.numerics.fn.Function3D;
 
+/**
+ * Three dimensional FFT of real data. After <code>setLengths</code> has been called,
+ * implementations may be shared between threads: every call runs in its own workspace
+ * taken from a pool (see {@link WorkspacePool}), so concurrent calls do not interfere
+ * and memory grows only with the number of simultaneous callers.
+ */
 public abstract class FFT3D {
 	public interface MapFn {
 		public void apply(double k1, double k2, double k3, double re, double im);
 	};
 	
 	public int dim1, dim2, dim3;
-	protected double[] scratch;
 	protected double dx1, dx2, dx3;
 	
 	abstract public void transform(double[] src, MapFn fn);
+	/**
+	 * Convolves src with fn into dst. Only the even part (fn(k) + fn(-k))/2 of the kernel
+	 * contributes, so that the result is real. The spectrum of fn is sampled once through
+	 * {@link #kernel}; call {@link KernelSpectrum#clearCache} if fn changes.
+	 */
 	abstract public void convolve(double[] src, double[] dst, Function3D fn);
+	abstract public void convolve(double[] src, double[] dst, KernelSpectrum J);
 	
+	/**
+	 * Returns a transform from the best available {@link FFTProvider}, normally FFTW if
+	 * the native library can be loaded, and otherwise the pure Java implementation,
+	 * which uses the same half spectrum layout.
+	 * @see FFTProviders#best()
+	 */
 	public static FFT3D create(int dim1, int dim2, int dim3) {
+		FFTProvider provider = FFTProviders.best();
 		try {
-			Class<?> c = Class.forName("scikit.numerics.fft.FFT3DNative");
-			return (FFT3D)c.getConstructor(int.class, int.class, int.class).newInstance(dim1, dim2, dim3);
-		}
-		catch (InvocationTargetException e) {
-			System.out.println(e.getCause());
+			return provider.create3D(dim1, dim2, dim3);
 		}
-		catch (Exception e) {
-			System.out.println(e);
+		catch (RuntimeException e) {
+			FFTProviders.warn(e.toString());
 		}
-		return new FFT3DManaged(dim1, dim2, dim3);
+		return new FFT3DManagedReal(dim1, dim2, dim3);
 	}
 	
 	public void setLengths(double L1, double L2, double L3) {
@@ -35,4 +47,45 @@ public abstract class FFT3D {
 		dx2 = L2/dim2;
 		dx3 = L3/dim3;
 	}
+	
+	/**
+	 * Returns the spectrum of fn sampled for the current dimensions and lengths, shared
+	 * through the {@link KernelSpectrum#cached} cache.
+	 */
+	public KernelSpectrum kernel(Function3D fn) {
+		return KernelSpectrum.cached(fn, dim1, dim2, dim3, dim1*dx1, dim2*dx2, dim3*dx3);
+	}
+	
+	/**
+	 * Convolves each field src[i] with fn into dst[i], sharing the spectrum of fn with
+	 * {@link #kernel}. It is permissible for src and dst to reference the same arrays.
+	 */
+	public void convolve(double[][] src, double[][] dst, Function3D fn) {
+		convolve(src, dst, new KernelSpectrum[] {kernel(fn)});
+	}
+	
+	/**
+	 * Convolves each field src[i] with the kernel J into dst[i].
+	 */
+	public void convolve(double[][] src, double[][] dst, KernelSpectrum J) {
+		convolve(src, dst, new KernelSpectrum[] {J});
+	}
+	
+	/**
+	 * Convolves each field src[i] with its own kernel J[i] into dst[i]. A single kernel
+	 * J[0] is applied to every field. Implementations may convolve the fields
+	 * concurrently.
+	 */
+	public void convolve(double[][] src, double[][] dst, KernelSpectrum[] J) {
+		checkBatch(src, dst, J.length);
+		for (int i = 0; i < src.length; i++)
+			convolve(src[i], dst[i], J[J.length == 1 ? 0 : i]);
+	}
+	
+	static void checkBatch(double[][] src, double[][] dst, int nkernels) {
+		if (src.length != dst.length)
+			throw new IllegalArgumentException("Source and destination batch sizes don't match.");
+		if (nkernels != 1 && nkernels != src.length)
+			throw new IllegalArgumentException("Number of kernels doesn't match batch size.");
+	}
 }
@@ -1,57 +1,123 @@
 package scikit.numerics.fft;
 
 import static java.lang.Math.PI;
+
+import java.util.concurrent.ForkJoinPool;
+
 import scikit.numerics.fft.managed.ComplexDouble3DFFT;
 import scikit.numerics.fn.Function3D;
 
 public class FFT3DManaged extends FFT3D {
-	ComplexDouble3DFFT fft;
+	static class Workspace {
+		ComplexDouble3DFFT fft;
+		double[] scratch;
+	}
+	
+	ForkJoinPool pool;
+	int[] blocks = {1, 1, 1};
+	WorkspacePool<Workspace> workspaces;
 	
 	public FFT3DManaged(int dim1, int dim2, int dim3) {
+		this(dim1, dim2, dim3, null);
+	}
+	
+	/**
+	 * Creates a managed FFT whose axis sweeps are split across the given pool. A null
+	 * pool selects the serial transform.
+	 */
+	public FFT3DManaged(int dim1, int dim2, int dim3, ForkJoinPool pool) {
 		this.dim1 = dim1;
 		this.dim2 = dim2;
 		this.dim3 = dim3;
-		fft = new ComplexDouble3DFFT(dim1, dim2, dim3);
-		scratch = new double[2*dim1*dim2*dim3];
+		this.pool = pool;
+		workspaces = new WorkspacePool<Workspace>() {
+			protected Workspace create() {
+				Workspace ws = new Workspace();
+				// ComplexDouble3DFFT varies its last dimension fastest, as dim1 does here
+				ws.fft = new ComplexDouble3DFFT(FFT3DManaged.this.dim3, FFT3DManaged.this.dim2,
+						FFT3DManaged.this.dim1, FFT3DManaged.this.pool);
+				for (int axis = 1; axis <= 3; axis++)
+					ws.fft.setBlocking(4-axis, blocks[axis-1]);
+				ws.scratch = new double[2*FFT3DManaged.this.dim1*FFT3DManaged.this.dim2*FFT3DManaged.this.dim3];
+				return ws;
+			}
+		};
 		dx1 = dx2 = dx3 = 1;
 	}
 	
+	/**
+	 * Gathers blocks of pencils along the given axis into a contiguous tile before
+	 * transforming them. Like <code>setLengths</code>, this should be called before the
+	 * instance is shared between threads.
+	 * @see ComplexDouble3DFFT#setBlocking(int, int)
+	 */
+	public void setBlocking(int axis, int block) {
+		workspaces.primary.fft.setBlocking(4-axis, block);
+		blocks[axis-1] = block;
+	}
+	
 	public void transform(double[] src, double[] dst) {
+		Workspace ws = workspaces.acquire();
+		try {
+			transform(ws, src, dst);
+		}
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	void transform(Workspace ws, double[] src, double[] dst) {
 		for (int i = dim1*dim2*dim3-1; i >= 0; i--) {
 			dst[2*i+0] = src[i]*dx1*dx2*dx3;
 			dst[2*i+1] = 0;
 		}
-		fft.transform(dst);
-		fft.toWraparoundOrder(dst);
+		ws.fft.transform(dst);
 	}
 	
 	public void backtransform(double[] src, double[] dst) {
+		Workspace ws = workspaces.acquire();
+		try {
+			backtransform(ws, src, dst);
+		}
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	void backtransform(Workspace ws, double[] src, double[] dst) {
 		double L1 = dim1*dx1;
 		double L2 = dim2*dx2;
 		double L3 = dim3*dx3;
-		fft.backtransform(src);
+		ws.fft.backtransform(src);
 		for (int i = 0; i < dim1*dim2*dim3; i++) {
 			dst[i] = src[2*i+0] / (L1*L2*L3);
 		}
 	}
 
 	public void transform(double[] src, MapFn fn) {
-		transform(src, scratch);
+		Workspace ws = workspaces.acquire();
+		double[] scratch = ws.scratch;
+		try {
+			transform(ws, src, scratch);
 		
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		double L3 = dim3*dx3;
-		for (int x3 = -dim3/2; x3 < dim3/2; x3++) {
-			for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
-				for (int x1 = -dim1/2; x1 < dim1/2; x1++) {
-					int i = dim1*dim2*((x3+dim3)%dim3) + dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
-					double k1 = 2*PI*x1/L1;
-					double k2 = 2*PI*x2/L2;
-					double k3 = 2*PI*x3/L3;
-					fn.apply(k1, k2, k3, scratch[2*i+0], scratch[2*i+1]);
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			double L3 = dim3*dx3;
+			for (int x3 = -dim3/2; x3 <= (dim3-1)/2; x3++) {
+				for (int x2 = -dim2/2; x2 <= (dim2-1)/2; x2++) {
+					for (int x1 = -dim1/2; x1 <= (dim1-1)/2; x1++) {
+						int i = dim1*dim2*((x3+dim3)%dim3) + dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
+						double k1 = 2*PI*x1/L1;
+						double k2 = 2*PI*x2/L2;
+						double k3 = 2*PI*x3/L3;
+						fn.apply(k1, k2, k3, scratch[2*i+0], scratch[2*i+1]);
+					}
 				}
 			}
 		}
+		finally {
+			workspaces.release(ws);
+		}
 	}
 	
 	/**
@@ -62,61 +128,104 @@ public class FFT3DManaged extends FFT3D {
 	 * @param fn
 	 */
 	public void convolve(double[] src, double[] dst, Function3D fn) {
-		transform(src, scratch);
+		Workspace ws = workspaces.acquire();
+		double[] scratch = ws.scratch;
+		try {
+			transform(ws, src, scratch);
 		
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		double L3 = dim3*dx3;
-		for (int x3 = -dim3/2; x3 < dim3/2; x3++) {
-			for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
-				for (int x1 = -dim1/2; x1 < dim1/2; x1++) {
-					int i = dim1*dim2*((x3+dim3)%dim3) + dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
-					double k1 = 2*PI*x1/L1;
-					double k2 = 2*PI*x2/L2;
-					double k3 = 2*PI*x3/L3;
-					double J = fn.eval(k1, k2, k3);
-					scratch[2*i+0] *= J;
-					scratch[2*i+1] *= J;
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			double L3 = dim3*dx3;
+			for (int x3 = -dim3/2; x3 <= (dim3-1)/2; x3++) {
+				for (int x2 = -dim2/2; x2 <= (dim2-1)/2; x2++) {
+					for (int x1 = -dim1/2; x1 <= (dim1-1)/2; x1++) {
+						int i = dim1*dim2*((x3+dim3)%dim3) + dim1*((x2+dim2)%dim2) + (x1+dim1)%dim1;
+						double k1 = 2*PI*x1/L1;
+						double k2 = 2*PI*x2/L2;
+						double k3 = 2*PI*x3/L3;
+						double J = fn.eval(k1, k2, k3);
+						scratch[2*i+0] *= J;
+						scratch[2*i+1] *= J;
+					}
 				}
 			}
-		}
 		
-		backtransform(scratch, dst);
+			backtransform(ws, scratch, dst);
+		}
+		finally {
+			workspaces.release(ws);
+		}
 	}
 	
 	public void convolve2(double[] src, double[] dst, Function3D fn) {
-		transform(src, scratch);
+		Workspace ws = workspaces.acquire();
+		double[] scratch = ws.scratch;
+		try {
+			transform(ws, src, scratch);
 		
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		double L3 = dim3*dx3;
-		for (int x3 = 0; x3 <= dim3/2; x3++) {
-			for (int x2 = 0; x2 <= dim2/2; x2++) {
-				for (int x1 = 0; x1 <= dim1/2; x1++) {
-					double k1 = 2*PI*x1/L1;
-					double k2 = 2*PI*x2/L2;
-					double k3 = 2*PI*x3/L3;
-					double J = fn.eval(k1, k2, k3);
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			double L3 = dim3*dx3;
+			for (int x3 = 0; x3 <= dim3/2; x3++) {
+				for (int x2 = 0; x2 <= dim2/2; x2++) {
+					for (int x1 = 0; x1 <= dim1/2; x1++) {
+						double k1 = 2*PI*x1/L1;
+						double k2 = 2*PI*x2/L2;
+						double k3 = 2*PI*x3/L3;
+						double J = fn.eval(k1, k2, k3);
 					
-					for (int s3 = -1; s3 <= 1; s3 += 2) {
-						for (int s2 = -1; s2 <= 1; s2 += 2) { 
-							for (int s1 = -1; s1 <= 1; s1 += 2) { 
-								int i = dim1*dim2*((s3*x3+dim3)%dim3) + dim1*((s2*x2+dim2)%dim2) + (s1*x1+dim1)%dim1;
-								scratch[2*i+0] *= J;
-								scratch[2*i+1] *= J;
-								if (x1 == 0 || x1 == dim1/2)
+						for (int s3 = -1; s3 <= 1; s3 += 2) {
+							for (int s2 = -1; s2 <= 1; s2 += 2) { 
+								for (int s1 = -1; s1 <= 1; s1 += 2) { 
+									int i = dim1*dim2*((s3*x3+dim3)%dim3) + dim1*((s2*x2+dim2)%dim2) + (s1*x1+dim1)%dim1;
+									scratch[2*i+0] *= J;
+									scratch[2*i+1] *= J;
+									if (x1 == 0 || 2*x1 == dim1)
+										break;
+								}
+								if (x2 == 0 || 2*x2 == dim2)
 									break;
 							}
-							if (x2 == 0 || x2 == dim2/2)
+							if (x3 == 0 || 2*x3 == dim3)
 								break;
 						}
-						if (x3 == 0 || x3 == dim3/2)
-							break;
 					}
 				}
 			}
+		
+			backtransform(ws, scratch, dst);
+		}
+		finally {
+			workspaces.release(ws);
 		}
+	}
+	
+	/**
+	 * Convolves src with a precomputed kernel spectrum. Points outside the stored half
+	 * spectrum use J(-k) = J(k).
+	 */
+	public void convolve(double[] src, double[] dst, KernelSpectrum J) {
+		J.checkDimensions(dim1, dim2, dim3);
+		Workspace ws = workspaces.acquire();
+		double[] scratch = ws.scratch;
+		try {
+			transform(ws, src, scratch);
 		
-		backtransform(scratch, dst);
+			for (int i3 = 0; i3 < dim3; i3++) {
+				for (int i2 = 0; i2 < dim2; i2++) {
+					for (int i1 = 0; i1 < dim1; i1++) {
+						int i = dim1*dim2*i3 + dim1*i2 + i1;
+						double v = J.get(i1, i2, i3);
+						scratch[2*i+0] *= v;
+						scratch[2*i+1] *= v;
+					}
+				}
+			}
+		
+			backtransform(ws, scratch, dst);
+		}
+		finally {
+			workspaces.release(ws);
+		}
 	}
 }
@@ -0,0 +1,162 @@
+package scikit.numerics.fft;
+
+import static java.lang.Math.PI;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import scikit.numerics.fft.managed.RealDouble3DFFT;
+import scikit.numerics.fn.Function3D;
+
+/**
+ * Pure Java counterpart of {@link FFT3DNative}. Real input is transformed into the
+ * half spectrum (dim1/2+1 points along dim1), using the same layout and
+ * <code>MapFn</code> semantics as the native implementation, so that it needs half the
+ * memory and roughly half the work of {@link FFT3DManaged}.
+ */
+public class FFT3DManagedReal extends FFT3D {
+	static class Workspace {
+		RealDouble3DFFT fft;
+		double[] scratch;
+	}
+	
+	ForkJoinPool pool;
+	WorkspacePool<Workspace> workspaces;
+	// workspaces with serial transforms, for fields convolved concurrently on the pool
+	private WorkspacePool<Workspace> fieldWorkspaces;
+	
+	public FFT3DManagedReal(int dim1, int dim2, int dim3) {
+		this(dim1, dim2, dim3, null);
+	}
+	
+	public FFT3DManagedReal(int dim1, int dim2, int dim3, ForkJoinPool pool) {
+		this.dim1 = dim1;
+		this.dim2 = dim2;
+		this.dim3 = dim3;
+		this.pool = pool;
+		workspaces = createWorkspaces(pool);
+		dx1 = dx2 = dx3 = 1;
+	}
+	
+	private WorkspacePool<Workspace> createWorkspaces(final ForkJoinPool pool) {
+		return new WorkspacePool<Workspace>() {
+			protected Workspace create() {
+				Workspace ws = new Workspace();
+				ws.fft = new RealDouble3DFFT(dim1, dim2, dim3, pool);
+				ws.scratch = new double[ws.fft.spectrumLength()];
+				return ws;
+			}
+		};
+	}
+	
+	public void transform(double[] src, MapFn fn) {
+		Workspace ws = workspaces.acquire();
+		try {
+			double[] scratch = ws.scratch;
+			ws.fft.transform(src, scratch);
+			
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			double L3 = dim3*dx3;
+			double scale = dx1*dx2*dx3; 
+			
+			int dim1p = dim1/2 + 1;
+			for (int x3 = -dim3/2; x3 <= (dim3-1)/2; x3++) {
+				for (int x2 = -dim2/2; x2 <= (dim2-1)/2; x2++) {
+					for (int x1 = 0; x1 <= dim1/2; x1++) {
+						int i = dim1p*dim2*((x3+dim3)%dim3) + dim1p*((x2+dim2)%dim2) + x1;
+						double k1 = 2*PI*x1/L1;
+						double k2 = 2*PI*x2/L2;
+						double k3 = 2*PI*x3/L3;
+						fn.apply(k1, k2, k3, scale*scratch[2*i+0], scale*scratch[2*i+1]);
+					}
+				}
+			}
+		}
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	/**
+	 * Convolves source array src with function fn into destination dst
+	 * It is permissible for src and dst to reference the same array.
+	 * The spectrum of fn is sampled once and shared through {@link #kernel}, and only
+	 * its even part contributes (see {@link KernelSpectrum}).
+	 * @param src
+	 * @param dst
+	 * @param fn
+	 */
+	public void convolve(double[] src, double[] dst, Function3D fn) {
+		convolve(src, dst, kernel(fn));
+	}
+	
+	public void convolve(double[] src, double[] dst, KernelSpectrum J) {
+		J.checkDimensions(dim1, dim2, dim3);
+		Workspace ws = workspaces.acquire();
+		try {
+			convolve(ws, src, dst, J);
+		}
+		finally {
+			workspaces.release(ws);
+		}
+	}
+	
+	void convolve(Workspace ws, double[] src, double[] dst, KernelSpectrum J) {
+		double scale = ws.fft.normalization();
+		double[] scratch = ws.scratch;
+		
+		ws.fft.transform(src, scratch);
+		
+		double[] values = J.values;
+		for (int i = 0; i < values.length; i++) {
+			scratch[2*i+0] *= scale*values[i];
+			scratch[2*i+1] *= scale*values[i];
+		}
+		
+		ws.fft.backtransform(scratch, dst);
+	}
+	
+	/**
+	 * Convolves each field src[i] with its kernel into dst[i]. When there are at least as
+	 * many fields as pool threads, whole fields are convolved concurrently, each by a
+	 * serial transform in its own workspace, rather than one after another with every
+	 * axis sweep split across the pool. This replaces the six fork/join barriers per
+	 * field with one per batch.
+	 */
+	public void convolve(final double[][] src, final double[][] dst, final KernelSpectrum[] J) {
+		checkBatch(src, dst, J.length);
+		if (pool == null || src.length < 2 || src.length < pool.getParallelism()) {
+			super.convolve(src, dst, J);
+			return;
+		}
+		for (KernelSpectrum K : J)
+			K.checkDimensions(dim1, dim2, dim3);
+		final WorkspacePool<Workspace> wsp;
+		synchronized (this) {
+			if (fieldWorkspaces == null)
+				fieldWorkspaces = createWorkspaces(null);
+			wsp = fieldWorkspaces;
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				RecursiveAction[] fields = new RecursiveAction[src.length];
+				for (int i = 0; i < src.length; i++) {
+					final int f = i;
+					fields[i] = new RecursiveAction() {
+						protected void compute() {
+							Workspace ws = wsp.acquire();
+							try {
+								convolve(ws, src[f], dst[f], J[J.length == 1 ? 0 : f]);
+							}
+							finally {
+								wsp.release(ws);
+							}
+						}
+					};
+				}
+				invokeAll(fields);
+			}
+		});
+	}
+}
@@ -1,15 +1,87 @@
 package scikit.numerics.fft;
 
 import static java.lang.Math.PI;
+
+import java.io.File;
+import java.io.IOException;
+
+import jfftw.Wisdom;
 import jfftw.real.nd.Plan;
 import scikit.numerics.fn.Function3D;
 
 
+/**
+ * FFT3D backed by FFTW through jfftw. The planning effort is chosen with the system
+ * property <code>scikit.fftw.planning</code>, one of "estimate" (the default),
+ * "measure" or "patient". Measured plans are remembered as FFTW wisdom in the file
+ * named by <code>scikit.fftw.wisdom</code>, by default ~/.scikit/fftw-wisdom, so
+ * that the planning cost is paid once per machine rather than once per run.
+ * <p>
+ * "patient" requires the FFTW 3 build of the jfftw library (lib/jfftw/c3); with
+ * FFTW 2 it is equivalent to "measure".
+ */
 public class FFT3DNative extends FFT3D {
-	static int flags = Plan.ESTIMATE;
-//	static int flags = Plan.MEASURE;
+	public static final String PLANNING_PROPERTY = "scikit.fftw.planning";
+	public static final String WISDOM_PROPERTY = "scikit.fftw.wisdom";
+	
+	// understood only by the FFTW 3 port of jfftw; see lib/jfftw/c3
+	static final int PATIENT = 1024;
+	
+	// READONLY lets concurrent callers execute the same plan without blocking
+	static final int flags = planningFlags() | Plan.READONLY;
+	static final File wisdomFile = new File(System.getProperty(WISDOM_PROPERTY,
+			System.getProperty("user.home")+File.separator+".scikit"+File.separator+"fftw-wisdom"));
+	static String wisdom;
+	
+	static {
+		if ((flags & Plan.USE_WISDOM) != 0 && wisdomFile.exists()) {
+			try {
+				Wisdom.load(wisdomFile);
+				wisdom = Wisdom.get();
+			}
+			catch (Exception e) {
+				FFTProviders.warn("Unable to load FFTW wisdom from "+wisdomFile+": "+e);
+			}
+		}
+	}
+	
+	static int planningFlags() {
+		String planning = System.getProperty(PLANNING_PROPERTY, "estimate");
+		if (planning.equals("measure"))
+			return Plan.MEASURE | Plan.USE_WISDOM;
+		if (planning.equals("patient")) {
+			// FFTW 3 wisdom is tagged "(fftw-3..."; FFTW 2 does not know the flag
+			String w = Wisdom.get();
+			boolean fftw3 = (w != null && w.startsWith("(fftw-3"));
+			return (fftw3 ? PATIENT : 0) | Plan.MEASURE | Plan.USE_WISDOM;
+		}
+		if (!planning.equals("estimate"))
+			FFTProviders.warn("Unknown FFTW planning '"+planning+"', using 'estimate'");
+		return Plan.ESTIMATE;
+	}
 	
+	/** Writes the accumulated wisdom back to disk if planning has added to it. */
+	static synchronized void saveWisdom() {
+		if ((flags & Plan.USE_WISDOM) == 0)
+			return;
+		String current = Wisdom.get();
+		if (current == null || current.equals(wisdom))
+			return;
+		try {
+			File dir = wisdomFile.getParentFile();
+			if (dir != null)
+				dir.mkdirs();
+			Wisdom.save(wisdomFile);
+			wisdom = current;
+		}
+		catch (IOException e) {
+			FFTProviders.warn("Unable to save FFTW wisdom to "+wisdomFile+": "+e);
+		}
+	}
+	
+	// FFTW plans may be executed concurrently; only the scratch arrays are per call
 	Plan fftForward, fftBackward;
+	WorkspacePool<double[]> workspaces;
 	
 	public FFT3DNative(int dim1, int dim2, int dim3) {
 		this.dim1 = dim1;
@@ -17,56 +89,67 @@ public class FFT3DNative extends FFT3D {
 		this.dim3 = dim3;
 		fftForward = new Plan(new int[]{dim3, dim2, dim1}, Plan.REAL_TO_COMPLEX, flags);
 		fftBackward = new Plan(new int[]{dim3, dim2, dim1}, Plan.COMPLEX_TO_REAL, flags);
-		scratch = new double[2*dim3*dim2*(dim1/2+1)];
+		saveWisdom();
+		final int spectrumLength = 2*dim3*dim2*(dim1/2+1);
+		workspaces = new WorkspacePool<double[]>() {
+			protected double[] create() {
+				return new double[spectrumLength];
+			}
+		};
 		dx1 = dx2 = dx3 = 1;
 	}
 	
 
 	public void transform(double[] src, MapFn fn) {
-		fftForward.transform(1, src, 1, 0, scratch, 1, 0);
+		double[] scratch = workspaces.acquire();
+		try {
+			fftForward.transform(1, src, 1, 0, scratch, 1, 0);
 		
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		double L3 = dim3*dx3;
-		double scale = dx1*dx2*dx3; 
+			double L1 = dim1*dx1;
+			double L2 = dim2*dx2;
+			double L3 = dim3*dx3;
+			double scale = dx1*dx2*dx3; 
 			
-		int dim1p = dim1/2 + 1;
-		for (int x3 = -dim3/2; x3 < dim3/2; x3++) {
-			for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
-				for (int x1 = 0; x1 <= dim1/2; x1++) {
-					int i = dim1p*dim2*((x3+dim3)%dim3) + dim1p*((x2+dim2)%dim2) + x1;
-					double k1 = 2*PI*x1/L1;
-					double k2 = 2*PI*x2/L2;
-					double k3 = 2*PI*x3/L3;
-					fn.apply(k1, k2, k3, scale*scratch[2*i+0], scale*scratch[2*i+1]);
+			int dim1p = dim1/2 + 1;
+			for (int x3 = -dim3/2; x3 <= (dim3-1)/2; x3++) {
+				for (int x2 = -dim2/2; x2 <= (dim2-1)/2; x2++) {
+					for (int x1 = 0; x1 <= dim1/2; x1++) {
+						int i = dim1p*dim2*((x3+dim3)%dim3) + dim1p*((x2+dim2)%dim2) + x1;
+						double k1 = 2*PI*x1/L1;
+						double k2 = 2*PI*x2/L2;
+						double k3 = 2*PI*x3/L3;
+						fn.apply(k1, k2, k3, scale*scratch[2*i+0], scale*scratch[2*i+1]);
+					}
 				}
 			}
 		}
+		finally {
+			workspaces.release(scratch);
+		}
 	}
 	
 	public void convolve(double[] src, double[] dst, Function3D fn) {
-		double L1 = dim1*dx1;
-		double L2 = dim2*dx2;
-		double L3 = dim3*dx3;
-		double scale = 1.0/(dim1*dim2*dim3);
+		convolve(src, dst, kernel(fn));
+	}
+	
+	public void convolve(double[] src, double[] dst, KernelSpectrum J) {
+		J.checkDimensions(dim1, dim2, dim3);
+		double[] scratch = workspaces.acquire();
+		try {
+			double scale = 1.0/(dim1*dim2*dim3);
 		
-		fftForward.transform(1, src, 1, 0, scratch, 1, 0);
+			fftForward.transform(1, src, 1, 0, scratch, 1, 0);
 		
-		int dim1p = dim1/2 + 1;
-		for (int x3 = -dim3/2; x3 < dim3/2; x3++) {
-			for (int x2 = -dim2/2; x2 < dim2/2; x2++) {
-				for (int x1 = 0; x1 <= dim1/2; x1++) {
-					int i = dim1p*dim2*((x3+dim3)%dim3) + dim1p*((x2+dim2)%dim2) + x1;
-					double k1 = 2*PI*x1/L1;
-					double k2 = 2*PI*x2/L2;
-					double k3 = 2*PI*x3/L3;
-					double J = scale*fn.eval(k1, k2, k3);
-					scratch[2*i+0] *= J;
-					scratch[2*i+1] *= J;
-				}
+			double[] values = J.values;
+			for (int i = 0; i < values.length; i++) {
+				scratch[2*i+0] *= scale*values[i];
+				scratch[2*i+1] *= scale*values[i];
 			}
-		}
 		
-		fftBackward.transform(1, scratch, 1, 0, dst, 1, 0);		
+			fftBackward.transform(1, scratch, 1, 0, dst, 1, 0);
+		}
+		finally {
+			workspaces.release(scratch);
+		}
 	}
 }
@@ -0,0 +1,31 @@
+package scikit.numerics.fft;
+
+/**
+ * A source of FFT implementations. {@link FFT1D#create}, {@link FFT2D#create} and
+ * {@link FFT3D#create} ask the available provider with the highest priority for a
+ * transform. Besides the built in
+ * FFTW and pure Java providers, further providers are discovered with
+ * {@link java.util.ServiceLoader}, by listing their class names in
+ * <code>META-INF/services/scikit.numerics.fft.FFTProvider</code>.
+ * <p>
+ * The system property <code>scikit.fft.provider</code> selects a provider by name,
+ * overriding the priorities.
+ */
+public interface FFTProvider {
+	/** A short name, such as "fftw" or "managed", used by the scikit.fft.provider property. */
+	public String getName();
+	
+	/** Providers with a higher priority are preferred. The pure Java provider has priority 0. */
+	public int getPriority();
+	
+	/** Returns false if the provider can not run here, for example because its native library is missing. */
+	public boolean isAvailable();
+	
+	/** Returns a 1D transform; providers without one of their own return an {@link FFT1D}. */
+	public FFT1D create1D(int dim1);
+	
+	/** Returns a 2D transform; providers without one of their own return an {@link FFT2D}. */
+	public FFT2D create2D(int dim1, int dim2);
+	
+	public FFT3D create3D(int dim1, int dim2, int dim3);
+}
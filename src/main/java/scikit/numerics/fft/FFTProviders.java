@@ -0,0 +1,144 @@
+package scikit.numerics.fft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The registry of {@link FFTProvider}s, holding the built in providers followed by
+ * those found on the class path.
+ */
+public class FFTProviders {
+	public static final String PROVIDER_PROPERTY = "scikit.fft.provider";
+	public static final String VERBOSE_PROPERTY = "scikit.fft.verbose";
+	
+	private static List<FFTProvider> providers;
+	
+	/**
+	 * Reports a problem that was recovered from in choosing or configuring an FFT. It
+	 * is printed only if the scikit.fft.verbose property is "true".
+	 */
+	static void warn(String message) {
+		if (Boolean.getBoolean(VERBOSE_PROPERTY))
+			System.err.println(message);
+	}
+	
+	public static synchronized List<FFTProvider> all() {
+		if (providers == null) {
+			providers = new ArrayList<FFTProvider>();
+			providers.add(new NativeProvider());
+			providers.add(new ManagedProvider());
+			try {
+				for (FFTProvider p : ServiceLoader.load(FFTProvider.class))
+					providers.add(p);
+			}
+			catch (ServiceConfigurationError e) {
+				warn(e.toString());
+			}
+		}
+		return providers;
+	}
+	
+	/**
+	 * Returns the provider named by the scikit.fft.provider property if it is set and
+	 * available, and otherwise the available provider with the highest priority.
+	 */
+	public static FFTProvider best() {
+		String name = System.getProperty(PROVIDER_PROPERTY);
+		FFTProvider best = null;
+		for (FFTProvider p : all()) {
+			if (!p.isAvailable())
+				continue;
+			if (p.getName().equals(name))
+				return p;
+			if (best == null || p.getPriority() > best.getPriority())
+				best = p;
+		}
+		if (name != null)
+			warn("FFT provider '"+name+"' is not available, using '"+best.getName()+"'");
+		return best;
+	}
+	
+	/**
+	 * FFTW through jfftw; see {@link FFT3DNative} and {@link FFT2DNative}. One
+	 * dimensional transforms are the managed ones.
+	 */
+	static class NativeProvider implements FFTProvider {
+		Boolean available;
+		
+		public String getName() {
+			return "fftw";
+		}
+		
+		public int getPriority() {
+			return 100;
+		}
+		
+		public synchronized boolean isAvailable() {
+			if (available == null) {
+				try {
+					Class.forName("jfftw.real.nd.Plan");
+					System.loadLibrary("jfftw");
+					available = true;
+				}
+				catch (Throwable e) {
+					available = false;
+				}
+			}
+			return available;
+		}
+		
+		public FFT1D create1D(int dim1) {
+			return new FFT1D(dim1);
+		}
+		
+		public FFT2D create2D(int dim1, int dim2) {
+			return (FFT2D)create("scikit.numerics.fft.FFT2DNative", dim1, dim2);
+		}
+		
+		public FFT3D create3D(int dim1, int dim2, int dim3) {
+			return (FFT3D)create("scikit.numerics.fft.FFT3DNative", dim1, dim2, dim3);
+		}
+		
+		// loaded reflectively so that this class does not link against jfftw
+		private Object create(String name, Integer... dims) {
+			try {
+				Class<?>[] types = new Class<?>[dims.length];
+				for (int i = 0; i < dims.length; i++)
+					types[i] = int.class;
+				return Class.forName(name).getConstructor(types).newInstance((Object[])dims);
+			}
+			catch (Exception e) {
+				throw new IllegalStateException("Unable to create FFTW transform", e);
+			}
+		}
+	}
+	
+	/** The pure Java transforms, {@link FFT1D}, {@link FFT2D} and {@link FFT3DManagedReal}. Always available. */
+	static class ManagedProvider implements FFTProvider {
+		public String getName() {
+			return "managed";
+		}
+		
+		public int getPriority() {
+			return 0;
+		}
+		
+		public boolean isAvailable() {
+			return true;
+		}
+		
+		public FFT1D create1D(int dim1) {
+			return new FFT1D(dim1);
+		}
+		
+		public FFT2D create2D(int dim1, int dim2) {
+			return new FFT2D(dim1, dim2);
+		}
+		
+		public FFT3D create3D(int dim1, int dim2, int dim3) {
+			return new FFT3DManagedReal(dim1, dim2, dim3);
+		}
+	}
+}
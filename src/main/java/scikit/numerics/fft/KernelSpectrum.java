@@ -0,0 +1,173 @@
+package scikit.numerics.fft;
+
+import static java.lang.Math.PI;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import scikit.numerics.fn.Function2D;
+import scikit.numerics.fn.Function3D;
+
+/**
+ * A convolution kernel sampled once in Fourier space. Values are stored in the half
+ * spectrum layout produced by {@link FFT3DManagedReal} and {@link FFT3DNative},
+ * <pre>
+ *    J[k1,k2,k3] = values[k1 + dim1p*(k2 + dim2*k3)]
+ * </pre>
+ * with dim1p = dim1/2+1, 0 &lt;= k1 &lt;= dim1/2, and k2, k3 in wraparound order. Only
+ * the even part (J(k) + J(-k))/2 of the sampled function is stored, since the odd part
+ * would make the convolution of a real field complex; the result is the real part of
+ * the convolution with the full kernel, as computed through the full complex spectrum
+ * by {@link FFT3DManaged}. Two dimensional kernels use dim3 = 1.
+ * <p>
+ * Sampling is only valid as long as the function does not change. Spectra can be
+ * shared between FFT objects of the same dimensions and lengths via {@link #cached}.
+ */
+public class KernelSpectrum {
+	public final int dim1, dim2, dim3;
+	public final double L1, L2, L3;
+	public final double[] values;
+
+	private KernelSpectrum(int dim1, int dim2, int dim3, double L1, double L2, double L3) {
+		this.dim1 = dim1;
+		this.dim2 = dim2;
+		this.dim3 = dim3;
+		this.L1 = L1;
+		this.L2 = L2;
+		this.L3 = L3;
+		values = new double[(dim1/2+1)*dim2*dim3];
+	}
+
+	public static KernelSpectrum sample(Function3D fn, int dim1, int dim2, int dim3, double L1, double L2, double L3) {
+		KernelSpectrum ret = new KernelSpectrum(dim1, dim2, dim3, L1, L2, L3);
+		int dim1p = dim1/2 + 1;
+		for (int x3 = -dim3/2; x3 <= (dim3-1)/2; x3++) {
+			for (int x2 = -dim2/2; x2 <= (dim2-1)/2; x2++) {
+				for (int x1 = 0; x1 <= dim1/2; x1++) {
+					int i = dim1p*dim2*((x3+dim3)%dim3) + dim1p*((x2+dim2)%dim2) + x1;
+					double k1 = 2*PI*x1/L1;
+					double k2 = 2*PI*x2/L2;
+					double k3 = 2*PI*x3/L3;
+					ret.values[i] = 0.5*(fn.eval(k1, k2, k3) + fn.eval(-k1, -k2, -k3));
+				}
+			}
+		}
+		return ret;
+	}
+
+	public static KernelSpectrum sample(Function2D fn, int dim1, int dim2, double L1, double L2) {
+		KernelSpectrum ret = new KernelSpectrum(dim1, dim2, 1, L1, L2, 1);
+		int dim1p = dim1/2 + 1;
+		for (int x2 = -dim2/2; x2 <= (dim2-1)/2; x2++) {
+			for (int x1 = 0; x1 <= dim1/2; x1++) {
+				int i = dim1p*((x2+dim2)%dim2) + x1;
+				double k1 = 2*PI*x1/L1;
+				double k2 = 2*PI*x2/L2;
+				ret.values[i] = 0.5*(fn.eval(k1, k2) + fn.eval(-k1, -k2));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the kernel value for the full spectrum index (i1, i2, i3), each in
+	 * wraparound order, using J(-k) = J(k) for the half that is not stored.
+	 */
+	public double get(int i1, int i2, int i3) {
+		if (i1 > dim1/2) {
+			i1 = dim1 - i1;
+			i2 = (dim2 - i2) % dim2;
+			i3 = (dim3 - i3) % dim3;
+		}
+		return values[i1 + (dim1/2+1)*(i2 + dim2*i3)];
+	}
+
+	public void checkDimensions(int dim1, int dim2, int dim3) {
+		if (dim1 != this.dim1 || dim2 != this.dim2 || dim3 != this.dim3)
+			throw new IllegalArgumentException("Kernel spectrum is "+this.dim1+"x"+this.dim2+"x"+this.dim3+
+					", expected "+dim1+"x"+dim2+"x"+dim3);
+	}
+
+
+	private static final int CACHE_SIZE = 32;
+	private static final Map<Key, KernelSpectrum> cache = new LinkedHashMap<Key, KernelSpectrum>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry<Key, KernelSpectrum> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Returns the sampled spectrum of fn, reusing a previously sampled one when the same
+	 * function object is requested with the same dimensions and lengths. The least
+	 * recently used spectra are evicted once the cache holds more than 32 entries.
+	 */
+	public static KernelSpectrum cached(Function3D fn, int dim1, int dim2, int dim3, double L1, double L2, double L3) {
+		Key key = new Key(fn, dim1, dim2, dim3, L1, L2, L3);
+		synchronized (cache) {
+			KernelSpectrum ret = cache.get(key);
+			if (ret == null) {
+				ret = sample(fn, dim1, dim2, dim3, L1, L2, L3);
+				cache.put(key, ret);
+			}
+			return ret;
+		}
+	}
+
+	public static KernelSpectrum cached(Function2D fn, int dim1, int dim2, double L1, double L2) {
+		Key key = new Key(fn, dim1, dim2, 1, L1, L2, 1);
+		synchronized (cache) {
+			KernelSpectrum ret = cache.get(key);
+			if (ret == null) {
+				ret = sample(fn, dim1, dim2, L1, L2);
+				cache.put(key, ret);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Drops all cached spectra, for example after the parameters of a kernel function
+	 * have changed.
+	 */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private static class Key {
+		final Object fn;
+		final int dim1, dim2, dim3;
+		final double L1, L2, L3;
+
+		Key(Object fn, int dim1, int dim2, int dim3, double L1, double L2, double L3) {
+			this.fn = fn;
+			this.dim1 = dim1;
+			this.dim2 = dim2;
+			this.dim3 = dim3;
+			this.L1 = L1;
+			this.L2 = L2;
+			this.L3 = L3;
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key)o;
+			return fn == k.fn && dim1 == k.dim1 && dim2 == k.dim2 && dim3 == k.dim3
+					&& L1 == k.L1 && L2 == k.L2 && L3 == k.L3;
+		}
+
+		public int hashCode() {
+			int h = System.identityHashCode(fn);
+			h = 31*h + dim1;
+			h = 31*h + dim2;
+			h = 31*h + dim3;
+			h = 31*h + Double.valueOf(L1).hashCode();
+			h = 31*h + Double.valueOf(L2).hashCode();
+			h = 31*h + Double.valueOf(L3).hashCode();
+			return h;
+		}
+	}
+}
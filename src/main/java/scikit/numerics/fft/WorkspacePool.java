@@ -0,0 +1,60 @@
+package scikit.numerics.fft;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Hands out the per-call state (scratch arrays and 1D transform objects) of an FFT, so
+ * that one FFT instance can be used from several threads at once. A workspace is owned
+ * by exactly one call between {@link #acquire()} and {@link #release}. New workspaces
+ * are only created when all existing ones are in use, so memory is bounded by the
+ * largest number of simultaneous callers.
+ * <p>
+ * A thread gets back the workspace it used last whenever that one is idle; otherwise
+ * idle workspaces are reused most-recently-released first. A single threaded caller
+ * therefore always receives the primary workspace, the one created with the FFT.
+ * Threads remember their last workspace only weakly, so that neither long lived
+ * threads nor the pool keep the workspaces of a discarded FFT alive.
+ */
+abstract class WorkspacePool<W> {
+	private final ConcurrentLinkedDeque<W> idle = new ConcurrentLinkedDeque<W>();
+	final W primary;
+	// the workspace each thread acquired last
+	private final ThreadLocal<WeakReference<W>> last = new ThreadLocal<WeakReference<W>>();
+
+	WorkspacePool() {
+		primary = create();
+		idle.offerFirst(primary);
+	}
+
+	protected abstract W create();
+
+	W acquire() {
+		W w = last();
+		if (w == null || !idle.remove(w)) {
+			w = idle.pollFirst();
+			if (w == null)
+				w = create();
+			last.set(new WeakReference<W>(w));
+		}
+		return w;
+	}
+	
+	private W last() {
+		WeakReference<W> ref = last.get();
+		return (ref == null) ? null : ref.get();
+	}
+	
+	/**
+	 * Returns the workspace the calling thread acquired last, or the primary workspace
+	 * if it has not acquired one.
+	 */
+	W lastAcquired() {
+		W w = last();
+		return (w == null) ? primary : w;
+	}
+
+	void release(W w) {
+		idle.offerFirst(w);
+	}
+}
@@ -1,4 +1,8 @@
 package scikit.numerics.fft.managed;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /** Computes the FFT of 2 dimensional complex, double precision data.
   * The data is stored in a 1-dimensional array in Row-Major order.
   * The physical layout in the array data, of the mathematical data d[i,j] is as follows:
@@ -17,17 +21,30 @@ package scikit.numerics.fft.managed;
 public class ComplexDouble2DFFT {
   int nrows;
   int ncols;
-  ComplexDoubleFFT rowFFT, colFFT;
+  ForkJoinPool pool;
+  // One row and one column transform per chunk of pencils, each with its own scratch space
+  ComplexDoubleFFT rowFFTs[], colFFTs[];
 
   /** Create an FFT for transforming nrows*ncols points of Complex, double precision
     * data. */
   public ComplexDouble2DFFT(int nrows, int ncols) {
+    this(nrows, ncols, null); }
+
+  /** Create an FFT for transforming nrows*ncols points of Complex, double precision
+    * data. If pool is non-null, the rows (and then the columns) are split into
+    * pool.getParallelism() chunks which are transformed concurrently on the pool. */
+  public ComplexDouble2DFFT(int nrows, int ncols, ForkJoinPool pool) {
     if ((nrows <= 0) || (ncols <= 0))
       throw new IllegalArgumentException("The array dimensions >=0 : "+nrows+","+ncols);
     this.nrows = nrows;
     this.ncols = ncols;
-    rowFFT = new ComplexDoubleFFT_Mixed(ncols);
-    colFFT = (nrows == ncols ? rowFFT : new ComplexDoubleFFT_Mixed(nrows));
+    this.pool = pool;
+    int nworkers = (pool == null ? 1 : pool.getParallelism());
+    rowFFTs = new ComplexDoubleFFT[nworkers];
+    colFFTs = new ComplexDoubleFFT[nworkers];
+    for (int w = 0; w < nworkers; w++) {
+      rowFFTs[w] = new ComplexDoubleFFT_Mixed(ncols);
+      colFFTs[w] = (nrows == ncols ? rowFFTs[w] : new ComplexDoubleFFT_Mixed(nrows)); }
   }
 
   protected void checkData(double data[], int rowspan){
@@ -49,10 +66,8 @@ public class ComplexDouble2DFFT {
     * alternating real and imaginary parts. */
   public void transform(double data[], int rowspan) {
     checkData(data,rowspan);
-    for(int i=0; i<nrows; i++){
-      rowFFT.transform(data,i*rowspan,2); }
-    for(int j=0; j<ncols; j++){
-      colFFT.transform(data,2*j,rowspan); }}
+    sweep(data, rowspan, true, -1);
+    sweep(data, rowspan, false, -1); }
 
   /** Return data in wraparound order.
     * @see <a href="package-summary.html#wraparound">wraparound format</A> */
@@ -79,10 +94,37 @@ public class ComplexDouble2DFFT {
   /** Compute the (unnormalized) inverse FFT of data, leaving it in place.*/
   public void backtransform(double data[], int rowspan) {
     checkData(data,rowspan);
-    for(int j=0; j<ncols; j++){
-      colFFT.backtransform(data,2*j,rowspan); }
-    for(int i=0; i<nrows; i++){
-      rowFFT.backtransform(data,i*rowspan,2); }}
+    sweep(data, rowspan, false, +1);
+    sweep(data, rowspan, true, +1); }
+
+  /** Transform all rows (or all columns) of data, in parallel if a pool is set. */
+  void sweep(final double data[], final int rowspan, final boolean rows, final int sign) {
+    final int count = rows ? nrows : ncols;
+    final ComplexDoubleFFT ffts[] = rows ? rowFFTs : colFFTs;
+    if (pool == null || ffts.length == 1) {
+      pencils(ffts[0], data, rowspan, rows, sign, 0, count);
+      return; }
+    pool.invoke(new RecursiveAction() {
+      protected void compute() {
+	RecursiveAction chunks[] = new RecursiveAction[ffts.length];
+	for (int c = 0; c < ffts.length; c++) {
+	  final ComplexDoubleFFT fft = ffts[c];
+	  final int lo = (int)((long)count*c/ffts.length);
+	  final int hi = (int)((long)count*(c+1)/ffts.length);
+	  chunks[c] = new RecursiveAction() {
+	    protected void compute() {
+	      pencils(fft, data, rowspan, rows, sign, lo, hi); }}; }
+	invokeAll(chunks); }}); }
+
+  /** Transform rows (or columns) [lo, hi) of data. */
+  void pencils(ComplexDoubleFFT fft, double data[], int rowspan, boolean rows, int sign, int lo, int hi) {
+    for (int p = lo; p < hi; p++) {
+      int offset = rows ? p*rowspan : 2*p;
+      int stride = rows ? 2 : rowspan;
+      if (sign < 0)
+	fft.transform(data, offset, stride);
+      else
+	fft.backtransform(data, offset, stride); }}
 
   /** Return the normalization factor.  
    * Multiply the elements of the backtransform'ed data to get the normalized inverse.*/
@@ -1,4 +1,8 @@
 package scikit.numerics.fft.managed;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /** Computes the FFT of 3 dimensional complex, double precision data.
  * The data is stored in a 1-dimensional array in generalized "Row-Major" order.
  * The physical layout in the array data, of the mathematical data d[i,j,k] is as follows:
@@ -14,17 +18,69 @@ package scikit.numerics.fft.managed;
  */ 
 public class ComplexDouble3DFFT {
 	int dim1, dim2, dim3;
-	ComplexDoubleFFT dim1FFT, dim2FFT, dim3FFT;
+	ForkJoinPool pool;
+	// One worker per chunk of pencils; each owns its own transforms and scratch space
+	Worker[] workers;
+	// Number of pencils gathered into a contiguous tile, per axis; 1 transforms in place
+	int[] blocks = {1, 1, 1};
+
+	static class Worker {
+		ComplexDoubleFFT[] ffts;
+		// transforms a whole tile of pencils at once; see ComplexDoubleFFT_Batch
+		ComplexDoubleFFT_Batch[] batches;
+		double[] re, im;
+		int[] offsets;
+	}
 
 	/** Create an FFT for transforming nrows*ncols points of Complex, double precision
 	 * data. */
 	public ComplexDouble3DFFT(int dim1, int dim2, int dim3) {
+		this(dim1, dim2, dim3, null);
+	}
+
+	/** Create an FFT for transforming dim1*dim2*dim3 points of Complex, double precision
+	 * data. If pool is non-null, the independent 1D transforms within each axis sweep
+	 * are split into pool.getParallelism() chunks and run on the pool. */
+	public ComplexDouble3DFFT(int dim1, int dim2, int dim3, ForkJoinPool pool) {
 		this.dim1 = dim1;
 		this.dim2 = dim2;
 		this.dim3 = dim3;
-		dim1FFT = new ComplexDoubleFFT_Mixed(dim1);
-		dim2FFT = (dim1 == dim2 ? dim1FFT : new ComplexDoubleFFT_Mixed(dim2));
-		dim3FFT = (dim2 == dim3 ? dim2FFT : new ComplexDoubleFFT_Mixed(dim3));
+		this.pool = pool;
+		workers = new Worker[pool == null ? 1 : pool.getParallelism()];
+		for (int w = 0; w < workers.length; w++) {
+			ComplexDoubleFFT f1 = new ComplexDoubleFFT_Mixed(dim1);
+			ComplexDoubleFFT f2 = (dim1 == dim2 ? f1 : new ComplexDoubleFFT_Mixed(dim2));
+			ComplexDoubleFFT f3 = (dim2 == dim3 ? f2 : new ComplexDoubleFFT_Mixed(dim3));
+			workers[w] = new Worker();
+			workers[w].ffts = new ComplexDoubleFFT[] {f1, f2, f3};
+		}
+	}
+
+	/** Selects how pencils along the given axis (1, 2 or 3) are transformed. With
+	 * block &gt; 1, groups of that many neighbouring pencils are gathered into a
+	 * contiguous tile, transformed together by a {@link ComplexDoubleFFT_Batch}, and
+	 * scattered back. This avoids walking the array with a large stride once per
+	 * pencil, which is expensive for the dim1 axis of large grids, and lets the
+	 * butterflies run on SIMD registers. A block of 1 (the default) transforms pencils
+	 * in place, one at a time. */
+	public void setBlocking(int axis, int block) {
+		if (axis < 1 || axis > 3)
+			throw new IllegalArgumentException("Axis must be 1, 2 or 3 : "+axis);
+		if (block < 1)
+			throw new IllegalArgumentException("Block size must be >=1 : "+block);
+		blocks[axis-1] = block;
+		int maxBlock = Math.max(blocks[0], Math.max(blocks[1], blocks[2]));
+		int maxDim = Math.max(dim1, Math.max(dim2, dim3));
+		int[] dims = {dim1, dim2, dim3};
+		for (Worker w : workers) {
+			w.re = (maxBlock == 1 ? null : new double[maxBlock*maxDim]);
+			w.im = (maxBlock == 1 ? null : new double[maxBlock*maxDim]);
+			w.offsets = (maxBlock == 1 ? null : new int[maxBlock]);
+			w.batches = new ComplexDoubleFFT_Batch[3];
+			for (int a = 0; a < 3; a++)
+				if (blocks[a] > 1)
+					w.batches[a] = new ComplexDoubleFFT_Batch(dims[a], blocks[a]);
+		}
 	}
 
 	protected void checkData(double data[]){
@@ -38,15 +94,104 @@ public class ComplexDouble3DFFT {
 	 * alternating real and imaginary parts. */
 	public void transform(double data[]) {
 		checkData(data);
-		for (int i1 = 0; i1 < dim1; i1++)
-			for (int i2 = 0; i2 < dim2; i2++)
-				dim3FFT.transform(data, 2*(i1*dim3*dim2+i2*dim3), 2);
-		for (int i1 = 0; i1 < dim1; i1++)
-			for (int i3 = 0; i3 < dim3; i3++)
-				dim2FFT.transform(data, 2*(i1*dim3*dim2+i3), 2*dim3);
-		for (int i2 = 0; i2 < dim2; i2++)
-			for (int i3 = 0; i3 < dim3; i3++)
-				dim1FFT.transform(data, 2*(i2*dim3+i3), 2*dim3*dim2);
+		sweep(data, 3, -1);
+		sweep(data, 2, -1);
+		sweep(data, 1, -1);
+	}
+
+	/** Compute the (unnormalized) inverse FFT of data, leaving it in place.*/
+	public void backtransform(double data[]) {
+		checkData(data);
+		sweep(data, 1, +1);
+		sweep(data, 2, +1);
+		sweep(data, 3, +1);
+	}
+
+	/** Transforms every pencil along the given axis, in parallel if a pool is set. */
+	void sweep(final double data[], final int axis, final int sign) {
+		final int count = (axis == 1 ? dim2*dim3 : (axis == 2 ? dim1*dim3 : dim1*dim2));
+		if (pool == null || workers.length == 1) {
+			pencils(workers[0], data, axis, sign, 0, count);
+			return;
+		}
+		final int nchunks = workers.length;
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				RecursiveAction[] chunks = new RecursiveAction[nchunks];
+				for (int c = 0; c < nchunks; c++) {
+					final Worker worker = workers[c];
+					final int lo = (int)((long)count*c/nchunks);
+					final int hi = (int)((long)count*(c+1)/nchunks);
+					chunks[c] = new RecursiveAction() {
+						protected void compute() {
+							pencils(worker, data, axis, sign, lo, hi);
+						}
+					};
+				}
+				invokeAll(chunks);
+			}
+		});
+	}
+
+	/** Returns the offset of the first element of pencil p along the given axis.
+	 * Pencils are numbered so that consecutive indices are adjacent in memory. */
+	int offset(int axis, int p) {
+		switch (axis) {
+		case 1: return 2*p;
+		case 2: return 2*((p/dim3)*dim3*dim2+p%dim3);
+		default: return 2*p*dim3;
+		}
+	}
+
+	int stride(int axis) {
+		return axis == 1 ? 2*dim3*dim2 : (axis == 2 ? 2*dim3 : 2);
+	}
+
+	/** Transforms pencils [lo, hi) along the given axis. */
+	void pencils(Worker worker, double data[], int axis, int sign, int lo, int hi) {
+		ComplexDoubleFFT fft = worker.ffts[axis-1];
+		int stride = stride(axis);
+		int block = blocks[axis-1];
+		if (block == 1) {
+			for (int p = lo; p < hi; p++) {
+				if (sign < 0)
+					fft.transform(data, offset(axis, p), stride);
+				else
+					fft.backtransform(data, offset(axis, p), stride);
+			}
+			return;
+		}
+		
+		int n = (axis == 1 ? dim1 : (axis == 2 ? dim2 : dim3));
+		ComplexDoubleFFT_Batch batch = worker.batches[axis-1];
+		double[] re = worker.re, im = worker.im;
+		int[] offsets = worker.offsets;
+		for (int p0 = lo; p0 < hi; p0 += block) {
+			int nb = Math.min(block, hi-p0);
+			for (int b = 0; b < nb; b++)
+				offsets[b] = offset(axis, p0+b);
+			
+			// gather: for neighbouring pencils, the inner loop reads adjacent memory
+			for (int i = 0; i < n; i++) {
+				for (int b = 0; b < nb; b++) {
+					int src = offsets[b] + i*stride;
+					re[i*nb+b] = data[src+0];
+					im[i*nb+b] = data[src+1];
+				}
+			}
+			if (sign < 0)
+				batch.transform(re, im, nb);
+			else
+				batch.backtransform(re, im, nb);
+			// scatter
+			for (int i = 0; i < n; i++) {
+				for (int b = 0; b < nb; b++) {
+					int dst = offsets[b] + i*stride;
+					data[dst+0] = re[i*nb+b];
+					data[dst+1] = im[i*nb+b];
+				}
+			}
+		}
 	}
 
 	/** Return data in wraparound order.
@@ -55,20 +200,6 @@ public class ComplexDouble3DFFT {
 		return data;
 	}
 
-	/** Compute the (unnormalized) inverse FFT of data, leaving it in place.*/
-	public void backtransform(double data[]) {
-		checkData(data);
-		for (int i2 = 0; i2 < dim2; i2++)
-			for (int i3 = 0; i3 < dim3; i3++)
-				dim1FFT.backtransform(data, 2*(i2*dim3+i3), 2*dim3*dim2);
-		for (int i1 = 0; i1 < dim1; i1++)
-			for (int i3 = 0; i3 < dim3; i3++)
-				dim2FFT.backtransform(data, 2*(i1*dim3*dim2+i3), 2*dim3);
-		for (int i1 = 0; i1 < dim1; i1++)
-			for (int i2 = 0; i2 < dim2; i2++)
-				dim3FFT.backtransform(data, 2*(i1*dim3*dim2+i2*dim3), 2);
-	}
-
 	/** Return the normalization factor.  
 	 * Multiply the elements of the backtransform'ed data to get the normalized inverse.*/
 	public double normalization(){
@@ -0,0 +1,307 @@
+package scikit.numerics.fft.managed;
+
+/** Computes FFT's of many complex, double precision sequences of the same length n
+  * at once. The sequences are stored as separate real and imaginary arrays, with
+  * the sequence index varying fastest:
+  *<PRE>
+  *    Re(d_b[i]) = re[i*count + b]
+  *    Im(d_b[i]) = im[i*count + b]
+  *</PRE>
+  * for sequences 0 &lt;= b &lt; count. Every butterfly of the mixed radix algorithm is
+  * then an innermost loop over b, reading and writing consecutive doubles with no
+  * re/im interleaving, which the JIT compiles to packed SIMD arithmetic (SSE, AVX,
+  * AVX-512 or NEON as the host allows). The gain over {@link ComplexDoubleFFT_Mixed}
+  * grows with count, and is largest for the pencils of multidimensional transforms,
+  * which can be gathered directly into this layout; see
+  * {@link ComplexDouble3DFFT#setBlocking}.
+  * <P>
+  * Factors 2, 3 and 4 have special butterflies, other factors use a general one.
+  * Used through the single sequence {@link ComplexDoubleFFT} interface, the data is
+  * copied into a batch of one.
+  *
+  * @author Kipton Barros
+  * @author Derived from GSL (Gnu Scientific Library) through ComplexDoubleFFT_Mixed
+  * @author not subject to copyright.
+  */
+public class ComplexDoubleFFT_Batch extends ComplexDoubleFFT {
+  private static int available_factors[]={4, 2, 3};
+
+  final int capacity;
+  final int factors[];
+  // twiddle_re[i][k*(f-1) + e-1] = Re(exp(-2 pi i e k p_(i-1) / n)) for factor f = factors[i]
+  final double twiddle_re[][], twiddle_im[][];
+  // roots[i][l] = exp(2 pi i l / f), used by the general butterfly
+  final double roots_re[][], roots_im[][];
+  // Reused between calls so that steady-state transforms do not allocate.
+  private final double scratch_re[], scratch_im[];
+  private final double single_re[], single_im[];
+
+  /** Create a transform for up to capacity sequences of n complex points. */
+  public ComplexDoubleFFT_Batch(int n, int capacity){
+    super(n);
+    if (capacity <= 0)
+      throw new IllegalArgumentException("The batch capacity must be >0 : "+capacity);
+    this.capacity = capacity;
+    factors = Factorize.factor(n, available_factors);
+    twiddle_re = new double[factors.length][];
+    twiddle_im = new double[factors.length][];
+    roots_re = new double[factors.length][];
+    roots_im = new double[factors.length][];
+    double d_theta = -2.0 * Math.PI / n;
+    int product = 1;
+    for (int i = 0; i < factors.length; i++) {
+      int f = factors[i];
+      int product_1 = product;
+      product *= f;
+      int q = n / product;
+      twiddle_re[i] = new double[q*(f-1)];
+      twiddle_im[i] = new double[q*(f-1)];
+      for (int k = 0; k < q; k++) {
+	for (int e = 1; e < f; e++) {
+	  double theta = d_theta * (((long)e*k*product_1) % n);
+	  twiddle_re[i][k*(f-1)+e-1] = Math.cos(theta);
+	  twiddle_im[i][k*(f-1)+e-1] = Math.sin(theta); }}
+      roots_re[i] = new double[f];
+      roots_im[i] = new double[f];
+      for (int l = 0; l < f; l++) {
+	roots_re[i][l] = Math.cos(2.0 * Math.PI * l / f);
+	roots_im[i][l] = Math.sin(2.0 * Math.PI * l / f); }
+    }
+    scratch_re = new double[n*capacity];
+    scratch_im = new double[n*capacity];
+    single_re = new double[n];
+    single_im = new double[n];
+  }
+
+  /** The largest number of sequences that can be transformed in one call. */
+  public int capacity(){
+    return capacity; }
+
+  /** Compute the Fast Fourier Transform of count sequences, leaving the result in
+    * re and im. */
+  public void transform(double re[], double im[], int count){
+    checkBatch(re, im, count);
+    transform_internal(re, im, count, -1); }
+
+  /** Compute the (unnomalized) inverse FFT of count sequences, leaving it in place. */
+  public void backtransform(double re[], double im[], int count){
+    checkBatch(re, im, count);
+    transform_internal(re, im, count, +1); }
+
+  public void transform(double data[], int i0, int stride){
+    checkData(data, i0, stride);
+    single(data, i0, stride, -1); }
+
+  public void backtransform(double data[], int i0, int stride){
+    checkData(data, i0, stride);
+    single(data, i0, stride, +1); }
+
+  void checkBatch(double re[], double im[], int count){
+    if (count < 1 || count > capacity)
+      throw new IllegalArgumentException("The batch size must be between 1 and "+capacity+" : "+count);
+    if (re.length < n*count || im.length < n*count)
+      throw new IllegalArgumentException("The data arrays are too small for "+count+"x"+n+
+					 ": re.length="+re.length+" im.length="+im.length); }
+
+  void single(double data[], int i0, int stride, int sign){
+    for (int i = 0; i < n; i++) {
+      single_re[i] = data[i0+stride*i];
+      single_im[i] = data[i0+stride*i+1]; }
+    transform_internal(single_re, single_im, 1, sign);
+    for (int i = 0; i < n; i++) {
+      data[i0+stride*i]   = single_re[i];
+      data[i0+stride*i+1] = single_im[i]; }}
+
+  /*______________________________________________________________________
+    The main transformation driver, as in ComplexDoubleFFT_Mixed with each
+    complex value replaced by a row of count values. */
+  void transform_internal(double re[], double im[], int count, int sign){
+    if (n == 1) return;
+
+    double in_re[] = re, in_im[] = im;
+    double out_re[] = scratch_re, out_im[] = scratch_im;
+    int product = 1;
+    for (int i = 0; i < factors.length; i++) {
+      int factor = factors[i];
+      product *= factor;
+      switch(factor){
+      case 2: pass_2(i, in_re, in_im, out_re, out_im, count, sign, product); break;
+      case 3: pass_3(i, in_re, in_im, out_re, out_im, count, sign, product); break;
+      case 4: pass_4(i, in_re, in_im, out_re, out_im, count, sign, product); break;
+      default:pass_n(i, in_re, in_im, out_re, out_im, count, sign, factor, product); }
+      double t[];
+      t = in_re; in_re = out_re; out_re = t;
+      t = in_im; in_im = out_im; out_im = t; }
+    if (in_re != re){	/* copy results back from scratch to data */
+      System.arraycopy(in_re, 0, re, 0, n*count);
+      System.arraycopy(in_im, 0, im, 0, n*count); }
+  }
+
+  /*______________________________________________________________________*/
+
+  void pass_2(int fi, double in_re[], double in_im[], double out_re[], double out_im[],
+	      int count, int sign, int product){
+    int factor = 2;
+    int m = n / factor;
+    int q = n / product;
+    int p_1 = product / factor;
+    int di = m*count;
+    int dj = p_1*count;
+    double tw_re[] = twiddle_re[fi], tw_im[] = twiddle_im[fi];
+    for (int k = 0; k < q; k++) {
+      double w_re =       tw_re[k];
+      double w_im = -sign*tw_im[k];
+      for (int k1 = 0; k1 < p_1; k1++) {
+	int i = (k*p_1 + k1)*count;
+	int j = (k*product + k1)*count;
+	for (int b = 0; b < count; b++) {
+	  double z0_re = in_re[i+b],    z0_im = in_im[i+b];
+	  double z1_re = in_re[i+di+b], z1_im = in_im[i+di+b];
+	  out_re[j+b] = z0_re + z1_re;
+	  out_im[j+b] = z0_im + z1_im;
+	  double x_re = z0_re - z1_re;
+	  double x_im = z0_im - z1_im;
+	  out_re[j+dj+b] = w_re * x_re - w_im * x_im;
+	  out_im[j+dj+b] = w_re * x_im + w_im * x_re; }}}}
+
+  /*______________________________________________________________________*/
+
+  void pass_3(int fi, double in_re[], double in_im[], double out_re[], double out_im[],
+	      int count, int sign, int product){
+    int factor = 3;
+    int m = n / factor;
+    int q = n / product;
+    int p_1 = product / factor;
+    int di = m*count;
+    int dj = p_1*count;
+    double tau = sign * Math.sqrt(3.0) / 2.0;
+    double tw_re[] = twiddle_re[fi], tw_im[] = twiddle_im[fi];
+    for (int k = 0; k < q; k++) {
+      double w1_re =       tw_re[2*k];
+      double w1_im = -sign*tw_im[2*k];
+      double w2_re =       tw_re[2*k+1];
+      double w2_im = -sign*tw_im[2*k+1];
+      for (int k1 = 0; k1 < p_1; k1++) {
+	int i = (k*p_1 + k1)*count;
+	int j = (k*product + k1)*count;
+	for (int b = 0; b < count; b++) {
+	  double z0_re = in_re[i+b],      z0_im = in_im[i+b];
+	  double z1_re = in_re[i+di+b],   z1_im = in_im[i+di+b];
+	  double z2_re = in_re[i+2*di+b], z2_im = in_im[i+2*di+b];
+	  /* t1 = z1 + z2 */
+	  double t1_re = z1_re + z2_re;
+	  double t1_im = z1_im + z2_im;
+	  /* t2 = z0 - t1/2 */
+	  double t2_re = z0_re - t1_re / 2.0;
+	  double t2_im = z0_im - t1_im / 2.0;
+	  /* t3 = (+/-) sin(pi/3)*(z1 - z2) */
+	  double t3_re = tau * (z1_re - z2_re);
+	  double t3_im = tau * (z1_im - z2_im);
+	  /* out0 = 1 * (z0 + t1) */
+	  out_re[j+b] = z0_re + t1_re;
+	  out_im[j+b] = z0_im + t1_im;
+	  /* out1 = w1 * (t2 + i t3) */
+	  double x_re = t2_re - t3_im;
+	  double x_im = t2_im + t3_re;
+	  out_re[j+dj+b] = w1_re * x_re - w1_im * x_im;
+	  out_im[j+dj+b] = w1_re * x_im + w1_im * x_re;
+	  /* out2 = w2 * (t2 - i t3) */
+	  x_re = t2_re + t3_im;
+	  x_im = t2_im - t3_re;
+	  out_re[j+2*dj+b] = w2_re * x_re - w2_im * x_im;
+	  out_im[j+2*dj+b] = w2_re * x_im + w2_im * x_re; }}}}
+
+  /*______________________________________________________________________*/
+
+  void pass_4(int fi, double in_re[], double in_im[], double out_re[], double out_im[],
+	      int count, int sign, int product){
+    int factor = 4;
+    int m = n / factor;
+    int q = n / product;
+    int p_1 = product / factor;
+    int di = m*count;
+    int dj = p_1*count;
+    double tw_re[] = twiddle_re[fi], tw_im[] = twiddle_im[fi];
+    for (int k = 0; k < q; k++) {
+      double w1_re =       tw_re[3*k];
+      double w1_im = -sign*tw_im[3*k];
+      double w2_re =       tw_re[3*k+1];
+      double w2_im = -sign*tw_im[3*k+1];
+      double w3_re =       tw_re[3*k+2];
+      double w3_im = -sign*tw_im[3*k+2];
+      for (int k1 = 0; k1 < p_1; k1++) {
+	int i = (k*p_1 + k1)*count;
+	int j = (k*product + k1)*count;
+	for (int b = 0; b < count; b++) {
+	  double z0_re = in_re[i+b],      z0_im = in_im[i+b];
+	  double z1_re = in_re[i+di+b],   z1_im = in_im[i+di+b];
+	  double z2_re = in_re[i+2*di+b], z2_im = in_im[i+2*di+b];
+	  double z3_re = in_re[i+3*di+b], z3_im = in_im[i+3*di+b];
+	  /* t1 = z0 + z2 */
+	  double t1_re = z0_re + z2_re;
+	  double t1_im = z0_im + z2_im;
+	  /* t2 = z1 + z3 */
+	  double t2_re = z1_re + z3_re;
+	  double t2_im = z1_im + z3_im;
+	  /* t3 = z0 - z2 */
+	  double t3_re = z0_re - z2_re;
+	  double t3_im = z0_im - z2_im;
+	  /* t4 = (+/-) (z1 - z3) */
+	  double t4_re = sign * (z1_re - z3_re);
+	  double t4_im = sign * (z1_im - z3_im);
+	  /* out0 = 1 * (t1 + t2) */
+	  out_re[j+b] = t1_re + t2_re;
+	  out_im[j+b] = t1_im + t2_im;
+	  /* out1 = w1 * (t3 + i t4) */
+	  double x_re = t3_re - t4_im;
+	  double x_im = t3_im + t4_re;
+	  out_re[j+dj+b] = w1_re * x_re - w1_im * x_im;
+	  out_im[j+dj+b] = w1_re * x_im + w1_im * x_re;
+	  /* out2 = w2 * (t1 - t2) */
+	  x_re = t1_re - t2_re;
+	  x_im = t1_im - t2_im;
+	  out_re[j+2*dj+b] = w2_re * x_re - w2_im * x_im;
+	  out_im[j+2*dj+b] = w2_re * x_im + w2_im * x_re;
+	  /* out3 = w3 * (t3 - i t4) */
+	  x_re = t3_re + t4_im;
+	  x_im = t3_im - t4_re;
+	  out_re[j+3*dj+b] = w3_re * x_re - w3_im * x_im;
+	  out_im[j+3*dj+b] = w3_re * x_im + w3_im * x_re; }}}}
+
+  /*______________________________________________________________________*/
+
+  /** A general factor: out_e = w_e * sum_l z_l exp(sign 2 pi i e l / factor). The
+    * sum is accumulated one input row at a time, so the inner loop stays over b. */
+  void pass_n(int fi, double in_re[], double in_im[], double out_re[], double out_im[],
+	      int count, int sign, int factor, int product){
+    int m = n / factor;
+    int q = n / product;
+    int p_1 = product / factor;
+    int di = m*count;
+    int dj = p_1*count;
+    double tw_re[] = twiddle_re[fi], tw_im[] = twiddle_im[fi];
+    double c[] = roots_re[fi], s[] = roots_im[fi];
+    for (int k = 0; k < q; k++) {
+      for (int k1 = 0; k1 < p_1; k1++) {
+	int i = (k*p_1 + k1)*count;
+	int j = (k*product + k1)*count;
+	for (int e = 0; e < factor; e++) {
+	  int o = j + e*dj;
+	  System.arraycopy(in_re, i, out_re, o, count);
+	  System.arraycopy(in_im, i, out_im, o, count);
+	  for (int l = 1; l < factor; l++) {
+	    double cl = c[(e*l) % factor];
+	    double sl = sign * s[(e*l) % factor];
+	    int r = i + l*di;
+	    for (int b = 0; b < count; b++) {
+	      out_re[o+b] += cl * in_re[r+b] - sl * in_im[r+b];
+	      out_im[o+b] += cl * in_im[r+b] + sl * in_re[r+b]; }}
+	  if (e > 0) {
+	    double w_re =       tw_re[k*(factor-1)+e-1];
+	    double w_im = -sign*tw_im[k*(factor-1)+e-1];
+	    for (int b = 0; b < count; b++) {
+	      double x_re = out_re[o+b];
+	      double x_im = out_im[o+b];
+	      out_re[o+b] = w_re * x_re - w_im * x_im;
+	      out_im[o+b] = w_re * x_im + w_im * x_re; }}}}}}
+}
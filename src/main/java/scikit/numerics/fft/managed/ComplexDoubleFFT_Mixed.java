@@ -1,11 +1,17 @@
 package scikit.numerics.fft.managed;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /** Computes FFT's of complex, double precision data of arbitrary length n.
   * This class uses the Mixed Radix method; it has special methods to handle
   * factors 2, 3, 4, 5, 6 and 7, as well as a general factor.
   * <P>
   * This method appears to be faster than the Radix2 method, when both methods apply,
   * but requires extra storage (which ComplexDoubleFFT_Mixed manages itself).
+  * The twiddle factors are computed once per length and shared between all
+  * instances; each instance owns a scratch buffer, so an instance must not be
+  * used by several threads at once.
   * <P>
   * See {@link ComplexDoubleFFT ComplexDoubleFFT} for details of data layout.
   *
@@ -24,6 +30,7 @@ public class ComplexDoubleFFT_Mixed extends ComplexDoubleFFT{
   public ComplexDoubleFFT_Mixed(int n){
     super(n);
     setup_wavetable(n);
+    scratch = new double[2*n];
   }
 
   public void transform(double data[], int i0, int stride) {
@@ -37,22 +44,62 @@ public class ComplexDoubleFFT_Mixed extends ComplexDoubleFFT{
   /*______________________________________________________________________
    Setting up the Wavetable */
 
+  /** The factorization and twiddle factors for transforms of length n.
+    * A wavetable is immutable once built, and serves both the forward and
+    * backward directions (the sign of the imaginary part is applied in each pass),
+    * so a single instance is shared by every transform of the same length. */
+  static final class Wavetable {
+    final int n;
+    final int factors[];
+    // Reversed the last 2 levels of the twiddle array compared to what the C version had.
+    final double twiddle[][][];
+
+    Wavetable(int n, int factors[], double twiddle[][][]){
+      this.n = n;
+      this.factors = factors;
+      this.twiddle = twiddle; }
+  }
+
+  private static final Map<Integer, Wavetable> wavetables = new HashMap<Integer, Wavetable>();
+
+  /** Returns the process-wide wavetable for length n, building it on first use. */
+  static Wavetable wavetable(int n){
+    synchronized (wavetables) {
+      Wavetable w = wavetables.get(n);
+      if (w == null) {
+	w = build_wavetable(n);
+	wavetables.put(n, w); }
+      return w; }}
+
+  /** Drops all cached wavetables. Transforms that are already constructed keep
+    * their own reference and are unaffected. */
+  public static void clearWavetableCache(){
+    synchronized (wavetables) {
+      wavetables.clear(); }}
+
   private int factors[];
-  // Reversed the last 2 levels of the twiddle array compared to what the C version had.
   private double twiddle[][][];
-  private int available_factors[]={7, 6, 5, 4, 3, 2};
+  // Reused between calls so that steady-state transforms do not allocate.
+  private final double scratch[];
+  private static int available_factors[]={7, 6, 5, 4, 3, 2};
 
   void setup_wavetable(int n){
+    Wavetable w = wavetable(n);
+    this.n = n;
+    factors = w.factors;
+    twiddle = w.twiddle;
+  }
+
+  static Wavetable build_wavetable(int n){
 
     if (n <= 0)
       throw new Error("length must be positive integer : "+n);
-    this.n = n;
 
-    factors = Factorize.factor(n, available_factors);
+    int factors[] = Factorize.factor(n, available_factors);
 
     double d_theta = -2.0 * PI / ((double) n);
     int product = 1;
-    twiddle = new double[factors.length][][];
+    double twiddle[][][] = new double[factors.length][][];
     for (int i = 0; i < factors.length; i++) {
       int factor = factors[i];
       int product_1 = product;	/* product_1 = p_(i-1) */
@@ -74,6 +121,7 @@ public class ComplexDoubleFFT_Mixed extends ComplexDoubleFFT{
 	  twid[k][2*(j-1)]   = Math.cos(theta);
 	  twid[k][2*(j-1)+1] = Math.sin(theta); }}
     }
+    return new Wavetable(n, factors, twiddle);
   }
 
   /*______________________________________________________________________
@@ -82,7 +130,6 @@ public class ComplexDoubleFFT_Mixed extends ComplexDoubleFFT{
 
     if (n == 1) return;		/* FFT of 1 data point is the identity */
 
-    double scratch[] = new double[2*n];
     int product = 1;
     int state = 0;
     double in[], out[];
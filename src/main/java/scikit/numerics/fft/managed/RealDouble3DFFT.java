@@ -0,0 +1,202 @@
+package scikit.numerics.fft.managed;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Computes the FFT of 3 dimensional real, double precision data, producing only the
+ * non-redundant half of the spectrum. The layout matches FFTW's r2c/c2r transforms
+ * of dimensions {dim3, dim2, dim1}, with dim1 varying fastest:
+ *<PRE>
+ *    d[i1,i2,i3] = src[i1 + dim1*(i2 + dim2*i3)]
+ *
+ *    Re(D[k1,k2,k3]) = dst[2*(k1 + dim1p*(k2 + dim2*k3))]
+ *    Im(D[k1,k2,k3]) = dst[2*(k1 + dim1p*(k2 + dim2*k3))+1]
+ *</PRE>
+ * where dim1p = dim1/2+1 and 0 &lt;= k1 &lt;= dim1/2. The remaining coefficients
+ * follow from D[-k] = conj(D[k]). Along dim2 and dim3 the spectrum is in
+ * <a href="package-summary.html#wraparound">wrap-around</A> order.
+ * Two dimensional data is handled by setting dim3 = 1.
+ *
+ * @author Kipton Barros
+ * @author not subject to copyright.
+ */
+public class RealDouble3DFFT {
+	int dim1, dim2, dim3, dim1p;
+	ForkJoinPool pool;
+	Worker[] workers;
+
+	static class Worker {
+		// transforms rows of even length as n/2 complex points
+		RealDoubleFFT_Even evenFFT;
+		// transforms rows of odd length as n complex points
+		ComplexDoubleFFT oddFFT;
+		ComplexDoubleFFT fft2, fft3;
+		double[] row;
+	}
+
+	public RealDouble3DFFT(int dim1, int dim2, int dim3) {
+		this(dim1, dim2, dim3, null);
+	}
+
+	/** Create an FFT for dim1*dim2*dim3 points of real, double precision data. If pool
+	 * is non-null, each sweep is split into pool.getParallelism() chunks which run
+	 * concurrently on the pool. */
+	public RealDouble3DFFT(int dim1, int dim2, int dim3, ForkJoinPool pool) {
+		if (dim1 <= 0 || dim2 <= 0 || dim3 <= 0)
+			throw new IllegalArgumentException("The array dimensions must be >0 : "+
+					dim1+","+dim2+","+dim3);
+		this.dim1 = dim1;
+		this.dim2 = dim2;
+		this.dim3 = dim3;
+		this.dim1p = dim1/2+1;
+		this.pool = pool;
+		workers = new Worker[pool == null ? 1 : pool.getParallelism()];
+		for (int w = 0; w < workers.length; w++) {
+			Worker worker = new Worker();
+			if (dim1 % 2 == 0 && dim1 > 2)
+				worker.evenFFT = new RealDoubleFFT_Even(dim1);
+			else
+				worker.oddFFT = new ComplexDoubleFFT_Mixed(dim1);
+			worker.fft2 = new ComplexDoubleFFT_Mixed(dim2);
+			worker.fft3 = (dim2 == dim3 ? worker.fft2 : new ComplexDoubleFFT_Mixed(dim3));
+			worker.row = new double[2*dim1];
+			workers[w] = worker;
+		}
+	}
+
+	/** Returns the number of doubles in the half spectrum, 2*(dim1/2+1)*dim2*dim3. */
+	public int spectrumLength() {
+		return 2*dim1p*dim2*dim3;
+	}
+
+	protected void checkData(double real[], double complex[]) {
+		if (dim1*dim2*dim3 > real.length)
+			throw new IllegalArgumentException("The real array is too small for "+
+					dim1+"x"+dim2+"x"+dim3+", length="+real.length);
+		if (spectrumLength() > complex.length)
+			throw new IllegalArgumentException("The complex array is too small for "+
+					dim1p+"x"+dim2+"x"+dim3+", length="+complex.length);
+	}
+
+	/** Compute the Fast Fourier Transform of the real array src, storing the half
+	 * spectrum in dst. The array src is not modified. */
+	public void transform(double src[], double dst[]) {
+		checkData(src, dst);
+		sweep(src, dst, 1, -1);
+		sweep(src, dst, 2, -1);
+		sweep(src, dst, 3, -1);
+	}
+
+	/** Compute the (unnormalized) inverse FFT of the half spectrum src, storing the
+	 * real result in dst. As with FFTW's c2r transforms, the contents of src are
+	 * destroyed. */
+	public void backtransform(double src[], double dst[]) {
+		checkData(dst, src);
+		sweep(dst, src, 3, +1);
+		sweep(dst, src, 2, +1);
+		sweep(dst, src, 1, +1);
+	}
+
+	/** Return the normalization factor.
+	 * Multiply the elements of the backtransform'ed data to get the normalized inverse.*/
+	public double normalization() {
+		return 1.0 / ((double)dim1*dim2*dim3);
+	}
+
+	void sweep(final double real[], final double complex[], final int axis, final int sign) {
+		final int count = (axis == 1 ? dim2*dim3 : (axis == 2 ? dim1p*dim3 : dim1p*dim2));
+		if ((axis == 2 && dim2 == 1) || (axis == 3 && dim3 == 1))
+			return;
+		if (pool == null || workers.length == 1) {
+			pencils(workers[0], real, complex, axis, sign, 0, count);
+			return;
+		}
+		final int nchunks = workers.length;
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				RecursiveAction[] chunks = new RecursiveAction[nchunks];
+				for (int c = 0; c < nchunks; c++) {
+					final Worker worker = workers[c];
+					final int lo = (int)((long)count*c/nchunks);
+					final int hi = (int)((long)count*(c+1)/nchunks);
+					chunks[c] = new RecursiveAction() {
+						protected void compute() {
+							pencils(worker, real, complex, axis, sign, lo, hi);
+						}
+					};
+				}
+				invokeAll(chunks);
+			}
+		});
+	}
+
+	void pencils(Worker worker, double real[], double complex[], int axis, int sign, int lo, int hi) {
+		for (int p = lo; p < hi; p++) {
+			switch (axis) {
+			case 1:
+				if (sign < 0)
+					forwardRow(worker, real, p*dim1, complex, 2*p*dim1p);
+				else
+					backwardRow(worker, complex, 2*p*dim1p, real, p*dim1);
+				break;
+			case 2:
+				int offset = 2*((p/dim1p)*dim1p*dim2 + p%dim1p);
+				if (sign < 0)
+					worker.fft2.transform(complex, offset, 2*dim1p);
+				else
+					worker.fft2.backtransform(complex, offset, 2*dim1p);
+				break;
+			default:
+				if (sign < 0)
+					worker.fft3.transform(complex, 2*p, 2*dim1p*dim2);
+				else
+					worker.fft3.backtransform(complex, 2*p, 2*dim1p*dim2);
+			}
+		}
+	}
+
+	void forwardRow(Worker worker, double src[], int i0, double dst[], int j0) {
+		double[] row = worker.row;
+		if (worker.evenFFT != null) {
+			// RealDoubleFFT_Even packs Re(D[n/2]) into the imaginary slot of D[0]
+			System.arraycopy(src, i0, row, 0, dim1);
+			worker.evenFFT.transform(row);
+			System.arraycopy(row, 2, dst, j0+2, dim1-2);
+			dst[j0+0] = row[0];
+			dst[j0+1] = 0;
+			dst[j0+dim1+0] = row[1];
+			dst[j0+dim1+1] = 0;
+		}
+		else {
+			for (int i = 0; i < dim1; i++) {
+				row[2*i+0] = src[i0+i];
+				row[2*i+1] = 0;
+			}
+			worker.oddFFT.transform(row);
+			System.arraycopy(row, 0, dst, j0, 2*dim1p);
+		}
+	}
+
+	void backwardRow(Worker worker, double src[], int j0, double dst[], int i0) {
+		double[] row = worker.row;
+		if (worker.evenFFT != null) {
+			System.arraycopy(src, j0+2, row, 2, dim1-2);
+			row[0] = src[j0+0];
+			row[1] = src[j0+dim1];
+			worker.evenFFT.backtransform(row);
+			// RealDoubleFFT_Even's backtransform is scaled by n/2 rather than n
+			for (int i = 0; i < dim1; i++)
+				dst[i0+i] = 2*row[i];
+		}
+		else {
+			System.arraycopy(src, j0, row, 0, 2*dim1p);
+			for (int k = dim1p; k < dim1; k++) {
+				row[2*k+0] =  src[j0+2*(dim1-k)+0];
+				row[2*k+1] = -src[j0+2*(dim1-k)+1];
+			}
+			worker.oddFFT.backtransform(row);
+			for (int i = 0; i < dim1; i++)
+				dst[i0+i] = row[2*i];
+		}
+	}
+}
@@ -57,7 +57,6 @@ public class RealDoubleFFT_Even extends RealDoubleFFT {
 
   private void shuffle(double data[], int sign){
     int nh = n/2;
-    int nq = n/4;
     double c1=0.5, c2 = -0.5*sign;
     double theta = sign*Math.PI/nh;
     double wtemp = Math.sin(0.5*theta);
@@ -65,7 +64,8 @@ public class RealDoubleFFT_Even extends RealDoubleFFT {
     double wpi = -Math.sin(theta);
     double wr = 1.0+wpr;
     double wi = wpi;
-    for(int i=1; i < nq; i++){
+    /* (nh+1)/2 rather than n/4, so that odd nh also shuffles its last pair */
+    for(int i=1; i < (nh+1)/2; i++){
       int i1 = 2*i;
       int i3 = n - i1;
       double h1r =  c1*(data[i1  ]+data[i3]);
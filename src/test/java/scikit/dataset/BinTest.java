@@ -0,0 +1,86 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BinTest {
+	// values with a mean large compared to their spread, and a skewed distribution
+	static double[] values(int n) {
+		Random r = new Random(7);
+		double[] ret = new double[n];
+		for (int i = 0; i < n; i++)
+			ret[i] = 1e6 + r.nextGaussian() + 0.5 * r.nextDouble() * r.nextDouble();
+		return ret;
+	}
+
+	// the two-pass central moments sum (x - mean)^p / n, p = 1..4, after the mean
+	static double[] twoPass(double[] x) {
+		double mean = 0;
+		for (double v : x)
+			mean += v;
+		mean /= x.length;
+		double[] ret = {mean, 0, 0, 0};
+		for (double v : x) {
+			double d = v - mean;
+			ret[1] += d*d;
+			ret[2] += d*d*d;
+			ret[3] += d*d*d*d;
+		}
+		for (int p = 1; p < 4; p++)
+			ret[p] /= x.length;
+		return ret;
+	}
+
+	@Test
+	public void extendedMatchesTwoPass() {
+		double[] x = values(10000);
+		double[] m = twoPass(x);
+		Bin bin = new Bin(0, true);
+		for (double v : x)
+			bin.accum(v);
+		assertEquals(x.length, bin.count());
+		assertEquals(m[0], bin.average(), 1e-8);
+		assertEquals(m[1], bin.variance(), 1e-9 * m[1]);
+		assertEquals(m[2] / Math.pow(m[1], 1.5), bin.skewness(), 1e-6);
+		assertEquals(m[3] / (m[1]*m[1]) - 3, bin.kurtosis(), 1e-6);
+	}
+
+	@Test
+	public void defaultMatchesTwoPass() {
+		double[] x = values(10000);
+		double[] m = twoPass(x);
+		Bin bin = new Bin();
+		for (double v : x)
+			bin.accum(v);
+		assertEquals(m[0], bin.average(), 1e-8);
+		assertEquals(m[1], bin.variance(), 1e-9 * m[1]);
+		assertTrue(Double.isNaN(bin.skewness()));
+		assertTrue(Double.isNaN(bin.min()));
+	}
+
+	@Test
+	public void mergedMatchesSingle() {
+		double[] x = values(5001);
+		for (boolean extended : new boolean[] {false, true}) {
+			Bin all = new Bin(0, extended), a = new Bin(0, extended), b = new Bin(0, extended);
+			for (int i = 0; i < x.length; i++) {
+				all.accum(x[i]);
+				(i < 1234 ? a : b).accum(x[i]);
+			}
+			a.accum(b);
+			assertEquals(all.longCount(), a.longCount());
+			assertEquals(all.average(), a.average(), 1e-9);
+			assertEquals(all.variance(), a.variance(), 1e-9 * all.variance());
+			if (extended) {
+				assertEquals(all.skewness(), a.skewness(), 1e-6);
+				assertEquals(all.kurtosis(), a.kurtosis(), 1e-6);
+				assertEquals(all.min(), a.min(), 0);
+				assertEquals(all.max(), a.max(), 0);
+			}
+		}
+	}
+}
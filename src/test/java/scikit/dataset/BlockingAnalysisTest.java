@@ -0,0 +1,42 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BlockingAnalysisTest {
+	// the AR(1) series x_t = phi x_{t-1} + noise, whose autocorrelation is phi^t
+	static double[] ar1(double phi, int n) {
+		Random r = new Random(3);
+		double[] ret = new double[n];
+		double x = 0;
+		for (int i = 0; i < n; i++)
+			ret[i] = x = phi * x + r.nextGaussian();
+		return ret;
+	}
+
+	@Test
+	public void autocorrelationOfAR1() {
+		double phi = 0.8;
+		double[] rho = BlockingAnalysis.autocorrelation(ar1(phi, 200000));
+		assertEquals(1, rho[0], 1e-12);
+		for (int t = 1; t < 20; t++)
+			assertEquals(Math.pow(phi, t), rho[t], 0.02);
+		double tau = (1 + phi) / (2 * (1 - phi));
+		assertEquals(tau, BlockingAnalysis.autocorrelationTime(ar1(phi, 200000)), 0.05 * tau);
+	}
+
+	@Test
+	public void constantSeries() {
+		double[] a = new double[100];
+		Arrays.fill(a, 0.1);
+		double[] rho = BlockingAnalysis.autocorrelation(a);
+		assertEquals(1, rho[0], 0);
+		for (int t = 1; t < rho.length; t++)
+			assertEquals(0, rho[t], 0);
+		assertEquals(0.5, BlockingAnalysis.autocorrelationTime(a), 0);
+	}
+}
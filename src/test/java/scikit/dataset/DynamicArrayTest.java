@@ -0,0 +1,79 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import scikit.util.Bounds;
+
+public class DynamicArrayTest {
+	@SuppressWarnings("deprecation")
+	@Test
+	public void interleavedValues() {
+		DynamicArray a = new DynamicArray();
+		a.append(1);
+		a.append(2);
+		a.append2(3, 4);
+		a.append(5);
+		assertEquals(5, a.size());
+		assertEquals(2, a.pointCount());
+		a.append2(6, 7);
+		assertEquals(7, a.size());
+		assertEquals(3, a.pointCount());
+		for (int i = 0; i < 7; i++)
+			assertEquals(i+1, a.get(i), 0);
+		assertEquals(5, a.x(2), 0);
+		a.set(3, 40);
+		assertEquals(40, a.y(1), 0);
+		assertEquals(3, a.copyData().size());
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void pointAfterPendingValue() {
+		DynamicArray a = new DynamicArray();
+		a.append(1);
+		a.append(2, 3);
+		assertEquals(3, a.size());
+		assertEquals(1, a.pointCount());
+		assertEquals(1, a.x(0), 0);
+		assertEquals(2, a.y(0), 0);
+		assertEquals(3, a.get(2), 0);
+		a.append(4, 5);
+		a.append(6);
+		assertEquals(3, a.pointCount());
+		for (int i = 0; i < 6; i++)
+			assertEquals(i+1, a.get(i), 0);
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test(expected = IllegalStateException.class)
+	public void errorBarAfterPendingValue() {
+		DynamicArray a = new DynamicArray();
+		a.append(1);
+		a.append(2, 3, 0.5);
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	@SuppressWarnings("deprecation")
+	public void getOutOfRange() {
+		DynamicArray a = new DynamicArray();
+		a.append(1, 2);
+		a.get(-1);
+	}
+
+	@Test
+	public void setNaNKeepsBounds() {
+		DynamicArray a = new DynamicArray();
+		for (int i = 0; i < 10; i++)
+			a.append(i, -i);
+		a.getBounds();
+		a.setX(4, Double.NaN);
+		a.setY(5, Double.NaN);
+		Bounds b = a.getBounds();
+		assertEquals(0, b.xmin, 0);
+		assertEquals(9, b.xmax, 0);
+		assertEquals(-9, b.ymin, 0);
+		assertEquals(0, b.ymax, 0);
+	}
+}
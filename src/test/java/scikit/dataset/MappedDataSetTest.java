@@ -0,0 +1,166 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Test;
+
+import scikit.util.Bounds;
+
+public class MappedDataSetTest {
+	static File tempFile() throws IOException {
+		File f = File.createTempFile("mapped", ".skds");
+		f.deleteOnExit();
+		return f;
+	}
+
+	// writes points (i/2, y[i]) to a new file
+	static File write(double[] y) throws IOException {
+		File f = tempFile();
+		MappedDataSetWriter w = new MappedDataSetWriter(f);
+		for (int i = 0; i < y.length; i++)
+			w.append(0.5*i, y[i]);
+		w.close();
+		return f;
+	}
+
+	static double[] random(int n, long seed) {
+		Random r = new Random(seed);
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++)
+			y[i] = r.nextGaussian();
+		return y;
+	}
+
+	@Test
+	public void roundTripAcrossChunks() throws IOException {
+		double[] y = random(300001, 1);
+		MappedDataSet d = new MappedDataSet(write(y));
+		try {
+			assertEquals(y.length, d.size());
+			DataView v = d.view();
+			double ymin = Double.POSITIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < y.length; i++) {
+				assertEquals(0.5*i, v.x(i), 0);
+				assertEquals(y[i], v.y(i), 0);
+				ymin = Math.min(ymin, y[i]);
+				ymax = Math.max(ymax, y[i]);
+			}
+			Bounds b = d.getBounds();
+			assertEquals(0, b.xmin, 0);
+			assertEquals(0.5*(y.length-1), b.xmax, 0);
+			assertEquals(ymin, b.ymin, 0);
+			assertEquals(ymax, b.ymax, 0);
+		} finally {
+			d.close();
+		}
+	}
+
+	@Test
+	public void emptyFile() throws IOException {
+		MappedDataSet d = new MappedDataSet(write(new double[0]));
+		try {
+			assertEquals(0, d.size());
+			assertEquals(0, d.copyData().size());
+			assertEquals(0, d.copyPartial(100, new Bounds(0, 1, 0, 1)).size());
+		} finally {
+			d.close();
+		}
+	}
+
+	@Test
+	public void copyPartialKeepsExtrema() throws IOException {
+		double[] y = random(200000, 2);
+		MappedDataSet d = new MappedDataSet(write(y));
+		Random r = new Random(3);
+		try {
+			for (int trial = 0; trial < 200; trial++) {
+				int N = 4 + r.nextInt(2000);
+				int lo = r.nextInt(y.length);
+				int hi = lo + r.nextInt(y.length - lo);
+				DatasetBuffer part = d.copyPartial(N, new Bounds(0.5*lo, 0.5*hi, 0, 1));
+				assertTrue(part.size() <= 2*N + 8);
+
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				for (int i = lo; i <= hi; i++) {
+					min = Math.min(min, y[i]);
+					max = Math.max(max, y[i]);
+				}
+				double pmin = Double.POSITIVE_INFINITY, pmax = Double.NEGATIVE_INFINITY;
+				for (int j = 0; j < part.size(); j++) {
+					if (part.x(j) >= 0.5*lo && part.x(j) <= 0.5*hi) {
+						pmin = Math.min(pmin, part.y(j));
+						pmax = Math.max(pmax, part.y(j));
+					}
+				}
+				assertEquals(min, pmin, 0);
+				assertEquals(max, pmax, 0);
+			}
+		} finally {
+			d.close();
+		}
+	}
+
+	static void assertUnreadable(File f) {
+		try {
+			new MappedDataSet(f).close();
+			fail("opened a bad file");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void truncatedFileIsRejected() throws IOException {
+		File f = write(random(70000, 4));
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.setLength(raf.length() - 5);
+		raf.close();
+		assertUnreadable(f);
+
+		raf = new RandomAccessFile(f, "rw");
+		raf.setLength(3);
+		raf.close();
+		assertUnreadable(f);
+	}
+
+	@Test
+	public void corruptFileIsRejected() throws IOException {
+		File f = write(random(70000, 5));
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		// the point count, after the magic number at the start of the summary
+		raf.seek(2*MappedDataSet.CHUNK_BYTES + 4);
+		raf.writeInt(1000000);
+		raf.close();
+		assertUnreadable(f);
+
+		f = tempFile();
+		raf = new RandomAccessFile(f, "rw");
+		Random r = new Random(6);
+		for (int i = 0; i < 1000; i++)
+			raf.writeInt(r.nextInt());
+		raf.close();
+		assertUnreadable(f);
+	}
+
+	@Test
+	public void closeTwice() throws IOException {
+		File f = tempFile();
+		MappedDataSetWriter w = new MappedDataSetWriter(f);
+		w.append(1, 2);
+		w.close();
+		w.close();
+		MappedDataSet d = new MappedDataSet(f);
+		try {
+			assertEquals(1, d.size());
+			assertEquals(2, d.view().y(0), 0);
+		} finally {
+			d.close();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MinMaxPyramidTest {
+	static DataView series(final double[] y) {
+		return new DataView() {
+			public int size() { return y.length; }
+			public double x(int i) { return i; }
+			public double y(int i) { return y[i]; }
+			public boolean hasErrorY() { return false; }
+			public double errorY(int i) { return 0; }
+		};
+	}
+
+	@Test
+	public void selectIsInIndexOrder() {
+		Random r = new Random(5);
+		double[] y = new double[20000];
+		for (int i = 0; i < y.length; i++)
+			y[i] = r.nextGaussian();
+		MinMaxPyramid pyramid = new MinMaxPyramid(series(y));
+		for (int trial = 0; trial < 20000; trial++) {
+			int N = 4 + r.nextInt(13);
+			int lo = r.nextInt(y.length);
+			int hi = lo + r.nextInt(y.length - lo + 1);
+			Decimation.Indices out = new Decimation.Indices(4);
+			if (!pyramid.select(lo, hi, N, out))
+				continue;
+			for (int j = 0; j < out.size; j++) {
+				assertTrue(lo <= out.data[j] && out.data[j] < hi);
+				assertTrue(j == 0 || out.data[j-1] < out.data[j]);
+			}
+			assertTrue(out.size <= 2*(N/2 + 2));
+		}
+	}
+
+	// whether out holds the indices of the smallest and largest numbers in y[lo, hi)
+	static boolean hasExtrema(double[] y, int lo, int hi, Decimation.Indices out) {
+		double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (int i = lo; i < hi; i++) {
+			min = Math.min(min, Double.isNaN(y[i]) ? min : y[i]);
+			max = Math.max(max, Double.isNaN(y[i]) ? max : y[i]);
+		}
+		boolean foundMin = false, foundMax = false;
+		for (int j = 0; j < out.size; j++) {
+			foundMin |= (y[out.data[j]] == min);
+			foundMax |= (y[out.data[j]] == max);
+		}
+		return foundMin && foundMax;
+	}
+
+	@Test
+	public void nanDoesNotHideExtrema() {
+		Random r = new Random(6);
+		double[] y = new double[20000];
+		for (int i = 0; i < y.length; i++)
+			y[i] = (i % 64 == 0 || i % 1000 < 3) ? Double.NaN : r.nextGaussian();
+		MinMaxPyramid pyramid = new MinMaxPyramid(series(y));
+		for (int trial = 0; trial < 2000; trial++) {
+			int N = 4 + r.nextInt(13);
+			int lo = r.nextInt(y.length);
+			int hi = lo + r.nextInt(y.length - lo + 1);
+			Decimation.Indices out = new Decimation.Indices(4);
+			if (pyramid.select(lo, hi, N, out))
+				assertTrue(hasExtrema(y, lo, hi, out));
+		}
+		Decimation.Indices out = new Decimation.Indices(4);
+		Decimation.minMax(series(y), 0, 100, out);
+		assertTrue(hasExtrema(y, 0, 100, out));
+	}
+
+	@Test
+	public void allNaNBlockKeepsOnePoint() {
+		double[] y = {Double.NaN, Double.NaN, Double.NaN};
+		Decimation.Indices out = new Decimation.Indices(4);
+		Decimation.minMax(series(y), 0, 3, out);
+		assertEquals(1, out.size);
+	}
+}
@@ -0,0 +1,39 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import scikit.util.Bounds;
+
+public class PointSetTest {
+	static Bounds all() {
+		return new Bounds(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0, 0);
+	}
+
+	@Test
+	public void sortednessFollowsSetX() {
+		int n = 10000;
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++)
+			y[i] = Math.sin(i);
+		PointSet s = new PointSet(0, 1, y);
+		assertTrue(s.copyPartial(100, all()).size() <= 100);
+		// y may change in place without resetting anything
+		y[5000] = 1e6;
+		DatasetBuffer b = s.copyPartial(100, all());
+		assertEquals(1e6, b.getBounds().ymax, 0);
+
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++)
+			x[i] = n - i;
+		s.setX(x);
+		// unsorted data is copied unchanged
+		assertEquals(n, s.copyPartial(100, all()).size());
+		for (int i = 0; i < n; i++)
+			x[i] = i;
+		s.setX(x);
+		assertTrue(s.copyPartial(100, all()).size() <= 100);
+	}
+}
@@ -0,0 +1,67 @@
+package scikit.dataset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import scikit.util.Bounds;
+
+public class RingBufferTest {
+	// checks the bounds against those of a copy of the points held
+	static void assertBounds(RingBuffer r) {
+		Bounds expected = r.copyData().getBounds(), b = r.getBounds();
+		assertEquals(expected.xmin, b.xmin, 0);
+		assertEquals(expected.xmax, b.xmax, 0);
+		assertEquals(expected.ymin, b.ymin, 0);
+		assertEquals(expected.ymax, b.ymax, 0);
+	}
+
+	@Test
+	public void boundsAfterEviction() {
+		Random rand = new Random(11);
+		RingBuffer r = new RingBuffer(50);
+		for (int i = 0; i < 1000; i++) {
+			r.append(i, (i % 97 == 0) ? Double.NaN : rand.nextGaussian() + 0.01*i);
+			assertBounds(r);
+		}
+		assertEquals(950, r.getBounds().xmin, 0);
+	}
+
+	@Test
+	public void boundsAfterCompaction() {
+		Random rand = new Random(13);
+		RingBuffer r = new RingBuffer(20, 16);
+		for (int i = 0; i < 5000; i++) {
+			r.append(i, rand.nextGaussian());
+			assertBounds(r);
+			assertTrue(r.size() <= 20 + 16 + 2);
+			// compaction keeps the first point
+			assertEquals(0, r.getBounds().xmin, 0);
+		}
+	}
+
+	@Test
+	public void singlePointBlocksStoredOnce() {
+		RingBuffer r = new RingBuffer(2, 8);
+		for (int i = 0; i < 6; i++)
+			r.append(i, i);
+		assertArrayEquals(new double[] {0, 1, 2, 3, 4, 5}, r.copyData().columns()[0], 0);
+	}
+
+	@Test
+	public void historyKeepsEnvelope() {
+		RingBuffer r = new RingBuffer(4, 8);
+		for (int i = 0; i < 1000; i++)
+			r.append(i, (i == 123) ? 100 : (i == 456) ? -100 : 0);
+		double[] x = r.copyData().columns()[0];
+		for (int i = 1; i < x.length; i++)
+			assertTrue(x[i] > x[i-1]);
+		assertEquals(0, x[0], 0);
+		assertEquals(100, r.getBounds().ymax, 0);
+		assertEquals(-100, r.getBounds().ymin, 0);
+	}
+}
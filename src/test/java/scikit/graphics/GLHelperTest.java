@@ -0,0 +1,19 @@
+package scikit.graphics;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GLHelperTest {
+	@Test
+	public void softwareRenderers() {
+		assertFalse(GLHelper.isHardwareRenderer(null));
+		assertFalse(GLHelper.isHardwareRenderer("llvmpipe (LLVM 15.0.7, 256 bits)"));
+		assertFalse(GLHelper.isHardwareRenderer("Gallium 0.4 on softpipe"));
+		assertFalse(GLHelper.isHardwareRenderer("Mesa X11 Software Rasterizer"));
+		assertFalse(GLHelper.isHardwareRenderer("GDI Generic"));
+		assertTrue(GLHelper.isHardwareRenderer("NVIDIA GeForce RTX 3060/PCIe/SSE2"));
+		assertTrue(GLHelper.isHardwareRenderer("Mesa Intel(R) UHD Graphics 620 (KBL GT2)"));
+	}
+}
@@ -0,0 +1,35 @@
+package scikit.graphics;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class RasterTilesTest {
+	static double[] values(int n) {
+		Random r = new Random(17);
+		double[] ret = new double[n];
+		for (int i = 0; i < n; i++)
+			ret[i] = (i % 1001 == 5) ? Double.NaN : r.nextGaussian();
+		return ret;
+	}
+
+	@Test
+	public void parallelMatchesSerial() {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		int w = 301, n = w*211;
+		double[] data = values(n);
+		assertArrayEquals(RasterTiles.range(data, n, null), RasterTiles.range(data, n, pool), 0);
+
+		ColorGradient colors = new ColorGradient();
+		int[] serial = new int[n], parallel = new int[n];
+		RasterTiles.colorize(colors, data, n, w, -1, 1, serial, null);
+		RasterTiles.colorize(colors, data, n, w, -1, 1, parallel, pool);
+		assertArrayEquals(serial, parallel);
+		for (int i = 0; i < n; i += 97)
+			assertArrayEquals(new int[] {colors.getColor(data[i], -1, 1).getRGB()}, new int[] {serial[i]});
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,76 @@
+package scikit.graphics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SnapshotExchangeTest {
+	@Test
+	public void handsBackPreviousSnapshot() {
+		SnapshotExchange ex = new SnapshotExchange();
+		double[] a = new double[4], b = new double[4];
+		assertNull(ex.beginRead());
+		ex.endRead();
+		assertNull(ex.publish(a, 2, 2));
+		assertTrue(ex.takeFresh());
+		assertFalse(ex.takeFresh());
+		assertSame(a, ex.publish(b, 4, 1));
+		assertSame(b, ex.beginRead());
+		assertArrayEquals(new int[] {4, 1}, ex.getShape());
+		ex.endRead();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void publishTwice() {
+		SnapshotExchange ex = new SnapshotExchange();
+		double[] a = new double[4];
+		ex.publish(a, 4);
+		ex.publish(a, 4);
+	}
+
+	// a reader never sees a snapshot change while it holds it
+	@Test
+	public void noTornReads() throws InterruptedException {
+		final SnapshotExchange ex = new SnapshotExchange();
+		final int frames = 20000;
+		Thread writer = new Thread() {
+			public void run() {
+				double[] next = new double[1000];
+				for (int k = 1; k <= frames; k++) {
+					Arrays.fill(next, k);
+					next = ex.publish(next, next.length);
+					if (next == null)
+						next = new double[1000];
+				}
+			}
+		};
+		writer.start();
+		int reads = 0;
+		while (writer.isAlive() || reads == 0) {
+			double[] s = ex.beginRead();
+			try {
+				if (s != null) {
+					double k = s[0];
+					Thread.yield();
+					for (double v : s)
+						assertEquals(k, v, 0);
+					reads++;
+				}
+			}
+			finally {
+				ex.endRead();
+			}
+		}
+		writer.join();
+		double[] last = ex.beginRead();
+		assertEquals(frames, last[last.length-1], 0);
+		ex.endRead();
+	}
+}
@@ -0,0 +1,129 @@
+package scikit.graphics.dim2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLDrawableFactory;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLOffscreenAutoDrawable;
+import javax.media.opengl.GLProfile;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import scikit.util.Bounds;
+
+/**
+ * Draws through the vertex buffer and texture paths of {@link Gfx2DGL} into an
+ * offscreen context. Skipped where no GL context can be made, as on machines without
+ * the JOGL natives; a software rasterizer such as Mesa llvmpipe is enough.
+ */
+public class Gfx2DGLTest {
+	static final int SIZE = 16;
+
+	// a scene with fixed view bounds, which draws nothing itself
+	static Scene2D scene() {
+		Scene2D scene = new Scene2D("smoke") {
+			protected JComponent createCanvas() {
+				return new JPanel();
+			}
+		};
+		scene._curBounds = new Bounds(0, SIZE, 0, SIZE);
+		return scene;
+	}
+
+	static GLOffscreenAutoDrawable offscreen() {
+		try {
+			GLProfile profile = GLProfile.getDefault();
+			GLCapabilities capabilities = new GLCapabilities(profile);
+			capabilities.setOnscreen(false);
+			return GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, capabilities, null, SIZE, SIZE);
+		}
+		catch (Throwable t) {
+			Assume.assumeTrue("no GL context: "+t, false);
+			return null;
+		}
+	}
+
+	static BufferedImage image(int w, int h, Color c) {
+		BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < h; y++)
+			for (int x = 0; x < w; x++)
+				image.setRGB(x, y, c.getRGB());
+		return image;
+	}
+
+	// the color of the pixel at (x, y), counted from the bottom left
+	static Color pixel(GL gl, int x, int y) {
+		ByteBuffer rgb = ByteBuffer.allocateDirect(4);
+		gl.glPixelStorei(GL.GL_PACK_ALIGNMENT, 1);
+		gl.glReadPixels(x, y, 1, 1, GL.GL_RGB, GL.GL_UNSIGNED_BYTE, rgb);
+		return new Color(rgb.get(0) & 0xff, rgb.get(1) & 0xff, rgb.get(2) & 0xff);
+	}
+
+	@Test
+	public void vertexBufferAndTexture() {
+		GLOffscreenAutoDrawable drawable = offscreen();
+		final Scene2D scene = scene();
+		final Color[] seen = new Color[4];
+		final int[] errors = new int[1];
+		final boolean[] sameBatch = new boolean[1];
+		drawable.addGLEventListener(new GLEventListener() {
+			public void init(GLAutoDrawable d) {}
+			public void reshape(GLAutoDrawable d, int x, int y, int w, int h) {}
+			public void dispose(GLAutoDrawable d) {
+				GLBatch.release(d.getGL().getGL2());
+			}
+			public void display(GLAutoDrawable d) {
+				GL2 gl = d.getGL().getGL2();
+				gl.glViewport(0, 0, SIZE, SIZE);
+				gl.glClearColor(1, 1, 1, 1);
+				gl.glClear(GL.GL_COLOR_BUFFER_BIT);
+				Gfx2DGL g = new Gfx2DGL(d, scene);
+				g.setProjection(g.viewBounds());
+
+				// a new texture, then the same size again through glTexSubImage2D
+				g.drawImage(image(4, 4, Color.RED), 0, 0, SIZE, SIZE);
+				seen[0] = pixel(gl, SIZE/2, SIZE/2);
+				g.drawImage(image(4, 4, Color.BLUE), 0, 0, SIZE, SIZE);
+				seen[1] = pixel(gl, SIZE/2, SIZE/2);
+				// a different size reallocates the texture
+				g.drawImage(image(3, 5, Color.GREEN), 0, 0, SIZE, SIZE);
+				seen[2] = pixel(gl, SIZE/2, SIZE/2);
+
+				// a horizontal line across the middle of a row, through the vertex buffer
+				g.setLineSmoothing(false);
+				g.setColor(Color.BLACK);
+				g.drawLines(new double[] {0, 4.5, SIZE/2, 4.5, SIZE, 4.5});
+				g.drawSegments(new double[] {0, 0, 1, 1, 2, 2, 3, 3});
+				g.drawPoints(new double[] {1, 1, 2, 2});
+				seen[3] = pixel(gl, SIZE/2, 4);
+
+				sameBatch[0] = (GLBatch.of(gl) == GLBatch.of(gl));
+				errors[0] = gl.glGetError();
+			}
+		});
+		try {
+			drawable.display();
+		}
+		finally {
+			drawable.destroy();
+		}
+		assertEquals(GL.GL_NO_ERROR, errors[0]);
+		assertTrue(sameBatch[0]);
+		assertEquals(Color.RED, seen[0]);
+		assertEquals(Color.BLUE, seen[1]);
+		assertEquals(Color.GREEN, seen[2]);
+		assertEquals(Color.BLACK, seen[3]);
+	}
+}
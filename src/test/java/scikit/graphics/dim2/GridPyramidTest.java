@@ -0,0 +1,78 @@
+package scikit.graphics.dim2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GridPyramidTest {
+	// the mean of the cells [x0, x1) by [y0, y1) of a w*h grid, clipped to the grid
+	static double mean(double[] data, int w, int h, int x0, int x1, int y0, int y1) {
+		double sum = 0;
+		int n = 0;
+		for (int y = y0; y < Math.min(y1, h); y++)
+			for (int x = x0; x < Math.min(x1, w); x++) {
+				sum += data[w*y+x];
+				n++;
+			}
+		return sum / n;
+	}
+
+	@Test
+	public void meanWeighsPartialBlocks() {
+		Random r = new Random(23);
+		int[][] shapes = {{13, 7}, {6, 5}, {1, 9}, {33, 17}, {64, 40}};
+		double[] out = new double[1];
+		for (int[] shape : shapes) {
+			int w = shape[0], h = shape[1];
+			double[] data = new double[w*h];
+			for (int i = 0; i < data.length; i++)
+				data[i] = r.nextInt(100);
+			GridPyramid pyramid = new GridPyramid();
+			pyramid.build(data, w, h, Grid.Pooling.MEAN, null);
+			// a single pixel over each block of 2^k by 2^k cells
+			for (int k = 1; (1 << (k-1)) < Math.max(w, h); k++) {
+				int b = 1 << k;
+				for (int y0 = 0; y0 < h; y0 += b)
+					for (int x0 = 0; x0 < w; x0 += b) {
+						pyramid.render(data, x0, y0, x0+b, y0+b, 1, 1, out, null);
+						assertEquals(mean(data, w, h, x0, x0+b, y0, y0+b), out[0], 1e-9);
+					}
+			}
+		}
+	}
+
+	@Test
+	public void extremaIgnoreNaN() {
+		Random r = new Random(29);
+		int w = 37, h = 21;
+		double[] data = new double[w*h];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (r.nextInt(3) == 0) ? Double.NaN : r.nextInt(100);
+		// a block of NaN cells stays NaN
+		for (int y = 0; y < 4; y++)
+			for (int x = 0; x < 4; x++)
+				data[w*y+x] = Double.NaN;
+		double[] out = new double[1];
+		for (Grid.Pooling pooling : new Grid.Pooling[] {Grid.Pooling.MIN, Grid.Pooling.MAX}) {
+			GridPyramid pyramid = new GridPyramid();
+			pyramid.build(data, w, h, pooling, null);
+			for (int k = 1; (1 << (k-1)) < w; k++) {
+				int b = 1 << k;
+				for (int y0 = 0; y0 < h; y0 += b)
+					for (int x0 = 0; x0 < w; x0 += b) {
+						double expected = Double.NaN;
+						for (int y = y0; y < Math.min(y0+b, h); y++)
+							for (int x = x0; x < Math.min(x0+b, w); x++) {
+								double v = data[w*y+x];
+								if (expected != expected || (pooling == Grid.Pooling.MIN ? v < expected : v > expected))
+									expected = v;
+							}
+						pyramid.render(data, x0, y0, x0+b, y0+b, 1, 1, out, null);
+						assertEquals(expected, out[0], 0);
+					}
+			}
+		}
+	}
+}
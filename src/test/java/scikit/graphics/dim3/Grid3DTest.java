@@ -0,0 +1,89 @@
+package scikit.graphics.dim3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+import org.junit.Test;
+
+import scikit.graphics.ColorGradient;
+
+public class Grid3DTest {
+	// a grid drawn on a plain panel, so that it can be built without native GL
+	static class HeadlessGrid3D extends Grid3D {
+		HeadlessGrid3D() {
+			super("test");
+		}
+		protected JComponent createCanvas() {
+			return new JPanel();
+		}
+	}
+
+	static double[] values(int n) {
+		Random r = new Random(19);
+		double[] ret = new double[n];
+		for (int i = 0; i < n; i++)
+			ret[i] = r.nextGaussian();
+		return ret;
+	}
+
+	// checks getARGB and getColor of every cell against the colors of data scaled to
+	// its range, reading the grid's latest snapshot
+	static void assertColors(Grid3D grid, int w, int h, int d, double[] data) {
+		double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+		for (double v : data) {
+			lo = Math.min(lo, v);
+			hi = Math.max(hi, v);
+		}
+		ColorGradient colors = new ColorGradient();
+		grid.extractData(new double[w*h*d]);
+		for (int z = 0; z < d; z++)
+			for (int y = 0; y < h; y++)
+				for (int x = 0; x < w; x++) {
+					int argb = colors.getARGB(data[w*h*z+w*y+x], lo, hi);
+					assertEquals(argb, grid.getARGB(x, y, z));
+					assertEquals(argb, grid.getColor(x, y, z).getRGB());
+				}
+		assertEquals(0, grid.getARGB(-1, 0, 0));
+		assertEquals(0, grid.getARGB(0, 0, d));
+	}
+
+	@Test
+	public void colorsMatchRange() {
+		int w = 7, h = 5, d = 3;
+		double[] data = values(w*h*d);
+		Grid3D grid = new HeadlessGrid3D();
+		grid.registerData(w, h, d, data);
+		assertColors(grid, w, h, d, data);
+
+		ForkJoinPool pool = new ForkJoinPool(3);
+		grid.setPool(pool);
+		data = values(64*32*32);
+		grid.registerData(64, 32, 32, data);
+		assertColors(grid, 64, 32, 32, data);
+		pool.shutdown();
+	}
+
+	@Test
+	public void publishHandsBackBuffers() {
+		int w = 4, h = 3, d = 2;
+		Grid3D grid = new HeadlessGrid3D();
+		double[] a = values(w*h*d);
+		double[] b = grid.publishData(w, h, d, a);
+		assertEquals(w*h*d, b.length);
+		assertColors(grid, w, h, d, a);
+		for (int i = 0; i < b.length; i++)
+			b[i] = -a[i];
+		assertSame(a, grid.publishData(w, h, d, b));
+		assertColors(grid, w, h, d, b);
+		double[] copy = new double[w*h*d];
+		grid.extractData(copy);
+		assertArrayEquals(b, copy, 0);
+	}
+}
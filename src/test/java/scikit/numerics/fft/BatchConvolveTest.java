@@ -0,0 +1,131 @@
+package scikit.numerics.fft;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import scikit.numerics.fn.Function2D;
+import scikit.numerics.fn.Function3D;
+
+public class BatchConvolveTest {
+	static final Function3D fn3 = new Function3D() {
+		public double eval(double k1, double k2, double k3) {
+			return Math.exp(-(k1*k1 + 2*k2*k2 + 3*k3*k3)) * Math.cos(k1);
+		}
+	};
+	static final Function2D fn2 = new Function2D() {
+		public double eval(double k1, double k2) {
+			return Math.exp(-(k1*k1 + 2*k2*k2)) * Math.cos(k2);
+		}
+	};
+
+	static double[][] fields(int n, int size) {
+		Random r = new Random(1);
+		double[][] ret = new double[n][size];
+		for (double[] f : ret)
+			for (int i = 0; i < size; i++)
+				f[i] = r.nextGaussian();
+		return ret;
+	}
+
+	static double[][] copy(double[][] a) {
+		double[][] ret = new double[a.length][];
+		for (int i = 0; i < a.length; i++)
+			ret[i] = a[i].clone();
+		return ret;
+	}
+
+	@Test
+	public void batch3DMatchesSingle() {
+		FFT3D fft = new FFT3DManaged(8, 6, 4);
+		fft.setLengths(4, 3, 2);
+		double[][] src = fields(3, 8*6*4);
+		double[][] expected = new double[3][8*6*4];
+		for (int i = 0; i < src.length; i++)
+			fft.convolve(src[i], expected[i], fn3);
+
+		double[][] dst = new double[3][8*6*4];
+		fft.convolve(src, dst, fn3);
+		for (int i = 0; i < src.length; i++)
+			assertArrayEquals(expected[i], dst[i], 1e-12);
+
+		KernelSpectrum J = fft.kernel(fn3);
+		dst = copy(src);
+		fft.convolve(dst, dst, new KernelSpectrum[] {J});
+		for (int i = 0; i < src.length; i++)
+			assertArrayEquals(expected[i], dst[i], 1e-12);
+
+		dst = new double[3][8*6*4];
+		fft.convolve(src, dst, new KernelSpectrum[] {J, J, J});
+		for (int i = 0; i < src.length; i++)
+			assertArrayEquals(expected[i], dst[i], 1e-12);
+	}
+
+	@Test
+	public void batch2DMatchesSingle() {
+		FFT2D fft = new FFT2D(8, 6);
+		fft.setLengths(4, 3);
+		double[][] src = fields(3, 8*6);
+		double[][] expected = new double[3][8*6];
+		for (int i = 0; i < src.length; i++)
+			fft.convolve(src[i], expected[i], fn2);
+
+		double[][] dst = new double[3][8*6];
+		fft.convolve(src, dst, fn2);
+		for (int i = 0; i < src.length; i++)
+			assertArrayEquals(expected[i], dst[i], 1e-12);
+
+		dst = new double[3][8*6];
+		fft.convolve(src, dst, new KernelSpectrum[] {fft.kernel(fn2)});
+		for (int i = 0; i < src.length; i++)
+			assertArrayEquals(expected[i], dst[i], 1e-12);
+	}
+
+	@Test
+	public void concurrentBatchMatchesSingle() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		FFT3D fft3 = new FFT3DManagedReal(8, 6, 4, pool);
+		FFT2D fft2 = new FFT2D(8, 6, pool);
+		fft3.setLengths(4, 3, 2);
+		fft2.setLengths(4, 3);
+		for (int n : new int[] {1, 2, 5}) {
+			double[][] src3 = fields(n, 8*6*4), src2 = fields(n, 8*6);
+			double[][] expected3 = new double[n][8*6*4], expected2 = new double[n][8*6];
+			KernelSpectrum[] J3 = new KernelSpectrum[n], J2 = new KernelSpectrum[n];
+			for (int i = 0; i < n; i++) {
+				final double a = i+1;
+				J3[i] = KernelSpectrum.sample(new Function3D() {
+					public double eval(double k1, double k2, double k3) {
+						return fn3.eval(a*k1, k2, k3);
+					}
+				}, 8, 6, 4, 4, 3, 2);
+				J2[i] = fft2.kernel(fn2);
+				fft3.convolve(src3[i], expected3[i], J3[i]);
+				fft2.convolve(src2[i], expected2[i], J2[i]);
+			}
+			double[][] dst3 = copy(src3), dst2 = copy(src2);
+			fft3.convolve(dst3, dst3, J3);
+			fft2.convolve(dst2, dst2, J2);
+			for (int i = 0; i < n; i++) {
+				assertArrayEquals(expected3[i], dst3[i], 1e-12);
+				assertArrayEquals(expected2[i], dst2[i], 1e-12);
+			}
+			dst3 = new double[n][8*6*4];
+			fft3.convolve(src3, dst3, fn3);
+			for (int i = 0; i < n; i++) {
+				fft3.convolve(src3[i], expected3[i], fn3);
+				assertArrayEquals(expected3[i], dst3[i], 1e-12);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void kernelCountMustMatchBatch() {
+		FFT3D fft = new FFT3DManaged(4, 4, 4);
+		KernelSpectrum J = fft.kernel(fn3);
+		fft.convolve(fields(3, 64), new double[3][64], new KernelSpectrum[] {J, J});
+	}
+}
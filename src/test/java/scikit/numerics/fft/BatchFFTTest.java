@@ -0,0 +1,68 @@
+package scikit.numerics.fft;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import scikit.numerics.fft.managed.ComplexDoubleFFT_Batch;
+
+public class BatchFFTTest {
+	@Test
+	public void batchMatchesDFT() {
+		// powers of 2, 3 and 4, the general butterfly (5, 7) and mixed sizes
+		int[] sizes = {1, 2, 3, 4, 5, 7, 8, 12, 16, 30, 35, 49, 64};
+		int[] counts = {1, 2, 5, 8};
+		for (int n : sizes)
+			for (int count : counts) {
+				ComplexDoubleFFT_Batch fft = new ComplexDoubleFFT_Batch(n, 8);
+				double[] re = DFT.random(n*count, n), im = DFT.random(n*count, n+1000);
+				double[] re0 = re.clone(), im0 = im.clone();
+				fft.transform(re, im, count);
+				for (int b = 0; b < count; b++) {
+					double[] seq = new double[2*n];
+					for (int i = 0; i < n; i++) {
+						seq[2*i] = re0[i*count + b];
+						seq[2*i+1] = im0[i*count + b];
+					}
+					double[] expected = DFT.transform(seq, new int[] {n}, -1);
+					double[] actual = new double[2*n];
+					for (int i = 0; i < n; i++) {
+						actual[2*i] = re[i*count + b];
+						actual[2*i+1] = im[i*count + b];
+					}
+					assertArrayEquals(expected, actual, 1e-10);
+				}
+				fft.backtransform(re, im, count);
+				for (int i = 0; i < re.length; i++) {
+					re[i] /= n;
+					im[i] /= n;
+				}
+				assertArrayEquals(re0, re, 1e-12);
+				assertArrayEquals(im0, im, 1e-12);
+			}
+	}
+
+	@Test
+	public void singleSequenceMatchesDFT() {
+		int n = 15, stride = 3;
+		double[] data = DFT.random(2*n*stride + 2, 7);
+		double[] seq = new double[2*n];
+		for (int i = 0; i < n; i++) {
+			seq[2*i] = data[2 + stride*2*i];
+			seq[2*i+1] = data[2 + stride*2*i + 1];
+		}
+		double[] expected = DFT.transform(seq, new int[] {n}, -1);
+		new ComplexDoubleFFT_Batch(n, 4).transform(data, 2, 2*stride);
+		double[] actual = new double[2*n];
+		for (int i = 0; i < n; i++) {
+			actual[2*i] = data[2 + stride*2*i];
+			actual[2*i+1] = data[2 + stride*2*i + 1];
+		}
+		assertArrayEquals(expected, actual, 1e-10);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void countMustFitCapacity() {
+		new ComplexDoubleFFT_Batch(8, 4).transform(new double[40], new double[40], 5);
+	}
+}
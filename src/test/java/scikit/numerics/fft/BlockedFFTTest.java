@@ -0,0 +1,45 @@
+package scikit.numerics.fft;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import scikit.numerics.fft.managed.ComplexDouble3DFFT;
+
+public class BlockedFFTTest {
+	@Test
+	public void blockedAxesMatchDFT() {
+		int[][] shapes = {{6, 4, 8}, {5, 7, 3}, {1, 4, 6}};
+		int[] blocks = {2, 3, 4, 16};
+		ForkJoinPool pool = new ForkJoinPool(2);
+		for (int[] s : shapes) {
+			double[] data = DFT.random(2*s[0]*s[1]*s[2], 4);
+			double[] expected = DFT.transform(data, s, -1);
+			for (int block : blocks)
+				for (int axis = 1; axis <= 3; axis++)
+					for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+						ComplexDouble3DFFT fft = new ComplexDouble3DFFT(s[0], s[1], s[2], p);
+						fft.setBlocking(axis, block);
+						double[] a = data.clone();
+						fft.transform(a);
+						assertArrayEquals(expected, a, 1e-10);
+						fft.inverse(a);
+						assertArrayEquals(data, a, 1e-12);
+					}
+			// every axis blocked at once
+			ComplexDouble3DFFT fft = new ComplexDouble3DFFT(s[0], s[1], s[2], pool);
+			for (int axis = 1; axis <= 3; axis++)
+				fft.setBlocking(axis, 4);
+			double[] a = data.clone();
+			fft.transform(a);
+			assertArrayEquals(expected, a, 1e-10);
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void blockMustBePositive() {
+		new ComplexDouble3DFFT(4, 4, 4).setBlocking(1, 0);
+	}
+}
@@ -0,0 +1,61 @@
+package scikit.numerics.fft;
+
+import java.util.Random;
+
+/**
+ * Direct discrete Fourier transforms, the reference for the tests of the FFTs.
+ */
+class DFT {
+	/**
+	 * Returns the transform of the complex array data, of the given dimensions with the
+	 * last varying fastest and real and imaginary parts interleaved, computed one axis
+	 * at a time as direct sums. The forward transform (sign -1) uses exp(-2 pi i jk/n),
+	 * and neither direction is normalized.
+	 */
+	static double[] transform(double[] data, int[] dims, int sign) {
+		double[] a = data.clone();
+		int n = 1;
+		for (int d : dims)
+			n *= d;
+		int stride = n;
+		for (int axis = 0; axis < dims.length; axis++) {
+			int len = dims[axis];
+			stride /= len;
+			double[] b = new double[a.length];
+			for (int i = 0; i < n; i++) {
+				// i = outer*len*stride + j*stride + inner
+				int j = (i / stride) % len;
+				int base = i - j*stride;
+				double re = 0, im = 0;
+				for (int m = 0; m < len; m++) {
+					double theta = sign * 2 * Math.PI * ((long)j*m % len) / len;
+					double c = Math.cos(theta), s = Math.sin(theta);
+					double xr = a[2*(base + m*stride)], xi = a[2*(base + m*stride)+1];
+					re += xr*c - xi*s;
+					im += xr*s + xi*c;
+				}
+				b[2*i] = re;
+				b[2*i+1] = im;
+			}
+			a = b;
+		}
+		return a;
+	}
+
+	/** Returns the real array a as a complex array with zero imaginary parts. */
+	static double[] complex(double[] a) {
+		double[] ret = new double[2*a.length];
+		for (int i = 0; i < a.length; i++)
+			ret[2*i] = a[i];
+		return ret;
+	}
+
+	/** Returns n Gaussian random values. */
+	static double[] random(int n, long seed) {
+		Random r = new Random(seed);
+		double[] ret = new double[n];
+		for (int i = 0; i < n; i++)
+			ret[i] = r.nextGaussian();
+		return ret;
+	}
+}
@@ -0,0 +1,114 @@
+package scikit.numerics.fft;
+
+import static java.lang.Math.PI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import scikit.numerics.fn.Function2D;
+import scikit.numerics.fn.Function3D;
+
+public class KernelSpectrumTest {
+	static Function3D gaussian(final double a) {
+		return new Function3D() {
+			public double eval(double k1, double k2, double k3) {
+				return Math.exp(-a*(k1*k1 + k2*k2 + k3*k3));
+			}
+		};
+	}
+
+	@Test
+	public void cacheIsKeyedByFunctionDimensionsAndLengths() {
+		KernelSpectrum.clearCache();
+		Function3D f = gaussian(1), g = gaussian(1);
+		KernelSpectrum J = KernelSpectrum.cached(f, 8, 6, 4, 4, 3, 2);
+		assertSame(J, KernelSpectrum.cached(f, 8, 6, 4, 4, 3, 2));
+		// equal but distinct function objects are distinct kernels
+		assertNotSame(J, KernelSpectrum.cached(g, 8, 6, 4, 4, 3, 2));
+		assertNotSame(J, KernelSpectrum.cached(f, 8, 6, 2, 4, 3, 2));
+		assertNotSame(J, KernelSpectrum.cached(f, 8, 6, 4, 4, 3, 1));
+		assertNotSame(J, KernelSpectrum.cached(f, 8, 6, 4, 4.5, 3, 2));
+		assertSame(J, KernelSpectrum.cached(f, 8, 6, 4, 4, 3, 2));
+
+		KernelSpectrum.clearCache();
+		KernelSpectrum K = KernelSpectrum.cached(f, 8, 6, 4, 4, 3, 2);
+		assertNotSame(J, K);
+		for (int i = 0; i < J.values.length; i++)
+			assertEquals(J.values[i], K.values[i], 0);
+	}
+
+	@Test
+	public void cacheEvictsLeastRecentlyUsed() {
+		KernelSpectrum.clearCache();
+		Function3D f = gaussian(1);
+		KernelSpectrum J = KernelSpectrum.cached(f, 4, 4, 4, 1, 1, 1);
+		for (int i = 0; i < 40; i++) {
+			KernelSpectrum.cached(gaussian(i), 4, 4, 4, 1, 1, 1);
+			// keeps f recently used
+			assertSame(J, KernelSpectrum.cached(f, 4, 4, 4, 1, 1, 1));
+		}
+		Function3D g = gaussian(2);
+		KernelSpectrum K = KernelSpectrum.cached(g, 4, 4, 4, 1, 1, 1);
+		for (int i = 0; i < 40; i++)
+			KernelSpectrum.cached(gaussian(i), 4, 4, 4, 1, 1, 1);
+		assertNotSame(K, KernelSpectrum.cached(g, 4, 4, 4, 1, 1, 1));
+	}
+
+	@Test
+	public void twoAndThreeDimensionalKernelsDoNotCollide() {
+		KernelSpectrum.clearCache();
+		final Function3D f = gaussian(1);
+		Function2D f2 = new Function2D() {
+			public double eval(double k1, double k2) {
+				return f.eval(k1, k2, 0);
+			}
+		};
+		KernelSpectrum J2 = KernelSpectrum.cached(f2, 8, 6, 4, 3);
+		assertSame(J2, KernelSpectrum.cached(f2, 8, 6, 4, 3));
+		assertEquals(1, J2.dim3);
+		assertNotSame(J2, KernelSpectrum.cached(f, 8, 6, 1, 4, 3, 1));
+	}
+
+	@Test
+	public void sampleMatchesFunction() {
+		final Function3D f = new Function3D() {
+			public double eval(double k1, double k2, double k3) {
+				return Math.cos(k1) + 2*k2*k2 + 3*Math.cos(k3);
+			}
+		};
+		int dim1 = 7, dim2 = 6, dim3 = 5;
+		double L1 = 3, L2 = 4, L3 = 5;
+		KernelSpectrum J = KernelSpectrum.sample(f, dim1, dim2, dim3, L1, L2, L3);
+		assertEquals((dim1/2+1)*dim2*dim3, J.values.length);
+		for (int i3 = 0; i3 < dim3; i3++)
+			for (int i2 = 0; i2 < dim2; i2++)
+				for (int i1 = 0; i1 < dim1; i1++) {
+					// wavenumbers in wraparound order
+					int x1 = i1 <= dim1/2 ? i1 : i1 - dim1;
+					int x2 = i2 < (dim2+1)/2 ? i2 : i2 - dim2;
+					int x3 = i3 < (dim3+1)/2 ? i3 : i3 - dim3;
+					double expected = f.eval(2*PI*x1/L1, 2*PI*x2/L2, 2*PI*x3/L3);
+					assertEquals(expected, J.get(i1, i2, i3), 1e-12);
+				}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void dimensionsAreChecked() {
+		KernelSpectrum.sample(gaussian(1), 8, 6, 4, 1, 1, 1).checkDimensions(8, 4, 6);
+	}
+
+	@Test
+	public void kernelIsShared() {
+		KernelSpectrum.clearCache();
+		Function3D f = gaussian(1);
+		FFT3D a = new FFT3DManaged(8, 6, 4), b = new FFT3DManaged(8, 6, 4);
+		a.setLengths(4, 3, 2);
+		b.setLengths(4, 3, 2);
+		assertSame(a.kernel(f), b.kernel(f));
+		b.setLengths(4, 3, 3);
+		assertFalse(a.kernel(f) == b.kernel(f));
+	}
+}
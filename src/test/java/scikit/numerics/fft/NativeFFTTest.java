@@ -0,0 +1,87 @@
+package scikit.numerics.fft;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import jfftw.real.nd.Plan;
+import scikit.numerics.fn.Function3D;
+
+/**
+ * Compares the FFTW transforms with the managed ones. Skipped unless the jfftw library
+ * can be loaded, for example with -Djava.library.path=lib/jfftw/linux-x86_64.
+ */
+public class NativeFFTTest {
+	static final Function3D fn = new Function3D() {
+		public double eval(double k1, double k2, double k3) {
+			return Math.exp(-(k1*k1 + 2*k2*k2 + 3*k3*k3)) * (1 + Math.sin(k1 + k2));
+		}
+	};
+
+	static void assumeNative() {
+		assumeTrue("jfftw library not found", new FFTProviders.NativeProvider().isAvailable());
+	}
+
+	@Test
+	public void convolve3DMatchesManaged() {
+		assumeNative();
+		int[][] shapes = {{8, 6, 4}, {7, 5, 3}};
+		for (int[] s : shapes) {
+			FFT3D a = new FFT3DNative(s[0], s[1], s[2]), b = new FFT3DManagedReal(s[0], s[1], s[2]);
+			a.setLengths(4, 3, 2);
+			b.setLengths(4, 3, 2);
+			double[] src = DFT.random(s[0]*s[1]*s[2], 8);
+			double[] expected = new double[src.length], dst = new double[src.length];
+			b.convolve(src, expected, fn);
+			a.convolve(src, dst, fn);
+			assertArrayEquals(expected, dst, 1e-12);
+		}
+	}
+
+	@Test
+	public void convolve2DMatchesManaged() {
+		assumeNative();
+		FFT2D a = new FFT2DNative(8, 6), b = new FFT2D(8, 6);
+		a.setLengths(4, 3);
+		b.setLengths(4, 3);
+		double[][] src = {DFT.random(48, 9), DFT.random(48, 10)};
+		double[][] expected = new double[2][48], dst = new double[2][48];
+		KernelSpectrum J = b.kernel(RealConvolveTest.slice(fn));
+		b.convolve(src, expected, J);
+		a.convolve(src, dst, J);
+		for (int i = 0; i < 2; i++)
+			assertArrayEquals(expected[i], dst[i], 1e-12);
+	}
+
+	@Test
+	public void stridedTransformsMatchSingle() {
+		assumeNative();
+		int n1 = 6, n2 = 4, howmany = 3, clength = 2*n2*(n1/2+1);
+		Plan plan = new Plan(new int[] {n2, n1}, Plan.REAL_TO_COMPLEX, FFT3DNative.flags);
+		double[] in = DFT.random(howmany*n1*n2, 11);
+		double[] expected = new double[howmany*clength];
+		for (int t = 0; t < howmany; t++) {
+			double[] one = new double[n1*n2], out = new double[clength];
+			System.arraycopy(in, t*n1*n2, one, 0, n1*n2);
+			plan.transform(1, one, 1, 0, out, 1, 0);
+			System.arraycopy(out, 0, expected, t*clength, clength);
+		}
+		// the second call runs the plan kept for the layout
+		for (int rep = 0; rep < 2; rep++) {
+			double[] out = new double[howmany*clength];
+			plan.transform(howmany, in, 1, n1*n2, out, 1, clength);
+			assertArrayEquals(expected, out, 1e-12);
+		}
+	}
+
+	@Test
+	public void providerCreatesNativeTransforms() {
+		assumeNative();
+		FFTProvider p = new FFTProviders.NativeProvider();
+		assertTrue(p.create3D(4, 4, 4) instanceof FFT3DNative);
+		assertTrue(p.create2D(4, 4) instanceof FFT2DNative);
+		assertTrue(p.create1D(4) != null);
+	}
+}
@@ -0,0 +1,81 @@
+package scikit.numerics.fft;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import scikit.numerics.fft.managed.ComplexDouble2DFFT;
+import scikit.numerics.fft.managed.ComplexDouble3DFFT;
+import scikit.numerics.fft.managed.RealDouble3DFFT;
+
+public class ParallelFFTTest {
+	static final ForkJoinPool pool = new ForkJoinPool(3);
+
+	@Test
+	public void complex2DMatchesDFT() {
+		int[][] shapes = {{8, 6}, {5, 7}, {1, 9}};
+		for (int[] s : shapes) {
+			double[] data = DFT.random(2*s[0]*s[1], 1);
+			double[] expected = DFT.transform(data, s, -1);
+			for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+				double[] a = data.clone();
+				ComplexDouble2DFFT fft = new ComplexDouble2DFFT(s[0], s[1], p);
+				fft.transform(a);
+				assertArrayEquals(expected, a, 1e-10);
+				fft.backtransform(a);
+				for (int i = 0; i < a.length; i++)
+					a[i] *= fft.normalization();
+				assertArrayEquals(data, a, 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void complex3DMatchesDFT() {
+		int[][] shapes = {{6, 4, 8}, {5, 3, 7}, {4, 4, 4}};
+		for (int[] s : shapes) {
+			double[] data = DFT.random(2*s[0]*s[1]*s[2], 2);
+			double[] expected = DFT.transform(data, s, -1);
+			for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+				double[] a = data.clone();
+				ComplexDouble3DFFT fft = new ComplexDouble3DFFT(s[0], s[1], s[2], p);
+				fft.transform(a);
+				assertArrayEquals(expected, a, 1e-10);
+				fft.inverse(a);
+				assertArrayEquals(data, a, 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void real3DMatchesDFT() {
+		// dim1, dim2, dim3 with dim1 varying fastest
+		int[][] shapes = {{8, 6, 4}, {7, 5, 3}, {6, 5, 1}, {2, 3, 4}};
+		for (int[] s : shapes) {
+			int dim1 = s[0], dim2 = s[1], dim3 = s[2], dim1p = dim1/2+1;
+			double[] data = DFT.random(dim1*dim2*dim3, 3);
+			double[] full = DFT.transform(DFT.complex(data), new int[] {dim3, dim2, dim1}, -1);
+			for (ForkJoinPool p : new ForkJoinPool[] {null, pool}) {
+				RealDouble3DFFT fft = new RealDouble3DFFT(dim1, dim2, dim3, p);
+				double[] spectrum = new double[fft.spectrumLength()];
+				fft.transform(data, spectrum);
+				double[] expected = new double[spectrum.length];
+				for (int k3 = 0; k3 < dim3; k3++)
+					for (int k2 = 0; k2 < dim2; k2++)
+						for (int k1 = 0; k1 < dim1p; k1++) {
+							int i = k1 + dim1p*(k2 + dim2*k3), j = k1 + dim1*(k2 + dim2*k3);
+							expected[2*i] = full[2*j];
+							expected[2*i+1] = full[2*j+1];
+						}
+				assertArrayEquals(expected, spectrum, 1e-10);
+				double[] back = new double[data.length];
+				fft.backtransform(spectrum, back);
+				for (int i = 0; i < back.length; i++)
+					back[i] *= fft.normalization();
+				assertArrayEquals(data, back, 1e-12);
+			}
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package scikit.numerics.fft;
+
+import static java.lang.Math.PI;
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import scikit.numerics.fn.Function2D;
+import scikit.numerics.fn.Function3D;
+
+public class RealConvolveTest {
+	static final Function3D even = new Function3D() {
+		public double eval(double k1, double k2, double k3) {
+			return Math.exp(-(k1*k1 + 2*k2*k2 + 3*k3*k3)) * Math.cos(k1 + k2);
+		}
+	};
+	static final Function3D odd = new Function3D() {
+		public double eval(double k1, double k2, double k3) {
+			return Math.exp(-(k1*k1 + k2*k2 + k3*k3)) * (1 + Math.sin(k1 - 2*k2 + k3));
+		}
+	};
+
+	static Function2D slice(final Function3D fn) {
+		return new Function2D() {
+			public double eval(double k1, double k2) {
+				return fn.eval(k1, k2, 0);
+			}
+		};
+	}
+
+	// the real part of the convolution through the full spectrum, computed as direct sums
+	static double[] convolve(double[] src, Function3D fn, int dim1, int dim2, int dim3,
+			double L1, double L2, double L3) {
+		int[] dims = {dim3, dim2, dim1};
+		double[] a = DFT.transform(DFT.complex(src), dims, -1);
+		for (int i3 = 0; i3 < dim3; i3++)
+			for (int i2 = 0; i2 < dim2; i2++)
+				for (int i1 = 0; i1 < dim1; i1++) {
+					int x1 = i1 < (dim1+1)/2 ? i1 : i1-dim1;
+					int x2 = i2 < (dim2+1)/2 ? i2 : i2-dim2;
+					int x3 = i3 < (dim3+1)/2 ? i3 : i3-dim3;
+					double J = fn.eval(2*PI*x1/L1, 2*PI*x2/L2, 2*PI*x3/L3);
+					int i = i1 + dim1*(i2 + dim2*i3);
+					a[2*i] *= J;
+					a[2*i+1] *= J;
+				}
+		a = DFT.transform(a, dims, +1);
+		double[] ret = new double[src.length];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = a[2*i] / src.length;
+		return ret;
+	}
+
+	void check3D(Function3D fn, int dim1, int dim2, int dim3) {
+		KernelSpectrum.clearCache();
+		double[] src = DFT.random(dim1*dim2*dim3, 5);
+		double[] expected = convolve(src, fn, dim1, dim2, dim3, 4, 3, 2);
+		FFT3D[] ffts = {new FFT3DManagedReal(dim1, dim2, dim3), new FFT3DManaged(dim1, dim2, dim3)};
+		for (FFT3D fft : ffts) {
+			fft.setLengths(4, 3, 2);
+			double[] dst = new double[src.length];
+			fft.convolve(src, dst, fn);
+			assertArrayEquals(expected, dst, 1e-12);
+			// a second call reuses the cached spectrum
+			fft.convolve(src, dst, fn);
+			assertArrayEquals(expected, dst, 1e-12);
+		}
+	}
+
+	void check2D(Function3D fn, int dim1, int dim2) {
+		KernelSpectrum.clearCache();
+		double[] src = DFT.random(dim1*dim2, 6);
+		double[] expected = convolve(src, fn, dim1, dim2, 1, 4, 3, 1);
+		FFT2D fft = new FFT2D(dim1, dim2);
+		fft.setLengths(4, 3);
+		double[] dst = new double[src.length];
+		fft.convolve(src, dst, slice(fn));
+		assertArrayEquals(expected, dst, 1e-12);
+		fft.convolve(dst, dst, slice(fn));
+		assertArrayEquals(convolve(expected, fn, dim1, dim2, 1, 4, 3, 1), dst, 1e-12);
+	}
+
+	@Test
+	public void evenKernelMatchesDFT() {
+		check3D(even, 8, 6, 4);
+		check3D(even, 7, 5, 3);
+		check2D(even, 8, 6);
+		check2D(even, 7, 5);
+	}
+
+	@Test
+	public void oddKernelMatchesDFT() {
+		// on odd dimensions every wavevector k has its partner -k on the grid, so that
+		// the real part of the convolution is unambiguous
+		check3D(odd, 7, 5, 3);
+		check3D(odd, 5, 3, 1);
+		check2D(odd, 7, 5);
+		check2D(odd, 9, 1);
+	}
+}
@@ -0,0 +1,48 @@
+package scikit.numerics.fft;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+public class WorkspacePoolTest {
+	static WorkspacePool<double[]> pool() {
+		return new WorkspacePool<double[]>() {
+			protected double[] create() {
+				return new double[1 << 16];
+			}
+		};
+	}
+
+	@Test
+	public void threadGetsItsLastWorkspaceBack() {
+		WorkspacePool<double[]> pool = pool();
+		double[] a = pool.acquire();
+		double[] b = pool.acquire();
+		assertSame(pool.primary, a);
+		assertTrue(a != b);
+		pool.release(a);
+		pool.release(b);
+		// b is now the most recently released, but this thread acquired b last
+		assertSame(b, pool.acquire());
+		assertSame(b, pool.lastAcquired());
+	}
+
+	@Test
+	public void threadDoesNotKeepWorkspacesAlive() throws InterruptedException {
+		WorkspacePool<double[]> pool = pool();
+		double[] w = pool.acquire();
+		pool.release(w);
+		WeakReference<double[]> ref = new WeakReference<double[]>(w);
+		w = null;
+		pool = null;
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+	}
+}